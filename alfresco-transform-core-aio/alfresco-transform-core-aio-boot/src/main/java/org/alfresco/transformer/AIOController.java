@@ -38,18 +38,18 @@ import org.springframework.stereotype.Controller;
 import org.springframework.web.bind.annotation.RequestParam;
 
 import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.Map;
 
 import static org.alfresco.transform.client.model.Mimetype.MIMETYPE_HTML;
 import static org.alfresco.transform.client.model.Mimetype.MIMETYPE_TEXT_PLAIN;
-import static org.alfresco.transform.client.model.config.CoreVersionDecorator.setOrClearCoreVersion;
 import static org.alfresco.transform.client.util.RequestParamMap.CONFIG_VERSION_DEFAULT;
 import static org.alfresco.transformer.util.RequestParamMap.CONFIG_VERSION;
 import static org.alfresco.transformer.util.RequestParamMap.SOURCE_ENCODING;
 import static org.alfresco.transformer.util.RequestParamMap.TRANSFORM_NAME_PARAMETER;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
-import static org.springframework.http.HttpStatus.OK;
 
 @Controller
 public class AIOController extends AbstractTransformerController
@@ -93,9 +93,16 @@ public class AIOController extends AbstractTransformerController
             @RequestParam(value = CONFIG_VERSION, defaultValue = CONFIG_VERSION_DEFAULT) int configVersion)
     {
         logger.info("GET Transform Config version: " + configVersion);
-        TransformConfig transformConfig = transformRegistry.getTransformConfig();
-        transformConfig = setOrClearCoreVersion(transformConfig, configVersion);
-        return new ResponseEntity<>(transformConfig, OK);
+        // The combined config is only built and serialized again if the registry's data has been replaced.
+        return createTransformConfigResponse(transformRegistry.getData(), configVersion,
+            transformRegistry::getTransformConfig, null);
+    }
+
+    @Override
+    protected String getTransformerId(String transformName)
+    {
+        Transformer transformer = transformRegistry.getByTransformName(transformName);
+        return transformer == null ? null : transformer.getTransformerId();
     }
 
     @Override
@@ -105,6 +112,31 @@ public class AIOController extends AbstractTransformerController
         logger.debug("Processing transform with: transformName; '{}', sourceFile '{}', targetFile '{}', transformOptions" +
                 " {}", transformName, sourceFile, targetFile, transformOptions);
 
+        Transformer transformer = getTransformer(transformName, sourceMimetype, targetMimetype);
+        transformer.transformExtractOrEmbed(transformName, sourceMimetype, targetMimetype, transformOptions, sourceFile, targetFile);
+    }
+
+    @Override
+    public boolean isStreamingSupported(String transformName, String sourceMimetype, String targetMimetype)
+    {
+        Transformer transformer = transformRegistry.getByTransformName(transformName);
+        return transformer != null && transformer.isStreamingSupported(transformName, sourceMimetype, targetMimetype);
+    }
+
+    @Override
+    public void transformImpl(String transformName, String sourceMimetype, String targetMimetype,
+                              Map<String, String> transformOptions, InputStream sourceStream,
+                              OutputStream targetStream)
+    {
+        logger.debug("Processing streaming transform with: transformName; '{}', transformOptions {}", transformName,
+                transformOptions);
+
+        Transformer transformer = getTransformer(transformName, sourceMimetype, targetMimetype);
+        transformer.transformExtractOrEmbed(transformName, sourceMimetype, targetMimetype, transformOptions, sourceStream, targetStream);
+    }
+
+    private Transformer getTransformer(String transformName, String sourceMimetype, String targetMimetype)
+    {
         Transformer transformer = transformRegistry.getByTransformName(transformName);
         if (transformer == null)
         {
@@ -116,7 +148,6 @@ public class AIOController extends AbstractTransformerController
         {
             logger.debug("Performing transform with name '{}' using transformer with id '{}'.", transformName, transformer.getTransformerId());
         }
-
-        transformer.transformExtractOrEmbed(transformName, sourceMimetype, targetMimetype, transformOptions, sourceFile, targetFile);
+        return transformer;
     }
 }
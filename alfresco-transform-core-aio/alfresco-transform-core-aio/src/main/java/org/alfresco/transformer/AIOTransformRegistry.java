@@ -30,7 +30,6 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.alfresco.transform.client.model.config.TransformConfig;
 import org.alfresco.transform.client.registry.AbstractTransformRegistry;
 import org.alfresco.transform.client.registry.CombinedTransformConfig;
-import org.alfresco.transform.client.registry.TransformCache;
 import org.alfresco.transformer.executors.Transformer;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -59,10 +58,6 @@ public class AIOTransformRegistry extends AbstractTransformRegistry
 
     private CombinedTransformConfig combinedTransformConfig = new CombinedTransformConfig();
 
-    // Holds the structures used by AbstractTransformRegistry to look up what is supported.
-    // Unlike other sub classes this class does not extend Data or replace it at run time.
-    private TransformCache data = new TransformCache();
-
     private ObjectMapper jsonObjectMapper = new ObjectMapper();
 
     // Represents the mapping between a transform and a transformer, multiple mappings can point to the same transformer.
@@ -108,7 +103,7 @@ public class AIOTransformRegistry extends AbstractTransformRegistry
     public void registerCombinedTransformers()
     {
         combinedTransformConfig.combineTransformerConfig(this);
-        combinedTransformConfig.registerCombinedTransformers(this);
+        registerSnapshot(() -> combinedTransformConfig.registerCombinedTransformers(this));
     }
 
     /**
@@ -164,12 +159,6 @@ public class AIOTransformRegistry extends AbstractTransformRegistry
         this.transformerEngineMapping = transformerEngineMapping;
     }
 
-    @Override
-    public TransformCache getData()
-    {
-        return data;
-    }
-
     @Override
     protected void logError(String msg)
     {
@@ -27,6 +27,7 @@
 package org.alfresco.transformer;
 
 import static org.alfresco.transform.client.util.RequestParamMap.ENDPOINT_TRANSFORM;
+import static org.alfresco.transform.client.util.RequestParamMap.ENDPOINT_TRANSFORM_BATCH;
 import static org.alfresco.transformer.util.MimetypeMap.PREFIX_IMAGE;
 import static org.hamcrest.Matchers.containsString;
 import static org.junit.jupiter.api.Assertions.assertEquals;
@@ -34,6 +35,8 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.http.HttpHeaders.ACCEPT;
 import static org.springframework.http.HttpHeaders.CONTENT_DISPOSITION;
@@ -42,6 +45,7 @@ import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.CREATED;
 import static org.springframework.http.HttpStatus.OK;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.http.MediaType.IMAGE_JPEG_VALUE;
 import static org.springframework.http.MediaType.IMAGE_PNG_VALUE;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
@@ -52,6 +56,7 @@ import java.io.File;
 import java.io.IOException;
 import java.nio.file.Files;
 import java.util.Arrays;
+import java.util.List;
 import java.util.Map;
 import java.util.UUID;
 
@@ -81,6 +86,8 @@ import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import com.fasterxml.jackson.core.type.TypeReference;
+
 /**
  * Test the ImageMagickController without a server.
  * Super class includes tests for the AbstractTransformerController.
@@ -416,6 +423,87 @@ public class ImageMagickControllerTest extends AbstractTransformerControllerTest
         assertEquals(transformRequest.getSchema(), transformReply.getSchema());
     }
 
+    @Test
+    public void testPojoBatchTransformWithSharedSource() throws Exception
+    {
+        String sourceFileRef = UUID.randomUUID().toString();
+        File sourceFile = getTestFile("quick." + sourceExtension, true);
+        String targetFileRef = UUID.randomUUID().toString();
+
+        TransformRequest pngRequest = createTransformRequest(sourceFileRef, sourceFile);
+        TransformRequest jpgRequest = createTransformRequest(sourceFileRef, sourceFile);
+        jpgRequest.setRequestId("2");
+        updateTransformRequestWithSpecificOptions(pngRequest);
+        updateTransformRequestWithSpecificOptions(jpgRequest);
+        jpgRequest.setTargetExtension("jpg");
+        jpgRequest.setTargetMediaType(IMAGE_JPEG_VALUE);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(CONTENT_DISPOSITION, "attachment; filename=quick." + sourceExtension);
+        ResponseEntity<Resource> response = new ResponseEntity<>(new FileSystemResource(
+            sourceFile), headers, OK);
+
+        when(alfrescoSharedFileStoreClient.retrieveFile(sourceFileRef)).thenReturn(response);
+        when(alfrescoSharedFileStoreClient.saveFile(any()))
+            .thenReturn(new FileRefResponse(new FileRefEntity(targetFileRef)));
+        when(mockExecutionResult.getExitValue()).thenReturn(0);
+
+        String replies = mockMvc
+            .perform(MockMvcRequestBuilders
+                .post(ENDPOINT_TRANSFORM_BATCH)
+                .header(ACCEPT, APPLICATION_JSON_VALUE)
+                .header(CONTENT_TYPE, APPLICATION_JSON_VALUE)
+                .content(objectMapper.writeValueAsString(List.of(pngRequest, jpgRequest))))
+            .andExpect(status().is(OK.value()))
+            .andReturn().getResponse().getContentAsString();
+
+        List<TransformReply> transformReplies = objectMapper.readValue(replies,
+            new TypeReference<List<TransformReply>>() {});
+        assertEquals(2, transformReplies.size());
+        assertEquals("1", transformReplies.get(0).getRequestId());
+        assertEquals("2", transformReplies.get(1).getRequestId());
+        assertEquals(CREATED.value(), transformReplies.get(0).getStatus());
+        assertEquals(CREATED.value(), transformReplies.get(1).getStatus());
+        assertEquals(targetFileRef, transformReplies.get(1).getTargetReference());
+
+        // The source is only read once
+        verify(alfrescoSharedFileStoreClient, times(1)).retrieveFile(sourceFileRef);
+    }
+
+    @Test
+    public void testPojoBatchTransformWithDifferentSourceTypesDoesNotShareSource() throws Exception
+    {
+        String sourceFileRef = UUID.randomUUID().toString();
+        File sourceFile = getTestFile("quick." + sourceExtension, true);
+
+        TransformRequest request = createTransformRequest(sourceFileRef, sourceFile);
+        TransformRequest otherRequest = createTransformRequest(sourceFileRef, sourceFile);
+        otherRequest.setRequestId("2");
+        updateTransformRequestWithSpecificOptions(request);
+        updateTransformRequestWithSpecificOptions(otherRequest);
+        otherRequest.setSourceExtension("jpg");
+        otherRequest.setSourceMediaType(IMAGE_JPEG_VALUE);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(CONTENT_DISPOSITION, "attachment; filename=quick." + sourceExtension);
+        ResponseEntity<Resource> response = new ResponseEntity<>(new FileSystemResource(
+            sourceFile), headers, OK);
+
+        when(alfrescoSharedFileStoreClient.retrieveFile(sourceFileRef)).thenReturn(response);
+        when(alfrescoSharedFileStoreClient.saveFile(any()))
+            .thenReturn(new FileRefResponse(new FileRefEntity(UUID.randomUUID().toString())));
+        when(mockExecutionResult.getExitValue()).thenReturn(0);
+
+        mockMvc.perform(MockMvcRequestBuilders
+                   .post(ENDPOINT_TRANSFORM_BATCH)
+                   .header(ACCEPT, APPLICATION_JSON_VALUE)
+                   .header(CONTENT_TYPE, APPLICATION_JSON_VALUE)
+                   .content(objectMapper.writeValueAsString(List.of(request, otherRequest))))
+               .andExpect(status().is(OK.value()));
+
+        verify(alfrescoSharedFileStoreClient, times(2)).retrieveFile(sourceFileRef);
+    }
+
     @Test
     public void testOverridingExecutorPaths()
     {
@@ -95,6 +95,15 @@ public class LibreOfficeController extends AbstractTransformerController
         return "LibreOffice";
     }
 
+    /**
+     * One transform may run in each of the LibreOffice processes, of which there is one per port.
+     */
+    @Override
+    public int getParallelism()
+    {
+        return portNumbers.split(",").length;
+    }
+
     @Override
     public String version()
     {
@@ -118,7 +127,7 @@ public class LibreOfficeController extends AbstractTransformerController
     }
 
     @Override
-    protected String getTransformerName(final File sourceFile, final String sourceMimetype,
+    protected String getTransformerName(final long sourceSizeInBytes, final String sourceMimetype,
                                         final String targetMimetype, final Map<String, String> transformOptions)
     {
         return null; // does not matter what value is returned, as it is not used because there is only one.
@@ -33,6 +33,8 @@ import org.slf4j.LoggerFactory;
 import org.springframework.stereotype.Controller;
 
 import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -85,4 +87,18 @@ public class MiscController extends AbstractTransformerController
     {
         transformer.transformExtractOrEmbed(transformName, sourceMimetype, targetMimetype, transformOptions, sourceFile, targetFile);
     }
+
+    @Override
+    public boolean isStreamingSupported(String transformName, String sourceMimetype, String targetMimetype)
+    {
+        return transformer.isStreamingSupported(transformName, sourceMimetype, targetMimetype);
+    }
+
+    @Override
+    public void transformImpl(String transformName, String sourceMimetype, String targetMimetype,
+                              Map<String, String> transformOptions, InputStream sourceStream,
+                              OutputStream targetStream)
+    {
+        transformer.transformExtractOrEmbed(transformName, sourceMimetype, targetMimetype, transformOptions, sourceStream, targetStream);
+    }
 }
@@ -40,9 +40,9 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
-import java.io.FileWriter;
 import java.io.IOException;
 import java.io.InputStream;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Writer;
 import java.util.Map;
@@ -76,27 +76,42 @@ public class EMLTransformer implements SelectableTransformer
     public void transform(final String sourceMimetype, final String targetMimetype, final Map<String, String> parameters,
                           final File sourceFile, final File targetFile) throws Exception
     {
-        logger.debug("Performing RFC822 to text transform.");
-        // Use try with resource
-        try (InputStream contentInputStream = new BufferedInputStream(
-            new FileInputStream(sourceFile));
-             Writer bufferedFileWriter = new BufferedWriter(new FileWriter(targetFile)))
+        try (InputStream sourceStream = new FileInputStream(sourceFile);
+             OutputStream targetStream = new FileOutputStream(targetFile))
         {
-            MimeMessage mimeMessage = new MimeMessage(Session.getDefaultInstance(new Properties()),
-                contentInputStream);
+            transform(sourceMimetype, targetMimetype, parameters, sourceStream, targetStream);
+        }
+    }
 
-            final StringBuilder sb = new StringBuilder();
-            Object content = mimeMessage.getContent();
-            if (content instanceof Multipart)
-            {
-                processMultiPart((Multipart) content, sb);
-            }
-            else
-            {
-                sb.append(content.toString());
-            }
-            bufferedFileWriter.write(sb.toString());
+    @Override
+    public boolean isStreamingSupported(String sourceMimetype, String targetMimetype)
+    {
+        return true;
+    }
+
+    @Override
+    public void transform(final String sourceMimetype, final String targetMimetype, final Map<String, String> parameters,
+                          final InputStream sourceStream, final OutputStream targetStream) throws Exception
+    {
+        logger.debug("Performing RFC822 to text transform.");
+        InputStream contentInputStream = new BufferedInputStream(sourceStream);
+        Writer bufferedFileWriter = new BufferedWriter(new OutputStreamWriter(targetStream));
+        MimeMessage mimeMessage = new MimeMessage(Session.getDefaultInstance(new Properties()),
+            contentInputStream);
+
+        final StringBuilder sb = new StringBuilder();
+        Object content = mimeMessage.getContent();
+        if (content instanceof Multipart)
+        {
+            processMultiPart((Multipart) content, sb);
+        }
+        else
+        {
+            sb.append(content.toString());
         }
+        bufferedFileWriter.write(sb.toString());
+        // The streams are closed by the caller
+        bufferedFileWriter.flush();
     }
 
     /**
@@ -27,6 +27,8 @@
 package org.alfresco.transformer.transformers;
 
 import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Map;
 
 /**
@@ -41,6 +43,23 @@ public interface SelectableTransformer
     {
     }
 
+    /**
+     * @return {@code true} if {@link #transform(String, String, Map, InputStream, OutputStream)} is implemented, so
+     * that the transform does not need temporary files. Defaults to {@code false}.
+     */
+    default boolean isStreamingSupported(String sourceMimetype, String targetMimetype)
+    {
+        return false;
+    }
+
+    /**
+     * Stream based equivalent of {@link #transform(String, String, Map, File, File)}. Neither stream should be closed.
+     */
+    default void transform(String sourceMimetype, String targetMimetype, Map<String, String> parameters,
+                           InputStream sourceStream, OutputStream targetStream) throws Exception
+    {
+    }
+
     default void extractMetadata(String sourceMimetype, String targetMimetype, Map<String, String> transformOptions,
                                  File sourceFile, File targetFile) throws Exception
     {
@@ -33,9 +33,12 @@ import org.alfresco.transformer.metadataExtractors.HtmlMetadataExtractor;
 import org.alfresco.transformer.metadataExtractors.RFC822MetadataExtractor;
 
 import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Map;
 import java.util.StringJoiner;
 
+import static org.alfresco.transform.router.ExtensionService.getExtensionForMimetype;
 import static org.alfresco.transformer.util.RequestParamMap.TRANSFORM_NAME_PARAMETER;
 
 /**
@@ -81,6 +84,24 @@ public class SelectingTransformer implements Transformer
         transformer.transform(sourceMimetype, targetMimetype, transformOptions, sourceFile, targetFile);
     }
 
+    @Override
+    public boolean isStreamingSupported(String transformName, String sourceMimetype, String targetMimetype)
+    {
+        final SelectableTransformer transformer = transformers.get(transformName);
+        return transformer != null && transformer.isStreamingSupported(sourceMimetype, targetMimetype);
+    }
+
+    @Override
+    public void transform(String transformName, String sourceMimetype, String targetMimetype,
+                          Map<String, String> transformOptions,
+                          InputStream sourceStream, OutputStream targetStream) throws Exception
+    {
+        final SelectableTransformer transformer = transformers.get(transformName);
+        logOptions(getExtensionForMimetype(sourceMimetype), getExtensionForMimetype(targetMimetype),
+            transformOptions);
+        transformer.transform(sourceMimetype, targetMimetype, transformOptions, sourceStream, targetStream);
+    }
+
     public void extractMetadata(String transformName, String sourceMimetype, String targetMimetype,
                                 Map<String, String> transformOptions,
                                 File sourceFile, File targetFile) throws Exception
@@ -91,6 +112,11 @@ public class SelectingTransformer implements Transformer
     }
 
     private static void logOptions(File sourceFile, File targetFile, Map<String, String> parameters)
+    {
+        logOptions(getExtension(sourceFile), getExtension(targetFile), parameters);
+    }
+
+    private static void logOptions(String sourceExtension, String targetExtension, Map<String, String> parameters)
     {
         StringJoiner sj = new StringJoiner(" ");
         parameters.forEach((k, v) ->
@@ -100,8 +126,8 @@ public class SelectingTransformer implements Transformer
                 sj.add("--" + k + "=" + v);
             }
         }); // keeping the existing style used in other T-Engines
-        sj.add(getExtension(sourceFile));
-        sj.add(getExtension(targetFile));
+        sj.add(sourceExtension);
+        sj.add(targetExtension);
         LogEntry.setOptions(sj.toString());
     }
 
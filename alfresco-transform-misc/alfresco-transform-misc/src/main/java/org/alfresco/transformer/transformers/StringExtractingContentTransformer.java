@@ -34,7 +34,9 @@ import java.io.BufferedWriter;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
+import java.io.InputStream;
 import java.io.InputStreamReader;
+import java.io.OutputStream;
 import java.io.OutputStreamWriter;
 import java.io.Reader;
 import java.io.Writer;
@@ -74,6 +76,23 @@ public class StringExtractingContentTransformer implements SelectableTransformer
     @Override
     public void transform(final String sourceMimetype, final String targetMimetype, final Map<String, String> parameters,
                           final File sourceFile, final File targetFile) throws Exception
+    {
+        try (InputStream sourceStream = new FileInputStream(sourceFile);
+             OutputStream targetStream = new FileOutputStream(targetFile))
+        {
+            transform(sourceMimetype, targetMimetype, parameters, sourceStream, targetStream);
+        }
+    }
+
+    @Override
+    public boolean isStreamingSupported(String sourceMimetype, String targetMimetype)
+    {
+        return true;
+    }
+
+    @Override
+    public void transform(final String sourceMimetype, final String targetMimetype, final Map<String, String> parameters,
+                          final InputStream sourceStream, final OutputStream targetStream) throws Exception
     {
         String sourceEncoding = parameters.get(SOURCE_ENCODING);
         String targetEncoding = parameters.get(TARGET_ENCODING);
@@ -84,59 +103,42 @@ public class StringExtractingContentTransformer implements SelectableTransformer
                          + " targetEncoding=" + targetEncoding);
         }
 
-        Reader charReader = null;
-        Writer charWriter = null;
-        try
+        // Build reader
+        Reader charReader;
+        if (sourceEncoding == null)
         {
-            // Build reader
-            if (sourceEncoding == null)
-            {
-                charReader = new BufferedReader(
-                    new InputStreamReader(new FileInputStream(sourceFile)));
-            }
-            else
-            {
-                checkEncodingParameter(sourceEncoding, SOURCE_ENCODING);
-                charReader = new BufferedReader(
-                    new InputStreamReader(new FileInputStream(sourceFile), sourceEncoding));
-            }
-
-            // Build writer
-            if (targetEncoding == null)
-            {
-                charWriter = new BufferedWriter(
-                    new OutputStreamWriter(new FileOutputStream(targetFile)));
-            }
-            else
-            {
-                checkEncodingParameter(targetEncoding, TARGET_ENCODING);
-                charWriter = new BufferedWriter(
-                    new OutputStreamWriter(new FileOutputStream(targetFile), targetEncoding));
-            }
+            charReader = new BufferedReader(new InputStreamReader(sourceStream));
+        }
+        else
+        {
+            checkEncodingParameter(sourceEncoding, SOURCE_ENCODING);
+            charReader = new BufferedReader(new InputStreamReader(sourceStream, sourceEncoding));
+        }
 
-            // copy from the one to the other
-            char[] buffer = new char[8192];
-            int readCount = 0;
-            while (readCount > -1)
-            {
-                // write the last read count number of bytes
-                charWriter.write(buffer, 0, readCount);
-                // fill the buffer again
-                readCount = charReader.read(buffer);
-            }
+        // Build writer
+        Writer charWriter;
+        if (targetEncoding == null)
+        {
+            charWriter = new BufferedWriter(new OutputStreamWriter(targetStream));
         }
-        finally
+        else
         {
-            if (charReader != null)
-            {
-                try { charReader.close(); } catch (Throwable e) { logger.error("Failed to close charReader", e); }
-            }
-            if (charWriter != null)
-            {
-                try { charWriter.close(); } catch (Throwable e) { logger.error("Failed to close charWriter", e); }
-            }
+            checkEncodingParameter(targetEncoding, TARGET_ENCODING);
+            charWriter = new BufferedWriter(new OutputStreamWriter(targetStream, targetEncoding));
+        }
+
+        // copy from the one to the other
+        char[] buffer = new char[8192];
+        int readCount = 0;
+        while (readCount > -1)
+        {
+            // write the last read count number of bytes
+            charWriter.write(buffer, 0, readCount);
+            // fill the buffer again
+            readCount = charReader.read(buffer);
         }
-        // done
+        // The streams are closed by the caller
+        charWriter.flush();
     }
 
     private void checkEncodingParameter(String encoding, String paramterName)
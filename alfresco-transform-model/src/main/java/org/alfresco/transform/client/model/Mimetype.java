@@ -354,6 +354,14 @@ public class Mimetype
         }
     }
 
+    /**
+     * @return all the mimetypes defined by this class.
+     */
+    public static Set<String> getAllMimetypes()
+    {
+        return ALL_MIMETYPES;
+    }
+
     public static Set<String> matchMimetypes(final String regex)
     {
         return unmodifiableSet(ALL_MIMETYPES
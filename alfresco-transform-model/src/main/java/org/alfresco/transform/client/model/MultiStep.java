@@ -21,6 +21,12 @@
  */
 package org.alfresco.transform.client.model;
 
+import org.alfresco.transform.router.TransformStack;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+
+import java.io.IOException;
+import java.io.ObjectOutputStream;
 import java.io.Serializable;
 import java.util.ArrayList;
 import java.util.List;
@@ -36,6 +42,7 @@ public class MultiStep implements Serializable
     private String initialRequestId;
     private String initialSourceMediaType;
     private List<String> transformsToBeDone = new ArrayList<>();
+    private transient TransformStack.ParsedLevels parsedLevels;
 
     // regions [Accessors]
 
@@ -59,16 +66,38 @@ public class MultiStep implements Serializable
         this.initialRequestId = initialRequestId;
     }
 
+    /**
+     * Writes back any changes made by the {@link TransformStack} before returning the list, which may then be modified
+     * directly by the caller.
+     */
     public List<String> getTransformsToBeDone()
     {
+        flushParsedLevels();
+        parsedLevels = null;
         return transformsToBeDone;
     }
 
     public void setTransformsToBeDone(List<String> transformsToBeDone)
     {
+        this.parsedLevels = null;
         this.transformsToBeDone = transformsToBeDone;
     }
 
+    /**
+     * Used by the {@link TransformStack} to hold the parsed form of the transformsToBeDone between calls.
+     */
+    @JsonIgnore
+    public TransformStack.ParsedLevels getParsedLevels()
+    {
+        return parsedLevels;
+    }
+
+    @JsonIgnore
+    public void setParsedLevels(TransformStack.ParsedLevels parsedLevels)
+    {
+        this.parsedLevels = parsedLevels;
+    }
+
     //endregion
 
     @Override public String toString()
@@ -76,7 +105,22 @@ public class MultiStep implements Serializable
         return "MultiStep{" +
                "initialRequestId='" + initialRequestId + '\'' +
                ", initialSourceMediaType='" + initialSourceMediaType + '\'' +
-               ", transformsToBeDone=" + transformsToBeDone +
+               ", transformsToBeDone=" + flushParsedLevels() +
                '}';
     }
+
+    private List<String> flushParsedLevels()
+    {
+        if (parsedLevels != null)
+        {
+            parsedLevels.flush();
+        }
+        return transformsToBeDone;
+    }
+
+    private void writeObject(ObjectOutputStream out) throws IOException
+    {
+        flushParsedLevels();
+        out.defaultWriteObject();
+    }
 }
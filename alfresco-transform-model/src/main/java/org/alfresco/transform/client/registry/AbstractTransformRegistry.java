@@ -27,18 +27,28 @@ import static org.alfresco.transform.client.registry.TransformRegistryHelper.loo
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
+import java.util.stream.IntStream;
 
 import org.alfresco.transform.client.model.config.CoreFunction;
 import org.alfresco.transform.client.model.config.TransformOption;
 import org.alfresco.transform.client.model.config.Transformer;
 
 /**
- * Used to work out if a transformation is supported. Sub classes should implement {@link #getData()} to return an
- * instance of the {@link TransformCache} class. This allows sub classes to periodically replace the registry's data with newer
- * values. They may also extend the Data class to include extra fields and methods.
+ * Used to work out if a transformation is supported. The registry's data is held in an immutable {@link TransformCache}
+ * snapshot, which is built by {@link #registerSnapshot(Runnable)} and published through a single volatile reference,
+ * so lookups never lock and never see partially registered transforms. Sub classes may periodically register newer
+ * values in the same way. A transformer registered outside {@link #registerSnapshot(Runnable)} is added to a copy of
+ * the current snapshot, which is then published, so registering many transformers that way is slower. Sub classes may
+ * alternatively implement {@link #getData()} to return their own mutable instance of the {@link TransformCache} class,
+ * which may be extended to include extra fields and methods, and to which transformers are added in place.
  */
 public abstract class AbstractTransformRegistry implements TransformServiceRegistry
 {
+    private volatile TransformCache data = TransformCache.builder().build();
+
+    // Set while registerSnapshot is registering transformers.
+    private TransformCache.Builder snapshotBuilder;
+
     /**
      * Logs an error message if there is an error in the configuration.
      *
@@ -61,11 +71,42 @@ public abstract class AbstractTransformRegistry implements TransformServiceRegis
      *
      * @return the Data object that contains the registry's data.
      */
-    public abstract TransformCache getData();
+    public TransformCache getData()
+    {
+        return data;
+    }
+
+    /**
+     * Registers transformers in a new {@link TransformCache} snapshot, which then replaces the registry's data in a
+     * single step. Lookups made while the registration takes place continue to use the previous data.
+     *
+     * @param registration that registers the transformers, normally by calling
+     *                     {@link CombinedTransformConfig#registerCombinedTransformers(AbstractTransformRegistry)}.
+     */
+    public void registerSnapshot(Runnable registration)
+    {
+        registerSnapshot(false, registration);
+    }
+
+    private synchronized void registerSnapshot(boolean addToCurrent, Runnable registration)
+    {
+        snapshotBuilder = addToCurrent ? data.toBuilder() : TransformCache.builder();
+        try
+        {
+            registration.run();
+            data = snapshotBuilder.build();
+        }
+        finally
+        {
+            snapshotBuilder = null;
+        }
+    }
 
     /**
      * Registers a single transformer. This is an internal method called by
-     * {@link CombinedTransformConfig#registerCombinedTransformers(AbstractTransformRegistry)}.
+     * {@link CombinedTransformConfig#registerCombinedTransformers(AbstractTransformRegistry)}. If called outside
+     * {@link #registerSnapshot(Runnable)}, the transformer is added to the {@link TransformCache} returned by a sub
+     * class's {@link #getData()}, or otherwise to a new snapshot that replaces the current one.
      *
      * @param transformer      to be registered
      * @param transformOptions all the transform options
@@ -77,18 +118,41 @@ public abstract class AbstractTransformRegistry implements TransformServiceRegis
         final Map<String, Set<TransformOption>> transformOptions, final String baseUrl,
         final String readFrom)
     {
-        getData().incrementTransformerCount();
+        final TransformCache.Builder builder = snapshotBuilder;
+        if (builder == null && getData() == data)
+        {
+            registerSnapshot(true, () -> register(transformer, transformOptions, baseUrl, readFrom));
+            return;
+        }
+        if (builder != null)
+        {
+            builder.incrementTransformerCount();
+        }
+        else
+        {
+            getData().incrementTransformerCount();
+        }
         transformer
             .getSupportedSourceAndTargetList()
-            .forEach(e -> getData().appendTransform(e.getSourceMediaType(), e.getTargetMediaType(),
-                new SupportedTransform(
+            .forEach(e ->
+            {
+                final SupportedTransform supportedTransform = new SupportedTransform(
                     transformer.getTransformerName(),
                     lookupTransformOptions(transformer.getTransformOptions(), transformOptions,
                         readFrom, this::logError),
                     e.getMaxSourceSizeBytes(),
-                    e.getPriority()),
-                    transformer.getTransformerName(),
-                    transformer.getCoreVersion()));
+                    e.getPriority());
+                if (builder != null)
+                {
+                    builder.appendTransform(e.getSourceMediaType(), e.getTargetMediaType(), supportedTransform,
+                        transformer.getTransformerName(), transformer.getCoreVersion());
+                }
+                else
+                {
+                    getData().appendTransform(e.getSourceMediaType(), e.getTargetMediaType(), supportedTransform,
+                        transformer.getTransformerName(), transformer.getCoreVersion());
+                }
+            });
     }
 
     /**
@@ -130,6 +194,51 @@ public abstract class AbstractTransformRegistry implements TransformServiceRegis
                supportedTransforms.get(supportedTransforms.size() - 1).getMaxSourceSizeBytes();
     }
 
+    /**
+     * Evaluates all the queries against a single snapshot of the data, so that a concurrent reload of the config is
+     * not seen part way through. The list of supported transforms for each query is only looked up once, and is used
+     * to work out both the max size and the transformer name.
+     */
+    @Override
+    public TransformQueryResults query(final List<TransformQuery> queries, final boolean parallel)
+    {
+        final TransformCache data = getData();
+        final int size = queries.size();
+        final long[] maxSizes = new long[size];
+        final String[] transformerNames = new String[size];
+        final boolean[] supported = new boolean[size];
+        IntStream indexes = IntStream.range(0, size);
+        if (parallel)
+        {
+            indexes = indexes.parallel();
+        }
+        indexes.forEach(i ->
+        {
+            final TransformQuery query = queries.get(i);
+            final List<SupportedTransform> supportedTransforms = retrieveTransformListBySize(data,
+                query.getSourceMimetype(), query.getTargetMimetype(), query.getActualOptions(),
+                query.getRenditionName());
+            final long maxSize = supportedTransforms.isEmpty() ? 0 :
+                                 supportedTransforms.get(supportedTransforms.size() - 1).getMaxSourceSizeBytes();
+            maxSizes[i] = maxSize;
+            if (maxSize != 0)
+            {
+                final long sourceSizeInBytes = query.getSourceSizeInBytes();
+                supported[i] = maxSize == -1L || maxSize >= sourceSizeInBytes;
+                for (SupportedTransform supportedTransform : supportedTransforms)
+                {
+                    final long maxSourceSizeBytes = supportedTransform.getMaxSourceSizeBytes();
+                    if (maxSourceSizeBytes == -1 || maxSourceSizeBytes >= sourceSizeInBytes)
+                    {
+                        transformerNames[i] = supportedTransform.getName();
+                        break;
+                    }
+                }
+            }
+        });
+        return new TransformQueryResults(maxSizes, transformerNames, supported);
+    }
+
     @Override
     public boolean isSupported(CoreFunction function, String transformerName)
     {
@@ -33,11 +33,16 @@ import org.alfresco.transform.client.model.config.Transformer;
 import org.alfresco.transform.client.model.config.TransformerAndTypes;
 import org.alfresco.transform.client.model.config.Types;
 
+import java.util.ArrayDeque;
 import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
 import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
 import java.util.Set;
 import java.util.StringJoiner;
 import java.util.stream.Collectors;
@@ -68,6 +73,9 @@ public class CombinedTransformConfig
 
     private final Map<String, Set<TransformOption>> combinedTransformOptions = new HashMap<>();
     private List<Origin<Transformer>> combinedTransformers = new ArrayList<>();
+    // The combinedTransformers with each name, so that the changes made by each config are found without walking the
+    // whole list. Names are only unique once the config has been combined.
+    private final Map<String, List<Transformer>> transformersByName = new HashMap<>();
     private final Defaults defaults = new Defaults();
 
     public static void combineAndRegister(TransformConfig transformConfig, String readFrom, String baseUrl,
@@ -83,6 +91,7 @@ public class CombinedTransformConfig
     {
         combinedTransformOptions.clear();
         combinedTransformers.clear();
+        transformersByName.clear();
         defaults.clear();
     }
 
@@ -103,7 +112,21 @@ public class CombinedTransformConfig
 
         // Add transform options and transformers from the new transformConfig
         transformConfig.getTransformOptions().forEach(combinedTransformOptions::put);
-        transformConfig.getTransformers().forEach(t -> combinedTransformers.add(new Origin<>(t, baseUrl, readFrom)));
+        transformConfig.getTransformers().forEach(t ->
+        {
+            combinedTransformers.add(new Origin<>(t, baseUrl, readFrom));
+            indexByName(t);
+        });
+    }
+
+    private void indexByName(Transformer transformer)
+    {
+        transformersByName.computeIfAbsent(transformer.getTransformerName(), name -> new ArrayList<>()).add(transformer);
+    }
+
+    private List<Transformer> getTransformersByName(String transformerName)
+    {
+        return transformersByName.getOrDefault(transformerName, Collections.emptyList());
     }
 
     private void removeTransformers(Set<String> removeTransformersSet, String readFrom, AbstractTransformRegistry registry)
@@ -111,16 +134,12 @@ public class CombinedTransformConfig
         if (!removeTransformersSet.isEmpty())
         {
             Set<String> leftOver = new HashSet<>(removeTransformersSet);
-            combinedTransformers.removeIf(combinedTransformer ->
+            leftOver.removeIf(transformerName -> transformersByName.remove(transformerName) != null);
+            if (leftOver.size() < removeTransformersSet.size())
             {
-                String transformerName = combinedTransformer.get().getTransformerName();
-                if (removeTransformersSet.contains(transformerName))
-                {
-                    leftOver.remove(transformerName);
-                    return true;
-                }
-                return false;
-            });
+                combinedTransformers.removeIf(combinedTransformer ->
+                    removeTransformersSet.contains(combinedTransformer.get().getTransformerName()));
+            }
 
             Set<String> quotedLeftOver = leftOver.stream().map(transformerName -> "\""+transformerName+'"').collect(toSet());
             logWarn(quotedLeftOver, readFrom, registry, "removeTransformers");
@@ -182,12 +201,10 @@ public class CombinedTransformConfig
     {
         processSupported(removeSupportedSet, readFrom, registry, "removeSupported",
                 (leftOver, removeSupported) ->
-                        combinedTransformers.stream()
-                        .map(Origin::get)
+                        getTransformersByName(removeSupported.getTransformerName())
                         .forEach(transformer ->
                         {
-                            if (transformer.getTransformerName().equals(removeSupported.getTransformerName()) &&
-                                    transformer.getSupportedSourceAndTargetList().removeIf(supported ->
+                            if (transformer.getSupportedSourceAndTargetList().removeIf(supported ->
                                             supported.getSourceMediaType().equals(removeSupported.getSourceMediaType()) &&
                                             supported.getTargetMediaType().equals(removeSupported.getTargetMediaType())))
                             {
@@ -200,9 +217,7 @@ public class CombinedTransformConfig
     {
         processSupported(addSupportedSet, readFrom, registry, "addSupported",
                 (leftOver, addSupported) ->
-                        combinedTransformers.stream()
-                                .map(Origin::get)
-                                .filter(transformer -> transformer.getTransformerName().equals(addSupported.getTransformerName()))
+                        getTransformersByName(addSupported.getTransformerName())
                                 .forEach(transformerWithName ->
                                 {
                                     Set<SupportedSourceAndTarget> supportedSourceAndTargetList =
@@ -227,9 +242,7 @@ public class CombinedTransformConfig
     {
         processSupported(overrideSupportedSet, readFrom, registry, "overrideSupported",
                 (leftOver, overrideSupported) ->
-                        combinedTransformers.stream().
-                                map(Origin::get).
-                                filter(transformer -> transformer.getTransformerName().equals(overrideSupported.getTransformerName())).
+                        getTransformersByName(overrideSupported.getTransformerName()).
                                 forEach(transformerWithName ->
                                 {
                                     Set<SupportedSourceAndTarget> supportedSourceAndTargetList =
@@ -265,6 +278,10 @@ public class CombinedTransformConfig
         applyDefaults();
         addWildcardSupportedSourceAndTarget(registry);
         setCoreVersionOnCombinedMultiStepTransformers();
+
+        // Only the transformers that remain may be changed by config added later
+        transformersByName.clear();
+        combinedTransformers.forEach(ct -> indexByName(ct.get()));
     }
 
     public TransformConfig buildTransformConfig()
@@ -296,11 +313,18 @@ public class CombinedTransformConfig
      */
     private void removeInvalidTransformers(AbstractTransformRegistry registry)
     {
-        for (int i=0; i<combinedTransformers.size(); i++)
+        // Valid transformers are copied to a new list, with removed entries set to null until the end, so that the
+        // indexes held in indexesByName remain valid and earlier transforms with the same name are found without
+        // walking the list.
+        List<Origin<Transformer>> validTransformers = new ArrayList<>(combinedTransformers.size());
+        Map<String, Integer> indexesByName = new HashMap<>();
+        for (Origin<Transformer> origin : combinedTransformers)
         {
+            int i = validTransformers.size();
+            validTransformers.add(origin);
             try
             {
-                Origin<Transformer> transformAndItsOrigin = combinedTransformers.get(i);
+                Origin<Transformer> transformAndItsOrigin = origin;
                 Transformer transformer = transformAndItsOrigin.get();
                 String readFrom = transformAndItsOrigin.getReadFrom();
                 String name = transformer.getTransformerName();
@@ -316,34 +340,31 @@ public class CombinedTransformConfig
                 }
 
                 // Remove transforms as they may override each other or be invalid
-                int indexToRemove = removeInvalidTransformer(i, combinedTransformers, registry, transformAndItsOrigin,
-                        transformer, name, readFrom, isPipeline, isFailover);
+                int indexToRemove = removeInvalidTransformer(i, validTransformers, indexesByName, registry,
+                        transformAndItsOrigin, transformer, name, readFrom, isPipeline, isFailover);
 
                 // Remove an overridden transform
                 if (indexToRemove >= 0)
                 {
-                    combinedTransformers.remove(indexToRemove);
-                    // The current index i should be decremented so we don't skip one.
-                    // Condition not really needed as IllegalArgumentException is thrown if the latest entry is removed.
-                    if (i >= indexToRemove)
-                    {
-                        i--;
-                    }
+                    validTransformers.set(indexToRemove, null);
                 }
+                indexesByName.put(name, i);
             }
             catch (IllegalStateException e)
             {
                 String msg = e.getMessage();
                 registry.logWarn(msg);
-                combinedTransformers.remove(i--);
+                validTransformers.set(i, null);
             }
             catch (IllegalArgumentException e)
             {
                 String msg = e.getMessage();
                 registry.logError(msg);
-                combinedTransformers.remove(i--);
+                validTransformers.set(i, null);
             }
         }
+        validTransformers.removeIf(Objects::isNull);
+        combinedTransformers = validTransformers;
     }
 
     /**
@@ -361,8 +382,10 @@ public class CombinedTransformConfig
      *    T-Engine and the overriding transform is not a pipeline or a failover, we also copy the {@code baseUrl}
      *    from the overridden transform so that the original T-Engine will still be called.
      *
-     * @param i the current transform's index into combinedTransformers.
-     * @param combinedTransformers the full list of transformers in the order they were read.
+     * @param i the current transform's index into validTransformers.
+     * @param validTransformers the transformers in the order they were read, up to and including the current one.
+     *                          Entries that have already been removed are {@code null}.
+     * @param indexesByName the index into validTransformers of the last valid transform with each name.
      * @param registry that wil hold the transforms.
      * @param transformAndItsOrigin the current combinedTransformers element.
      * @param transformer the current transformer.
@@ -376,8 +399,8 @@ public class CombinedTransformConfig
      * @throws IllegalStateException if the current transform is dependent on config from another transform which
      *         is currently unavailable.
      */
-    private int removeInvalidTransformer(int i, List<Origin<Transformer>> combinedTransformers,
-                                         AbstractTransformRegistry registry,
+    private int removeInvalidTransformer(int i, List<Origin<Transformer>> validTransformers,
+                                         Map<String, Integer> indexesByName, AbstractTransformRegistry registry,
                                          Origin<Transformer> transformAndItsOrigin, Transformer transformer,
                                          String name, String readFrom, boolean isPipeline, boolean isFailover)
     {
@@ -395,7 +418,7 @@ public class CombinedTransformConfig
         {
             baseUrl = testBaseUrl;
             transformAndItsOrigin = new Origin<>(transformer, baseUrl, readFrom);
-            combinedTransformers.set(i, transformAndItsOrigin);
+            validTransformers.set(i, transformAndItsOrigin);
         }
         boolean isTEngineTransform = baseUrl != null;
 
@@ -419,8 +442,8 @@ public class CombinedTransformConfig
         boolean isOneStepTransform = !isPipeline && !isFailover && !isPassThroughTransform;
 
         // Check to see if the name has been used before.
-        int j = lastIndexOf(name, combinedTransformers, i);
-        if (j >= 0)
+        Integer j = indexesByName.get(name);
+        if (j != null)
         {
             if (isTEngineTransform)
             {
@@ -439,7 +462,7 @@ public class CombinedTransformConfig
 
             if (isOneStepTransform)
             {
-                Origin<Transformer> overriddenTransformAndItsOrigin = combinedTransformers.get(j);
+                Origin<Transformer> overriddenTransformAndItsOrigin = validTransformers.get(j);
                 Transformer overriddenTransformer = overriddenTransformAndItsOrigin.get();
                 List<TransformStep> overriddenPipeline = overriddenTransformer.getTransformerPipeline();
                 List<String> overriddenFailover = overriddenTransformer.getTransformerFailover();
@@ -458,7 +481,7 @@ public class CombinedTransformConfig
                 Transformer overriddenTransformTransform = transformAndItsOrigin.get();
                 Origin<Transformer> overridingTransform =
                         new Origin<>(overriddenTransformTransform, overriddenBaseUrl, readFrom);
-                combinedTransformers.set(i, overridingTransform);
+                validTransformers.set(i, overridingTransform);
             }
             indexToRemove = j;
         }
@@ -477,23 +500,6 @@ public class CombinedTransformConfig
         return false; // There is no pass through transformer in ATS but there is in the Repo.
     }
 
-    private static int lastIndexOf(String name, List<Origin<Transformer>> combinedTransformers, int toIndex)
-    {
-        // Lists are short (< 100) entries and this is not a frequent or time critical step, so walking the list
-        // should be okay.
-        for (int j = toIndex-1; j >=0; j--)
-        {
-            Origin<Transformer> transformAndItsOrigin = combinedTransformers.get(j);
-            Transformer transformer = transformAndItsOrigin.get();
-            String transformerName = transformer.getTransformerName();
-            if (name.equals(transformerName))
-            {
-                return j;
-            }
-        }
-        return -1;
-    }
-
     protected static String transformerName(String name)
     {
         return name == null ? " without a name" : "\"" + name + "\"";
@@ -507,60 +513,93 @@ public class CombinedTransformConfig
 
     /**
      * Sort transformers so there are no forward references, if that is possible.
-     * Logs warning message for those that have missing step transformers and removes them.
+     * Logs warning message for those that have missing step transformers and removes them.<p><br>
+     *
+     * The order is the same as would be produced by repeatedly walking the list, adding transformers once all the
+     * transformers they reference have been added, but is worked out with a single topological sort of the pipeline
+     * and failover references. Each transformer is given the number of the walk in which it would have been added,
+     * and transformers are then ordered by that number and their original position.
      * @param registry used to log messages
       */
     private void sortTransformers(AbstractTransformRegistry registry)
     {
-        List<Origin<Transformer>> transformers = new ArrayList<>(combinedTransformers.size());
-        List<Origin<Transformer>> todo = new ArrayList<>(combinedTransformers.size());
-        Set<String> transformerNames = new HashSet<>();
-        boolean added;
-        do
+        int size = combinedTransformers.size();
+        Map<String, Integer> indexesByName = new HashMap<>();
+        for (int i = 0; i < size; i++)
         {
-            added = false;
-            for (Origin<Transformer> transformAndItsOrigin : combinedTransformers)
+            String name = combinedTransformers.get(i).get().getTransformerName();
+            if (name != null)
             {
-                Transformer transformer = transformAndItsOrigin.get();
-                String name = transformer.getTransformerName();
-                Set<String> referencedTransformerNames = getReferencedTransformerNames(transformer);
+                indexesByName.putIfAbsent(name, i);
+            }
+        }
 
-                boolean addEntry = true;
-                for (String referencedTransformerName : referencedTransformerNames)
+        // Build the graph of references. A reference to a missing transformer is never resolved.
+        int[] unresolved = new int[size];
+        List<List<Integer>> dependents = new ArrayList<>(size);
+        Deque<Integer> ready = new ArrayDeque<>();
+        for (int i = 0; i < size; i++)
+        {
+            dependents.add(new ArrayList<>());
+        }
+        for (int i = 0; i < size; i++)
+        {
+            Set<String> referencedTransformerNames = getReferencedTransformerNames(combinedTransformers.get(i).get());
+            unresolved[i] = referencedTransformerNames.size();
+            for (String referencedTransformerName : referencedTransformerNames)
+            {
+                Integer j = indexesByName.get(referencedTransformerName);
+                if (j != null)
                 {
-                    if (!transformerNames.contains(referencedTransformerName))
-                    {
-                        todo.add(transformAndItsOrigin);
-                        addEntry = false;
-                        break;
-                    }
+                    dependents.get(j).add(i);
                 }
+            }
+            if (unresolved[i] == 0)
+            {
+                ready.add(i);
+            }
+        }
 
-                if (addEntry)
+        // Walk the graph working out the walk number (starting at 1) in which each transformer would be added. A
+        // reference to an earlier transformer added in the same walk is satisfied in that walk.
+        int[] walks = new int[size];
+        List<Integer> added = new ArrayList<>(size);
+        Set<String> transformerNames = new HashSet<>();
+        while (!ready.isEmpty())
+        {
+            int i = ready.remove();
+            walks[i] = Math.max(walks[i], 1);
+            added.add(i);
+            String name = combinedTransformers.get(i).get().getTransformerName();
+            if (name != null)
+            {
+                transformerNames.add(name);
+            }
+            for (int dependent : dependents.get(i))
+            {
+                walks[dependent] = Math.max(walks[dependent], i < dependent ? walks[i] : walks[i] + 1);
+                if (--unresolved[dependent] == 0)
                 {
-                    transformers.add(transformAndItsOrigin);
-                    added = true;
-                    if (name != null)
-                    {
-                        transformerNames.add(name);
-                    }
+                    ready.add(dependent);
                 }
             }
-            combinedTransformers.clear();
-            combinedTransformers.addAll(todo);
-            todo.clear();
         }
-        while (added && !combinedTransformers.isEmpty());
+        added.sort(Comparator.<Integer>comparingInt(i -> walks[i]).thenComparingInt(i -> i));
 
-        transformers.addAll(todo);
+        List<Origin<Transformer>> transformers = new ArrayList<>(added.size());
+        added.forEach(i -> transformers.add(combinedTransformers.get(i)));
 
-        for (Origin<Transformer> transformAndItsOrigin : combinedTransformers)
+        for (int i = 0; i < size; i++)
         {
-            Transformer transformer = transformAndItsOrigin.get();
-            String name = transformer.getTransformerName();
-            registry.logWarn("Transformer " + transformerName(name) +
-                    " ignored as step transforms " + getUnknownReferencedTransformerNames(transformer, transformerNames) +
-                    " do not exist. Read from " + transformAndItsOrigin.getReadFrom());
+            if (unresolved[i] > 0)
+            {
+                Origin<Transformer> transformAndItsOrigin = combinedTransformers.get(i);
+                Transformer transformer = transformAndItsOrigin.get();
+                String name = transformer.getTransformerName();
+                registry.logWarn("Transformer " + transformerName(name) +
+                        " ignored as step transforms " + getUnknownReferencedTransformerNames(transformer, transformerNames) +
+                        " do not exist. Read from " + transformAndItsOrigin.getReadFrom());
+            }
         }
 
         this.combinedTransformers = transformers;
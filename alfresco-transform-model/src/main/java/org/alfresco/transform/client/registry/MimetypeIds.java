@@ -0,0 +1,100 @@
+/*
+ * #%L
+ * Alfresco Transform Model
+ * %%
+ * Copyright (C) 2005 - 2022 Alfresco Software Limited
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package org.alfresco.transform.client.registry;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeSet;
+
+import org.alfresco.transform.client.model.Mimetype;
+
+/**
+ * Assigns a dense int id to each mimetype known to a {@link TransformCache} snapshot, so that source and target
+ * mimetypes may be combined into a single primitive key. The {@link Mimetype} constants are given the same ids in every
+ * table (in sorted order), followed by any other mimetypes used in the config in the order they were first seen.
+ * Immutable once created.
+ */
+public class MimetypeIds
+{
+    public static final int UNKNOWN = -1;
+
+    private final Map<String, Integer> ids;
+    private final String[] mimetypes;
+
+    MimetypeIds(Collection<String> configMimetypes)
+    {
+        final List<String> mimetypeList = new ArrayList<>(new TreeSet<>(Mimetype.getAllMimetypes()));
+        final Map<String, Integer> ids = new HashMap<>();
+        for (int i = 0; i < mimetypeList.size(); i++)
+        {
+            ids.put(mimetypeList.get(i), i);
+        }
+        for (String mimetype : configMimetypes)
+        {
+            if (mimetype != null && !ids.containsKey(mimetype))
+            {
+                ids.put(mimetype, mimetypeList.size());
+                mimetypeList.add(mimetype);
+            }
+        }
+        this.ids = ids;
+        this.mimetypes = mimetypeList.toArray(new String[0]);
+    }
+
+    /**
+     * @param mimetype to be looked up.
+     * @return the id of the mimetype, or {@link #UNKNOWN} if it is not in the table.
+     */
+    public int getId(String mimetype)
+    {
+        final Integer id = mimetype == null ? null : ids.get(mimetype);
+        return id == null ? UNKNOWN : id;
+    }
+
+    /**
+     * @param id of a mimetype.
+     * @return the mimetype with the supplied id, or {@code null} if there is no such id.
+     */
+    public String getMimetype(int id)
+    {
+        return id < 0 || id >= mimetypes.length ? null : mimetypes[id];
+    }
+
+    /**
+     * @return the number of mimetypes in the table. Ids are in the range 0 to size() - 1.
+     */
+    public int size()
+    {
+        return mimetypes.length;
+    }
+
+    /**
+     * @return a single key for a source and target mimetype, made from their ids.
+     */
+    static long key(int sourceId, int targetId)
+    {
+        return ((long) sourceId << 32) | (targetId & 0xFFFFFFFFL);
+    }
+}
@@ -0,0 +1,205 @@
+/*
+ * #%L
+ * Alfresco Transform Model
+ * %%
+ * Copyright (C) 2005 - 2022 Alfresco Software Limited
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package org.alfresco.transform.client.registry;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+import org.alfresco.transform.client.model.config.TransformOption;
+import org.alfresco.transform.client.model.config.TransformOptionGroup;
+import org.alfresco.transform.client.model.config.TransformOptionValue;
+
+/**
+ * The tree of transform options of a {@link SupportedTransform}, compiled when it is registered into bitsets over a
+ * global index of option names. Each group holds the bits of its own options and of those that are required.
+ * {@link #matches(long[])} gives the same result as calling
+ * {@link TransformRegistryHelper#addToPossibleTransformOptions} followed by
+ * {@link TransformRegistryHelper#optionsMatch}, but the options of a request are only converted into a bitset once
+ * (by {@link #toBits(Set)}), and no maps are created for each candidate.
+ */
+class OptionsMatcher
+{
+    private static final int BITS_PER_WORD = 64;
+
+    // Option names are added when transforms are registered, but never removed, so an index is never reused.
+    private static final Map<String, Integer> optionIndex = new ConcurrentHashMap<>();
+
+    private final Group root;
+    private final int words;
+
+    OptionsMatcher(TransformOptionGroup transformOptions)
+    {
+        root = new Group(transformOptions);
+        words = wordCount();
+    }
+
+    private static synchronized int indexOf(String name)
+    {
+        return optionIndex.computeIfAbsent(name, k -> optionIndex.size());
+    }
+
+    private static int wordCount()
+    {
+        return (optionIndex.size() + BITS_PER_WORD - 1) / BITS_PER_WORD;
+    }
+
+    /**
+     * Converts the names of the options supplied with a request into a bitset.
+     *
+     * @return the bitset, or {@code null} if any of the names are not used by any transform, in which case no
+     *         transform can match.
+     */
+    static long[] toBits(Set<String> optionNames)
+    {
+        final long[] bits = new long[wordCount()];
+        for (String name : optionNames)
+        {
+            final Integer index = optionIndex.get(name);
+            if (index == null || index >= bits.length * BITS_PER_WORD)
+            {
+                return null;
+            }
+            bits[index / BITS_PER_WORD] |= 1L << index;
+        }
+        return bits;
+    }
+
+    /**
+     * @param actualBits the request's options, from {@link #toBits(Set)}.
+     * @return {@code true} if all the required options have been supplied and there are no options that are not
+     *         used by the transform.
+     */
+    boolean matches(long[] actualBits)
+    {
+        if (actualBits == null)
+        {
+            return false;
+        }
+        final int length = Math.max(words, actualBits.length);
+        final long[] possible = new long[length];
+        final long[] possibleRequired = new long[length];
+        root.addPossible(true, actualBits, possible, possibleRequired);
+        for (int i = 0; i < length; i++)
+        {
+            final long actual = i < actualBits.length ? actualBits[i] : 0;
+            if ((possibleRequired[i] & ~actual) != 0 || (actual & ~possible[i]) != 0)
+            {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private static class Group
+    {
+        private final boolean required;
+        private final boolean hasOptions;
+        private final Group[] groups;
+        private final long[] valueBits;
+        private final long[] requiredValueBits;
+
+        private Group(TransformOptionGroup transformOptionGroup)
+        {
+            final Set<TransformOption> optionList = transformOptionGroup.getTransformOptions();
+            required = transformOptionGroup.isRequired();
+            hasOptions = optionList != null && !optionList.isEmpty();
+
+            // The options are processed in the same order as addToPossibleTransformOptions, so that if an option
+            // appears more than once, the last one decides if it is required.
+            final List<Group> groupList = new ArrayList<>();
+            final List<TransformOptionValue> valueList = new ArrayList<>();
+            if (hasOptions)
+            {
+                for (TransformOption transformOption : optionList)
+                {
+                    if (transformOption instanceof TransformOptionGroup)
+                    {
+                        groupList.add(new Group((TransformOptionGroup) transformOption));
+                    }
+                    else
+                    {
+                        valueList.add((TransformOptionValue) transformOption);
+                    }
+                }
+            }
+            groups = groupList.toArray(new Group[0]);
+
+            final int[] indexes = valueList.stream().mapToInt(v -> indexOf(v.getName())).toArray();
+            valueBits = new long[wordCount()];
+            requiredValueBits = new long[valueBits.length];
+            for (int i = 0; i < indexes.length; i++)
+            {
+                final int word = indexes[i] / BITS_PER_WORD;
+                final long bit = 1L << indexes[i];
+                valueBits[word] |= bit;
+                if (valueList.get(i).isRequired())
+                {
+                    requiredValueBits[word] |= bit;
+                }
+                else
+                {
+                    requiredValueBits[word] &= ~bit;
+                }
+            }
+        }
+
+        // See TransformRegistryHelper.addToPossibleTransformOptions
+        private boolean addPossible(boolean parentGroupRequired, long[] actualBits, long[] possible,
+            long[] possibleRequired)
+        {
+            boolean added = false;
+            boolean required = false;
+
+            if (hasOptions)
+            {
+                final boolean transformOptionGroupRequired = this.required && parentGroupRequired;
+
+                for (Group group : groups)
+                {
+                    added = group.addPossible(transformOptionGroupRequired, actualBits, possible, possibleRequired);
+                    required |= added;
+                }
+                boolean hasValues = false;
+                for (int i = 0; i < valueBits.length; i++)
+                {
+                    hasValues |= valueBits[i] != 0;
+                    required |= i < actualBits.length && (valueBits[i] & actualBits[i]) != 0;
+                }
+
+                if (hasValues && (required || transformOptionGroupRequired))
+                {
+                    added = true;
+                    for (int i = 0; i < valueBits.length; i++)
+                    {
+                        possible[i] |= valueBits[i];
+                        possibleRequired[i] = (possibleRequired[i] & ~valueBits[i]) | requiredValueBits[i];
+                    }
+                }
+            }
+
+            return added;
+        }
+    }
+}
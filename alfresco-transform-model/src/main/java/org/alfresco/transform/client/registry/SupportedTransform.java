@@ -30,6 +30,7 @@ import org.alfresco.transform.client.model.config.TransformOptionGroup;
 public class SupportedTransform
 {
     private final TransformOptionGroup transformOptions;
+    private final OptionsMatcher optionsMatcher;
     private final long maxSourceSizeBytes;
     private final String name;
     private final int priority;
@@ -40,6 +41,7 @@ public class SupportedTransform
         // Logically the top level TransformOptionGroup is required, so that child options are optional or required
         // based on their own setting.
         this.transformOptions = new TransformOptionGroup(true, transformOptions);
+        this.optionsMatcher = new OptionsMatcher(this.transformOptions);
         this.maxSourceSizeBytes = maxSourceSizeBytes;
         this.name = name;
         this.priority = priority;
@@ -50,6 +52,11 @@ public class SupportedTransform
         return transformOptions;
     }
 
+    OptionsMatcher getOptionsMatcher()
+    {
+        return optionsMatcher;
+    }
+
     public long getMaxSourceSizeBytes()
     {
         return maxSourceSizeBytes;
@@ -21,21 +21,43 @@
  */
 package org.alfresco.transform.client.registry;
 
+import static java.util.Collections.emptyList;
 import static java.util.Collections.emptyMap;
+import static java.util.Collections.unmodifiableMap;
 
 import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.concurrent.ConcurrentHashMap;
 
+/**
+ * Holds the structures used by {@link AbstractTransformRegistry} to look up what is supported.<p>
+ *
+ * Instances created by a {@link Builder} are immutable snapshots. Their lookup structures are unmodifiable, compact
+ * maps and lists with shared mimetype Strings, so they may be read by any number of threads without locking and be
+ * replaced as a whole when the configuration changes. Instances created with the public constructor are filled in
+ * place by {@link #appendTransform}, and should not be read by other threads until they are complete.
+ */
 public class TransformCache
 {
+    // The number of lists held in cachedSupportedTransformListByOptions before it is cleared.
+    private static final int MAX_CACHED_BY_OPTIONS = 10_000;
+
     // Looks up supported transform routes given source to target media types.
-    private final Map<String, Map<String, List<SupportedTransform>>> transforms =
-        new ConcurrentHashMap<>();
+    private final Map<String, Map<String, List<SupportedTransform>>> transforms;
+
+    // Snapshots also look up supported transform routes in an open addressed table, keyed on the ids of the source and
+    // target media types, so that a lookup does not need to hash the mimetypes a second time or allocate anything.
+    private final MimetypeIds mimetypeIds;
+    private final long[] lookupKeys;
+    private final List<SupportedTransform>[] lookupValues;
 
     // Looks up coreVersion given the transformer name
-    private final Map<String, String> coreVersions = new ConcurrentHashMap<>();
+    private final Map<String, String> coreVersions;
 
     // Caches results in the ACS repository implementations which repeatedly make the same request.
     // Looks up a sorted list of transform routes, for a rendition (if the name is supplied) and the source
@@ -44,24 +66,123 @@ public class TransformCache
     private final Map<String, Map<String, List<SupportedTransform>>> cachedSupportedTransformList =
         new ConcurrentHashMap<>();
 
+    // Caches results for requests without a rendition name, such as those made to T-Engines. Looks up an unmodifiable
+    // sorted list of transform routes, using the source and target media types and the names of the transform options
+    // (their values are not used to select routes). Cleared when transforms are added or it becomes too large.
+    private final Map<String, List<SupportedTransform>> cachedSupportedTransformListByOptions =
+        new ConcurrentHashMap<>();
+
+    // Set if this is an immutable snapshot created by a Builder.
+    private final boolean snapshot;
+
     protected int transformerCount = 0;
     protected int transformCount = 0;
 
-    public void incrementTransformerCount()
+    public TransformCache()
+    {
+        transforms = new ConcurrentHashMap<>();
+        coreVersions = new ConcurrentHashMap<>();
+        mimetypeIds = null;
+        lookupKeys = null;
+        lookupValues = null;
+        snapshot = false;
+    }
+
+    @SuppressWarnings("unchecked")
+    protected TransformCache(Builder builder)
     {
+        mimetypeIds = new MimetypeIds(builder.mimetypes.keySet());
+
+        // A power of two, so that a mask may be used rather than a modulus, that is at least twice the number of
+        // entries, so that probe sequences are short.
+        final int entryCount = builder.transforms.values().stream().mapToInt(Map::size).sum();
+        final int capacity = Integer.highestOneBit(Math.max(entryCount, 1) * 2 - 1) << 1;
+        lookupKeys = new long[capacity];
+        lookupValues = new List[capacity];
+
+        final Map<String, Map<String, List<SupportedTransform>>> transforms = new HashMap<>();
+        builder.transforms.forEach((sourceMimetype, targetMap) ->
+        {
+            final Map<String, List<SupportedTransform>> copyOfTargetMap = new HashMap<>();
+            targetMap.forEach((targetMimetype, transformList) ->
+            {
+                final List<SupportedTransform> copyOfTransformList = List.copyOf(transformList);
+                copyOfTargetMap.put(targetMimetype, copyOfTransformList);
+                if (sourceMimetype != null && targetMimetype != null)
+                {
+                    final long key = MimetypeIds.key(mimetypeIds.getId(sourceMimetype),
+                        mimetypeIds.getId(targetMimetype));
+                    int i = indexOf(key);
+                    while (lookupValues[i] != null)
+                    {
+                        i = (i + 1) & (lookupKeys.length - 1);
+                    }
+                    lookupKeys[i] = key;
+                    lookupValues[i] = copyOfTransformList;
+                }
+            });
+            transforms.put(sourceMimetype, unmodifiableMap(copyOfTargetMap));
+        });
+        this.transforms = unmodifiableMap(transforms);
+        this.coreVersions = unmodifiableMap(new HashMap<>(builder.coreVersions));
+        this.transformerCount = builder.transformerCount;
+        this.transformCount = builder.transformCount;
+        this.snapshot = true;
+    }
+
+    /**
+     * @return a Builder of an immutable TransformCache.
+     */
+    public static Builder builder()
+    {
+        return new Builder();
+    }
+
+    /**
+     * @return a Builder that already holds the transforms of this TransformCache, so that a new snapshot may be built
+     *         with more transforms added.
+     */
+    public synchronized Builder toBuilder()
+    {
+        final Builder builder = new Builder();
+        transforms.forEach((sourceMimetype, targetMap) ->
+            targetMap.forEach((targetMimetype, transformList) ->
+                builder.transforms
+                    .computeIfAbsent(builder.intern(sourceMimetype), k -> new HashMap<>())
+                    .computeIfAbsent(builder.intern(targetMimetype), k -> new ArrayList<>())
+                    .addAll(transformList)));
+        builder.coreVersions.putAll(coreVersions);
+        builder.transformerCount = transformerCount;
+        builder.transformCount = transformCount;
+        return builder;
+    }
+
+    public synchronized void incrementTransformerCount()
+    {
+        checkNotSnapshot();
         transformerCount++;
     }
 
-    public void appendTransform(final String sourceMimetype,
+    public synchronized void appendTransform(final String sourceMimetype,
                                 final String targetMimetype, final SupportedTransform transform,
                                 String transformerName, String coreVersion)
     {
+        checkNotSnapshot();
         transforms
             .computeIfAbsent(sourceMimetype, k -> new ConcurrentHashMap<>())
             .computeIfAbsent(targetMimetype, k -> new ArrayList<>())
             .add(transform);
         coreVersions.put(transformerName, coreVersion == null ? "" : coreVersion);
         transformCount++;
+        cachedSupportedTransformListByOptions.clear();
+    }
+
+    private void checkNotSnapshot()
+    {
+        if (snapshot)
+        {
+            throw new UnsupportedOperationException("Transforms may not be added to a TransformCache snapshot");
+        }
     }
 
     public Map<String, List<SupportedTransform>> retrieveTransforms(final String sourceMimetype)
@@ -69,6 +190,48 @@ public class TransformCache
         return transforms.getOrDefault(sourceMimetype, emptyMap());
     }
 
+    /**
+     * @return the supported transform routes from the source to the target media type, in the order they were
+     *         registered. An empty list if there are none.
+     */
+    public List<SupportedTransform> retrieveTransforms(final String sourceMimetype, final String targetMimetype)
+    {
+        if (mimetypeIds == null)
+        {
+            return retrieveTransforms(sourceMimetype).getOrDefault(targetMimetype, emptyList());
+        }
+        final int sourceId = mimetypeIds.getId(sourceMimetype);
+        final int targetId = mimetypeIds.getId(targetMimetype);
+        if (sourceId == MimetypeIds.UNKNOWN || targetId == MimetypeIds.UNKNOWN)
+        {
+            return emptyList();
+        }
+        final long key = MimetypeIds.key(sourceId, targetId);
+        for (int i = indexOf(key); lookupValues[i] != null; i = (i + 1) & (lookupKeys.length - 1))
+        {
+            if (lookupKeys[i] == key)
+            {
+                return lookupValues[i];
+            }
+        }
+        return emptyList();
+    }
+
+    private int indexOf(long key)
+    {
+        // Spreads the bits of both ids across the index.
+        final long hash = key * 0x9E3779B97F4A7C15L;
+        return (int) (hash ^ (hash >>> 32)) & (lookupKeys.length - 1);
+    }
+
+    /**
+     * @return the ids of the media types known to this snapshot, or {@code null} if this is not a snapshot.
+     */
+    public MimetypeIds getMimetypeIds()
+    {
+        return mimetypeIds;
+    }
+
     public Map<String, Map<String, List<SupportedTransform>>> getTransforms()
     {
         return transforms;
@@ -90,6 +253,44 @@ public class TransformCache
             .get(sourceMimetype);
     }
 
+    /**
+     * @return an unmodifiable copy of the supplied list, which is the one that has been cached.
+     */
+    public List<SupportedTransform> cache(final String sourceMimetype, final String targetMimetype,
+        final Set<String> optionNames, final List<SupportedTransform> transformListBySize)
+    {
+        if (cachedSupportedTransformListByOptions.size() >= MAX_CACHED_BY_OPTIONS)
+        {
+            cachedSupportedTransformListByOptions.clear();
+        }
+        final List<SupportedTransform> cachedTransformList = List.copyOf(transformListBySize);
+        cachedSupportedTransformListByOptions.put(getKey(sourceMimetype, targetMimetype, optionNames),
+            cachedTransformList);
+        return cachedTransformList;
+    }
+
+    public List<SupportedTransform> retrieveCached(final String sourceMimetype, final String targetMimetype,
+        final Set<String> optionNames)
+    {
+        return cachedSupportedTransformListByOptions.get(getKey(sourceMimetype, targetMimetype, optionNames));
+    }
+
+    private static String getKey(final String sourceMimetype, final String targetMimetype,
+        final Set<String> optionNames)
+    {
+        final StringBuilder key = new StringBuilder(sourceMimetype).append('\n').append(targetMimetype);
+        if (!optionNames.isEmpty())
+        {
+            final String[] names = optionNames.toArray(new String[0]);
+            Arrays.sort(names);
+            for (String name : names)
+            {
+                key.append('\n').append(name);
+            }
+        }
+        return key.toString();
+    }
+
     @Override
     public String toString()
     {
@@ -103,5 +304,54 @@ public class TransformCache
         String coreVersion = coreVersions.get(transformerName);
         return coreVersion.isBlank() ? null : coreVersion;
     }
-}
 
+    /**
+     * Collects the transforms of a new {@link TransformCache} snapshot. Not thread safe, as transforms are registered
+     * by a single thread.
+     */
+    public static class Builder
+    {
+        private final Map<String, Map<String, List<SupportedTransform>>> transforms = new HashMap<>();
+        private final Map<String, String> coreVersions = new HashMap<>();
+
+        // Used so that each mimetype is only held once, even though it is used as a source and as a target. The order
+        // in which they were first seen is used to assign ids.
+        private final Map<String, String> mimetypes = new LinkedHashMap<>();
+
+        private int transformerCount = 0;
+        private int transformCount = 0;
+
+        protected Builder()
+        {
+        }
+
+        public Builder incrementTransformerCount()
+        {
+            transformerCount++;
+            return this;
+        }
+
+        public Builder appendTransform(final String sourceMimetype,
+                                       final String targetMimetype, final SupportedTransform transform,
+                                       String transformerName, String coreVersion)
+        {
+            transforms
+                .computeIfAbsent(intern(sourceMimetype), k -> new HashMap<>())
+                .computeIfAbsent(intern(targetMimetype), k -> new ArrayList<>())
+                .add(transform);
+            coreVersions.put(transformerName, coreVersion == null ? "" : coreVersion);
+            transformCount++;
+            return this;
+        }
+
+        private String intern(String mimetype)
+        {
+            return mimetype == null ? null : mimetypes.computeIfAbsent(mimetype, k -> k);
+        }
+
+        public TransformCache build()
+        {
+            return new TransformCache(this);
+        }
+    }
+}
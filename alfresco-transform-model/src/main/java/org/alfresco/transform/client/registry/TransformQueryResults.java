@@ -0,0 +1,91 @@
+/*
+ * #%L
+ * Alfresco Transform Model
+ * %%
+ * Copyright (C) 2005 - 2022 Alfresco Software Limited
+ * %%
+ * This program is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as
+ * published by the Free Software Foundation, either version 3 of the
+ * License, or (at your option) any later version.
+ *
+ * This program is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU General Lesser Public License for more details.
+ *
+ * You should have received a copy of the GNU General Lesser Public
+ * License along with this program.  If not, see
+ * <http://www.gnu.org/licenses/lgpl-3.0.html>.
+ * #L%
+ */
+package org.alfresco.transform.client.registry;
+
+/**
+ * The answers to a list of {@link TransformQuery} objects passed to {@link TransformServiceRegistry#query}, held in
+ * arrays with the same order as the queries.
+ */
+public class TransformQueryResults
+{
+    private final long[] maxSizes;
+    private final String[] transformerNames;
+    private final boolean[] supported;
+
+    public TransformQueryResults(long[] maxSizes, String[] transformerNames, boolean[] supported)
+    {
+        this.maxSizes = maxSizes;
+        this.transformerNames = transformerNames;
+        this.supported = supported;
+    }
+
+    public int size()
+    {
+        return maxSizes.length;
+    }
+
+    /**
+     * @return the maximum size (in bytes) of the source content that can be transformed, for each query. If {@code -1}
+     * there is no limit, but if {@code 0} the transform is not supported. The array must not be modified.
+     */
+    public long[] getMaxSizes()
+    {
+        return maxSizes;
+    }
+
+    /**
+     * @return the name of the transformer that would be used for each query, or {@code null} if not set or there is
+     * no supported transformer for the query's source size. The array must not be modified.
+     */
+    public String[] getTransformerNames()
+    {
+        return transformerNames;
+    }
+
+    /**
+     * @param i the index of the query.
+     * @return the result of {@link TransformServiceRegistry#findMaxSize} for the query.
+     */
+    public long getMaxSize(int i)
+    {
+        return maxSizes[i];
+    }
+
+    /**
+     * @param i the index of the query.
+     * @return the result of {@link TransformServiceRegistry#findTransformerName} for the query.
+     */
+    public String getTransformerName(int i)
+    {
+        return transformerNames[i];
+    }
+
+    /**
+     * @param i the index of the query.
+     * @return the result of {@link TransformServiceRegistry#isSupported(String, long, String, java.util.Map, String)}
+     * for the query.
+     */
+    public boolean isSupported(int i)
+    {
+        return supported[i];
+    }
+}
@@ -21,14 +21,12 @@
  */
 package org.alfresco.transform.client.registry;
 
-import static java.util.Collections.emptyList;
 import static java.util.Collections.emptyMap;
 import static java.util.Collections.emptySet;
 import static java.util.Map.Entry;
 import static java.util.stream.Collectors.toMap;
 
 import java.util.ArrayList;
-import java.util.HashMap;
 import java.util.HashSet;
 import java.util.List;
 import java.util.Map;
@@ -86,9 +84,14 @@ class TransformRegistryHelper
             transformerName = null;
         }
 
+        // Without a rendition name, the list is cached using the names of the options, as their values are not used.
+        // Null mimetypes are not cached, so that buildTransformList reports the error.
+        final Map<String, String> options = filterTimeout(actualOptions);
+        final boolean cacheByOptions = transformerName == null && sourceMimetype != null && targetMimetype != null;
         final List<SupportedTransform> cachedTransformList =
-            transformerName == null ? null :
-            data.retrieveCached(transformerName, sourceMimetype);
+            transformerName != null ? data.retrieveCached(transformerName, sourceMimetype) :
+            cacheByOptions ? data.retrieveCached(sourceMimetype, targetMimetype, options.keySet()) :
+            null;
         if (cachedTransformList != null)
         {
             return cachedTransformList;
@@ -97,12 +100,16 @@ class TransformRegistryHelper
         final List<SupportedTransform> builtTransformList = buildTransformList(data,
             sourceMimetype,
             targetMimetype,
-            filterTimeout(actualOptions));
+            options);
 
         if (transformerName != null)
         {
             data.cache(transformerName, sourceMimetype, builtTransformList);
         }
+        else if (cacheByOptions)
+        {
+            return data.cache(sourceMimetype, targetMimetype, options.keySet(), builtTransformList);
+        }
 
         return builtTransformList;
     }
@@ -122,20 +129,17 @@ class TransformRegistryHelper
           throw new TransformException(400, "Null value provided for tragetMimetype, please provide a value");
         }
 
-        final Map<String, List<SupportedTransform>> targetMap = data.retrieveTransforms(
-            sourceMimetype);
-
-        final List<SupportedTransform> supportedTransformList = targetMap.getOrDefault(
-            targetMimetype, emptyList());
+        final List<SupportedTransform> supportedTransformList = data.retrieveTransforms(
+            sourceMimetype, targetMimetype);
 
         final List<SupportedTransform> transformListBySize = new ArrayList<>();
 
+        // The option names are converted into a bitset once, rather than gathering the possible options of each
+        // candidate into a map.
+        final long[] actualOptionBits = OptionsMatcher.toBits(actualOptions.keySet());
         for (SupportedTransform supportedTransform : supportedTransformList)
         {
-            final Map<String, Boolean> possibleTransformOptions = gatherPossibleTransformOptions(
-                supportedTransform.getTransformOptions(), actualOptions);
-
-            if (optionsMatch(possibleTransformOptions, actualOptions))
+            if (supportedTransform.getOptionsMatcher().matches(actualOptionBits))
             {
                 addToSupportedTransformList(transformListBySize, supportedTransform);
             }
@@ -251,15 +255,6 @@ class TransformRegistryHelper
         }
     }
 
-    private static Map<String, Boolean> gatherPossibleTransformOptions(
-        final TransformOptionGroup transformOptionGroup, final Map<String, String> actualOptions)
-    {
-        final Map<String, Boolean> possibleTransformOptions = new HashMap<>();
-        addToPossibleTransformOptions(possibleTransformOptions, transformOptionGroup, true,
-            actualOptions);
-        return possibleTransformOptions;
-    }
-
     /**
      * Flatten out the transform options by adding them to the supplied possibleTransformOptions.</p>
      *
@@ -23,6 +23,7 @@ package org.alfresco.transform.client.registry;
 
 import org.alfresco.transform.client.model.config.CoreFunction;
 
+import java.util.List;
 import java.util.Map;
 
 /**
@@ -87,6 +88,35 @@ public interface TransformServiceRegistry
     String findTransformerName(String sourceMimetype, long sourceSizeInBytes, String targetMimetype,
         Map<String, String> actualOptions, String renditionName);
 
+    /**
+     * Answers a batch of questions about the transforms that are supported, which would otherwise require a call to
+     * {@link #findMaxSize} and {@link #findTransformerName} for each of them. Implementations may evaluate all the
+     * queries against the same version of the registry's data.
+     *
+     * @param queries  the source and target mimetypes, options and rendition names to be checked.
+     * @param parallel if {@code true} the queries may be evaluated in parallel. Only worth doing for large batches.
+     * @return the max sizes and transformer names, in the same order as the {@code queries}.
+     */
+    default TransformQueryResults query(List<TransformQuery> queries, boolean parallel)
+    {
+        final int size = queries.size();
+        final long[] maxSizes = new long[size];
+        final String[] transformerNames = new String[size];
+        final boolean[] supported = new boolean[size];
+        for (int i = 0; i < size; i++)
+        {
+            final TransformQuery query = queries.get(i);
+            final long maxSize = findMaxSize(query.getSourceMimetype(), query.getTargetMimetype(),
+                query.getActualOptions(), query.getRenditionName());
+            maxSizes[i] = maxSize;
+            supported[i] = maxSize != 0 && (maxSize == -1L || maxSize >= query.getSourceSizeInBytes());
+            transformerNames[i] = maxSize == 0 ? null : findTransformerName(query.getSourceMimetype(),
+                query.getSourceSizeInBytes(), query.getTargetMimetype(), query.getActualOptions(),
+                query.getRenditionName());
+        }
+        return new TransformQueryResults(maxSizes, transformerNames, supported);
+    }
+
     /**
      * Returns {@code true} if the {@code function} is supported by the named transformer. Not all transformers are
      * able to support all functionality, as newer features may have been introduced into the core t-engine code since
@@ -70,6 +70,8 @@ public interface RequestParamMap
 
     // Endpoints
     String ENDPOINT_TRANSFORM = "/transform";
+    String ENDPOINT_TRANSFORM_ASYNC = "/transform/async";
+    String ENDPOINT_TRANSFORM_BATCH = "/transform/batch";
     String ENDPOINT_TRANSFORM_CONFIG = "/transform/config";
     String ENDPOINT_TRANSFORM_CONFIG_LATEST = ENDPOINT_TRANSFORM_CONFIG + "?" + CONFIG_VERSION + "=" + CONFIG_VERSION_LATEST;
     String ENDPOINT_TRANSFORM_LOG = "/log";
@@ -22,8 +22,8 @@
 package org.alfresco.transform.router;
 
 import org.alfresco.transform.client.model.InternalContext;
+import org.alfresco.transform.client.model.MultiStep;
 import org.alfresco.transform.client.model.TransformReply;
-import org.apache.commons.lang3.StringUtils;
 
 import java.util.ArrayList;
 import java.util.HashMap;
@@ -62,7 +62,11 @@ import java.util.StringJoiner;
  * @{code<transformerName>|<sourceMimetype>|<targetMimetype> . All fields are separated by a @code{'\u23D0'} character.
  * The last step in the sequence is the current transform being performed. The top level transform is a pipeline of
  * one step. Although the source and target mimetypes are always the same for failover transforms, they use the same
- * structure.
+ * structure.<p><br/>
+ *
+ * To avoid splitting and rebuilding these Strings on every call, the levels are parsed into {@link ParsedLevels} which
+ * are held by the {@link MultiStep}. Changes to the current level are only written back to the String form when
+ * {@link MultiStep#getTransformsToBeDone()} is next called, such as when the message is serialized.
  */
 public class TransformStack
 {
@@ -124,26 +128,166 @@ public class TransformStack
 
     public static class Step
     {
-        private final String[] step;
+        private final String transformerName;
+        private final String sourceMediaType;
+        private final String targetMediaType;
 
-        private Step(String stepWithSeparatedFields)
+        private Step(String transformerName, String sourceMediaType, String targetMediaType)
         {
-            this.step = stepWithSeparatedFields.split(SEPARATOR_REGEX);
+            this.transformerName = transformerName;
+            this.sourceMediaType = sourceMediaType;
+            this.targetMediaType = targetMediaType;
         }
 
         public String getTransformerName()
         {
-            return step[0];
+            return transformerName;
         }
 
         public String getSourceMediaType()
         {
-            return step[1];
+            return sourceMediaType;
         }
 
         public String getTargetMediaType()
         {
-            return step[2];
+            return targetMediaType;
+        }
+    }
+
+    /**
+     * The levels of a {@link MultiStep#getTransformsToBeDone()} list, each split into its fields the first time it is
+     * used. Levels are added and removed from both the parsed and String forms straight away, but changes to the
+     * header fields and steps of a level are only written back by {@link #flush()}.
+     */
+    public static final class ParsedLevels
+    {
+        private final List<String> transformsToBeDone;
+        private final List<Level> levels = new ArrayList<>(); // levels.get(0) is transformsToBeDone[TOP_STACK_LEVEL]
+
+        private ParsedLevels(List<String> transformsToBeDone)
+        {
+            this.transformsToBeDone = transformsToBeDone;
+            for (int i = TOP_STACK_LEVEL; i < transformsToBeDone.size(); i++)
+            {
+                levels.add(null);
+            }
+        }
+
+        private int size()
+        {
+            return transformsToBeDone.size();
+        }
+
+        private Level get(int i)
+        {
+            Level level = levels.get(i - TOP_STACK_LEVEL);
+            if (level == null)
+            {
+                String encoded = transformsToBeDone.get(i);
+                if (encoded == null)
+                {
+                    return null;
+                }
+                level = new Level(encoded);
+                levels.set(i - TOP_STACK_LEVEL, level);
+            }
+            return level;
+        }
+
+        private Level getLast()
+        {
+            return get(size() - 1);
+        }
+
+        private void add(String encoded)
+        {
+            if (transformsToBeDone.size() >= TOP_STACK_LEVEL)
+            {
+                levels.add(null);
+            }
+            transformsToBeDone.add(encoded);
+        }
+
+        private void removeLast()
+        {
+            int i = transformsToBeDone.size() - 1;
+            transformsToBeDone.remove(i);
+            if (i >= TOP_STACK_LEVEL)
+            {
+                levels.remove(i - TOP_STACK_LEVEL);
+            }
+        }
+
+        /**
+         * Writes the levels that have changed back to the {@link MultiStep#getTransformsToBeDone()} list.
+         */
+        public void flush()
+        {
+            for (int i = 0; i < levels.size(); i++)
+            {
+                Level level = levels.get(i);
+                if (level != null && level.changed)
+                {
+                    transformsToBeDone.set(i + TOP_STACK_LEVEL, level.encode());
+                    level.changed = false;
+                }
+            }
+        }
+    }
+
+    private static final class Level
+    {
+        private final String[] fields;
+        private int fieldCount;
+        private boolean changed;
+
+        private Level(String encoded)
+        {
+            fields = encoded.split(SEPARATOR_REGEX, -1);
+            fieldCount = fields.length;
+        }
+
+        private Long getHeaderField(int index)
+        {
+            return Long.valueOf(fields[index]);
+        }
+
+        private void setHeaderField(int index, long value)
+        {
+            fields[index] = Long.toString(value);
+            changed = true;
+        }
+
+        private boolean isFailover()
+        {
+            return fields[FLAG_INDEX].startsWith(FAILOVER_FLAG);
+        }
+
+        private int getStepCount()
+        {
+            return (fieldCount - FIELDS_IN_HEADER) / FIELDS_PER_STEP;
+        }
+
+        private Step currentStep()
+        {
+            return new Step(fields[fieldCount - 3], fields[fieldCount - 2], fields[fieldCount - 1]);
+        }
+
+        private void removeSteps(boolean allSteps)
+        {
+            fieldCount = allSteps ? FIELDS_IN_HEADER : fieldCount - FIELDS_PER_STEP;
+            changed = true;
+        }
+
+        private String encode()
+        {
+            StringJoiner stringJoiner = new StringJoiner(SEPARATOR);
+            for (int i = 0; i < fieldCount; i++)
+            {
+                stringJoiner.add(fields[i]);
+            }
+            return stringJoiner.toString();
         }
     }
 
@@ -153,13 +297,13 @@ public class TransformStack
         init(internalContext);
         StringJoiner sj = new StringJoiner(SEPARATOR);
         transformRequestOptions.forEach((key,value)-> sj.add(key).add(value));
-        levels(internalContext).set(OPTIONS_LEVEL, sj.toString());
+        rawLevels(internalContext).set(OPTIONS_LEVEL, sj.toString());
     }
 
     public static void setInitialSourceReference(InternalContext internalContext, String sourceReference)
     {
         init(internalContext);
-        levels(internalContext).set(SOURCE_REFERENCE_LEVEL, sourceReference);
+        rawLevels(internalContext).set(SOURCE_REFERENCE_LEVEL, sourceReference);
     }
 
     public static Map<String, String> getInitialTransformRequestOptions(InternalContext internalContext)
@@ -184,32 +328,47 @@ public class TransformStack
         return level(internalContext, SOURCE_REFERENCE_LEVEL);
     }
 
-    private static List<String> levels(InternalContext internalContext)
+    private static ParsedLevels levels(InternalContext internalContext)
     {
-        return internalContext.getMultiStep().getTransformsToBeDone();
+        MultiStep multiStep = internalContext.getMultiStep();
+        ParsedLevels levels = multiStep.getParsedLevels();
+        if (levels == null)
+        {
+            levels = new ParsedLevels(multiStep.getTransformsToBeDone());
+            multiStep.setParsedLevels(levels);
+        }
+        return levels;
+    }
+
+    // The String form of the levels, which may be used to access the levels below TOP_STACK_LEVEL, as they are not
+    // parsed, or after a flush.
+    private static List<String> rawLevels(InternalContext internalContext)
+    {
+        return levels(internalContext).transformsToBeDone;
     }
 
     private static String level(InternalContext internalContext, int i)
     {
-        return levels(internalContext).get(i);
+        return rawLevels(internalContext).get(i);
     }
 
     private static void init(InternalContext internalContext)
     {
-        while(levels(internalContext).size() < TOP_STACK_LEVEL)
+        ParsedLevels levels = levels(internalContext);
+        while(levels.size() < TOP_STACK_LEVEL)
         {
-            levels(internalContext).add(null);
+            levels.add(null);
         }
     }
 
-    private static String currentLevel(InternalContext internalContext)
+    private static Level currentLevel(InternalContext internalContext)
     {
         return parentLevel(internalContext, 0);
     }
 
-    private static String parentLevel(InternalContext internalContext, int parentLevels)
+    private static Level parentLevel(InternalContext internalContext, int parentLevels)
     {
-        List<String> levels = levels(internalContext);
+        ParsedLevels levels = levels(internalContext);
         int i = levels.size() - 1 - parentLevels;
         return i >= TOP_STACK_LEVEL ? levels.get(i) : null;
     }
@@ -256,21 +415,16 @@ public class TransformStack
 
     private static void setHeaderField(InternalContext internalContext, int index, long value)
     {
-        List<String> levels = levels(internalContext);
-        int size = levels.size();
-        String level = levels.get(size-1);
-        int j = indexOfField(level, index);
-        int k = level.indexOf(SEPARATOR, j+1);
-        levels.set(size-1, level.substring(0, j) + value + level.substring(k));
+        levels(internalContext).getLast().setHeaderField(index, value);
     }
 
     public static String getReference(InternalContext internalContext)
     {
         StringJoiner ref = new StringJoiner(".");
-        List<String> levels = levels(internalContext);
+        ParsedLevels levels = levels(internalContext);
         for (int i=TOP_STACK_LEVEL; i<levels.size(); i++)
         {
-            ref.add(getHeaderField(levels.get(i), REFERENCE_INDEX).toString());
+            ref.add(levels.get(i).getHeaderField(REFERENCE_INDEX).toString());
         }
         return ref.toString();
     }
@@ -302,23 +456,17 @@ public class TransformStack
 
     private static Long getHeaderField(InternalContext internalContext, int index)
     {
-        return getHeaderField(currentLevel(internalContext), index);
-    }
-
-    private static Long getHeaderField(String level, int index)
-    {
-        return Long.valueOf(level.split(SEPARATOR_REGEX)[index]);
+        return currentLevel(internalContext).getHeaderField(index);
     }
 
     public static void removeTransformLevel(InternalContext internalContext)
     {
-        List<String> levels = levels(internalContext);
-        levels.remove(levels.size()-1);
+        levels(internalContext).removeLast();
     }
 
     public static void removeRemainingTransformLevels(TransformReply reply, TransformerDebug transformerDebug)
     {
-        List<String> levels = levels(reply.getInternalContext());
+        List<String> levels = reply.getInternalContext().getMultiStep().getTransformsToBeDone();
         if (levels != null)
         {
             while (!TransformStack.isFinished(reply.getInternalContext()))
@@ -330,20 +478,19 @@ public class TransformStack
 
     public static boolean isParentAFailover(InternalContext internalContext)
     {
-        String level = currentLevel(internalContext);
-        return level != null && level.startsWith(FAILOVER_FLAG);
+        Level level = currentLevel(internalContext);
+        return level != null && level.isFailover();
     }
 
     public static String getParentName(InternalContext internalContext)
     {
-        String level = parentLevel(internalContext, 1);
-        return level == null ? null : new Step(level.substring(indexOfNextStep(level))).getTransformerName();
+        Level level = parentLevel(internalContext, 1);
+        return level == null ? null : level.currentStep().getTransformerName();
     }
 
     public static Step currentStep(InternalContext internalContext)
     {
-        String level = currentLevel(internalContext);
-        return new Step(level.substring(indexOfNextStep(level)));
+        return currentLevel(internalContext).currentStep();
     }
 
     public static boolean isLastStepInTransformLevel(InternalContext internalContext)
@@ -358,7 +505,7 @@ public class TransformStack
 
     private static int getStepCount(InternalContext internalContext)
     {
-        return (StringUtils.countMatches(currentLevel(internalContext), SEPARATOR)+1-FIELDS_IN_HEADER)/FIELDS_PER_STEP;
+        return currentLevel(internalContext).getStepCount();
     }
 
     public static void removeSuccessfulStep(TransformReply reply, TransformerDebug transformerDebug)
@@ -400,11 +547,7 @@ public class TransformStack
 
         // For a successful failover step, or an unsuccessful pipeline step remove all sibling steps, otherwise just
         // remove one step as it was a successful pipeline step or an unsuccessful failover step
-        List<String> levels = levels(internalContext);
-        int size = levels.size();
-        String level = levels.get(size-1);
-        levels.set(size-1, level.substring(0,
-                (successfulFailoverStep || unsuccessfulPipelineStep ? indexOfLastStep(level) : indexOfNextStep(level)) - 1));
+        levels(internalContext).getLast().removeSteps(successfulFailoverStep || unsuccessfulPipelineStep);
 
         if (!isTransformLevelFinished(internalContext))
         {
@@ -412,41 +555,18 @@ public class TransformStack
         }
     }
 
-    private static int indexOfNextStep(String level)
-    {
-        int j = level.length()-1;
-        for (int i = FIELDS_PER_STEP; i >= 1 && j > 0; i--)
-        {
-            j = level.lastIndexOf(SEPARATOR, j-1);
-        }
-        return j+1;
-    }
-
-    private static int indexOfLastStep(String level)
-    {
-        return indexOfField(level, FIELDS_IN_HEADER);
-    }
-
-    private static int indexOfField(String level, int n)
-    {
-        int j = 0;
-        for (int i = n; i >= 1; i--)
-        {
-            j = level.indexOf(SEPARATOR, j+1);
-        }
-        return j+1;
-    }
-
     public static String checkStructure(InternalContext internalContext, String type)
     {
         // A null value will have been replaced with an empty array, so no need to check for that.
-        String errorMessage = levels(internalContext).size() < (TOP_STACK_LEVEL + 1)
+        levels(internalContext).flush();
+        List<String> levels = rawLevels(internalContext);
+        String errorMessage = levels.size() < (TOP_STACK_LEVEL + 1)
                 ? type+" InternalContext did not have the Stack set"
                 : !validTransformOptions(internalContext)
                 ? type+" InternalContext did not have the TransformOptions set correctly"
-                : levels(internalContext).size() == 1
+                : levels.size() == 1
                 ? type+" InternalContext levels were not set"
-                : !validLevels(levels(internalContext))
+                : !validLevels(levels)
                 ? type+" InternalContext did not have levels set correctly"
                 : null;
         return errorMessage;
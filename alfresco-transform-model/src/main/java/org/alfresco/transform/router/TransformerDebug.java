@@ -78,10 +78,15 @@ public class TransformerDebug
     }
 
     public void pushTransform(String reference, String sourceMimetype, String targetMimetype, File sourceFile, String transformerName)
+    {
+        pushTransform(reference, sourceMimetype, targetMimetype, sourceFile.length(), transformerName);
+    }
+
+    public void pushTransform(String reference, String sourceMimetype, String targetMimetype, long sourceSizeInBytes,
+                              String transformerName)
     {
         if (logger.isDebugEnabled())
         {
-            final long sourceSizeInBytes = sourceFile.length();
             String message = getPaddedReference(reference) +
                     getMimetypeExt(sourceMimetype) +
                     getTargetMimetypeExt(targetMimetype, sourceMimetype) + ' ' +
@@ -30,6 +30,7 @@ import org.alfresco.transform.client.model.config.TransformStep;
 import org.alfresco.transform.client.model.config.Transformer;
 import org.junit.Test;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Set;
 
@@ -623,6 +624,41 @@ public class CombinedTransformConfigTest
         assertEquals(0, registry.errorMessages.size());
     }
 
+    @Test
+    public void testSortLongChainOfForwardRefs()
+    {
+        // Each failover transformer references the next, so walking the list would only add one per walk
+        int length = 200;
+        List<Transformer> transformerList = new ArrayList<>();
+        for (int i = 0; i < length; i++)
+        {
+            transformerList.add(Transformer.builder().withTransformerName("f" + i)
+                    .withTransformerFailover(i + 1 < length ? List.of("f" + (i + 1)) : List.of("2", "3"))
+                    .build());
+        }
+        transformerList.add(TRANSFORMER2_B2C);
+        transformerList.add(TRANSFORMER3_C2D);
+        final TransformConfig transformConfig = TransformConfig.builder()
+                .withTransformers(transformerList)
+                .build();
+
+        config.addTransformConfig(transformConfig, READ_FROM_B, BASE_URL_B, registry);
+        config.combineTransformerConfig(registry);
+
+        List<Transformer> transformers = config.buildTransformConfig().getTransformers();
+        assertEquals(length + 2, transformers.size());
+        assertEquals("2", transformers.get(0).getTransformerName());
+        assertEquals("3", transformers.get(1).getTransformerName());
+        for (int i = 0; i < length; i++)
+        {
+            assertEquals("f" + (length - 1 - i), transformers.get(i + 2).getTransformerName());
+        }
+        assertEquals(2, transformers.get(length + 1).getSupportedSourceAndTargetList().size());
+
+        assertEquals(0, registry.warnMessages.size());
+        assertEquals(0, registry.errorMessages.size());
+    }
+
     @Test
     public void testInvalidTransformStepNullIntermediateMimetype()
     {
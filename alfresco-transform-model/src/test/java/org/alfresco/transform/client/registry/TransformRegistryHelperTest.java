@@ -26,15 +26,22 @@
  */
 package org.alfresco.transform.client.registry;
 
+import org.alfresco.transform.client.model.config.TransformOptionValue;
 import org.alfresco.transform.exceptions.TransformException;
 import org.junit.Test;
 
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 
 import static java.util.Arrays.asList;
 import static java.util.Collections.emptySet;
+import static org.alfresco.transform.client.model.Mimetype.MIMETYPE_IMAGE_JPEG;
+import static org.alfresco.transform.client.model.Mimetype.MIMETYPE_IMAGE_PNG;
+import static org.alfresco.transform.client.model.Mimetype.MIMETYPE_PDF;
 import static org.alfresco.transform.client.registry.TransformRegistryHelper.retrieveTransformListBySize;
 import static org.junit.Assert.assertEquals;
+import static org.junit.Assert.assertSame;
 import static org.junit.Assert.fail;
 
 public class TransformRegistryHelperTest
@@ -159,6 +166,63 @@ public class TransformRegistryHelperTest
                 supportedTransforms.get(supportedTransforms.size() - 1).getMaxSourceSizeBytes();
     }
 
+    @Test
+    public void testListCachedByOptionNames()
+    {
+        TransformCache data = new TransformCache();
+        SupportedTransform resize = new SupportedTransform("resize",
+            Set.of(new TransformOptionValue(false, "width"), new TransformOptionValue(false, "height")), -1, 50);
+        SupportedTransform plain = new SupportedTransform("plain", emptySet(), -1, 50);
+        data.appendTransform("image/png", "image/jpeg", resize, "resize", null);
+        data.appendTransform("image/png", "image/jpeg", plain, "plain", null);
+
+        List<SupportedTransform> list = retrieveTransformListBySize(data, "image/png", "image/jpeg",
+            Map.of("width", "100", "height", "50"), null);
+        assertEquals(List.of(resize), list);
+
+        // Only the names of the options (other than the timeout) are used to select transforms
+        assertSame(list, retrieveTransformListBySize(data, "image/png", "image/jpeg",
+            Map.of("height", "10", "width", "20", "timeout", "1000"), null));
+        assertEquals(List.of(plain), retrieveTransformListBySize(data, "image/png", "image/jpeg", null, null));
+        assertEquals(List.of(), retrieveTransformListBySize(data, "image/png", "image/jpeg",
+            Map.of("page", "1"), null));
+
+        // Adding a transform discards the cached lists
+        SupportedTransform highPriority = new SupportedTransform("highPriority",
+            Set.of(new TransformOptionValue(false, "width"), new TransformOptionValue(false, "height")), -1, 40);
+        data.appendTransform("image/png", "image/jpeg", highPriority, "highPriority", null);
+        assertEquals(List.of(highPriority), retrieveTransformListBySize(data, "image/png", "image/jpeg",
+            Map.of("width", "100", "height", "50"), null));
+    }
+
+    @Test
+    public void testSnapshotLookupByMimetypeIds()
+    {
+        SupportedTransform png = new SupportedTransform("png", emptySet(), -1, 50);
+        SupportedTransform jpeg = new SupportedTransform("jpeg", emptySet(), -1, 50);
+        SupportedTransform custom = new SupportedTransform("custom", emptySet(), -1, 50);
+        TransformCache.Builder builder = TransformCache.builder();
+        builder.appendTransform(MIMETYPE_PDF, MIMETYPE_IMAGE_PNG, png, "png", null);
+        builder.appendTransform(MIMETYPE_PDF, MIMETYPE_IMAGE_JPEG, jpeg, "jpeg", null);
+        builder.appendTransform("application/x-custom", MIMETYPE_PDF, custom, "custom", null);
+        TransformCache data = builder.build();
+
+        // Mimetype constants have the same ids in every snapshot. Others follow them.
+        MimetypeIds mimetypeIds = data.getMimetypeIds();
+        assertEquals(TransformCache.builder().build().getMimetypeIds().getId(MIMETYPE_PDF),
+            mimetypeIds.getId(MIMETYPE_PDF));
+        assertEquals(mimetypeIds.size() - 1, mimetypeIds.getId("application/x-custom"));
+        assertEquals("application/x-custom", mimetypeIds.getMimetype(mimetypeIds.size() - 1));
+        assertEquals(MimetypeIds.UNKNOWN, mimetypeIds.getId("application/x-unknown"));
+
+        assertEquals(List.of(png), data.retrieveTransforms(MIMETYPE_PDF, MIMETYPE_IMAGE_PNG));
+        assertEquals(List.of(jpeg), data.retrieveTransforms(MIMETYPE_PDF, MIMETYPE_IMAGE_JPEG));
+        assertEquals(List.of(custom), data.retrieveTransforms("application/x-custom", MIMETYPE_PDF));
+        assertEquals(List.of(), data.retrieveTransforms(MIMETYPE_IMAGE_PNG, MIMETYPE_PDF));
+        assertEquals(List.of(), data.retrieveTransforms("application/x-unknown", MIMETYPE_PDF));
+        assertEquals(List.of(png), retrieveTransformListBySize(data, MIMETYPE_PDF, MIMETYPE_IMAGE_PNG, null, null));
+    }
+
     @Test(expected = TransformException.class)
     public void buildTransformListSourceMimeTypeNullErrorTest()
     {
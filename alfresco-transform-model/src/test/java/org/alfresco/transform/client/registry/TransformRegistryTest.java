@@ -21,6 +21,7 @@
  */
 package org.alfresco.transform.client.registry;
 
+import static java.util.Collections.emptyList;
 import static java.util.Collections.emptyMap;
 import static java.util.Collections.emptySet;
 import static java.util.Collections.singleton;
@@ -33,12 +34,17 @@ import static org.alfresco.transform.client.registry.TransformRegistryHelper.opt
 import static org.apache.commons.lang3.StringUtils.isBlank;
 import static org.junit.Assert.assertEquals;
 import static org.junit.Assert.assertFalse;
+import static org.junit.Assert.assertNotSame;
+import static org.junit.Assert.assertNull;
+import static org.junit.Assert.assertSame;
+import static org.junit.Assert.assertThrows;
 import static org.junit.Assert.assertTrue;
 
 import java.util.Arrays;
 import java.util.Collections;
 import java.util.HashMap;
 import java.util.HashSet;
+import java.util.List;
 import java.util.Map;
 import java.util.Set;
 
@@ -115,6 +121,11 @@ public class TransformRegistryTest
         addToPossibleTransformOptions(possibleTransformOptions, transformOptionGroup, true,
             buildActualOptions(actualOptionNames));
 
+        // The compiled bitset matcher must agree with the map based methods
+        assertEquals("The OptionsMatcher does not agree with optionsMatch",
+            optionsMatch(possibleTransformOptions, buildActualOptions(actualOptionNames)),
+            new OptionsMatcher(transformOptionGroup).matches(OptionsMatcher.toBits(actualOptionNames)));
+
         assertEquals("The expected options don't match", expectedNameSet,
             possibleTransformOptions.keySet());
 
@@ -528,6 +539,170 @@ public class TransformRegistryTest
         assertTransformerName(MSG, 300, GIF, emptyMap(), "transformer5", t1, t2, t3, t4, t5);
     }
 
+    @Test
+    public void testRegisterSnapshot()
+    {
+        AbstractTransformRegistry snapshotRegistry = new AbstractTransformRegistry()
+        {
+            @Override
+            protected void logError(String msg)
+            {
+                System.out.println(msg);
+            }
+        };
+        TransformConfig transformConfig1 = TransformConfig.builder()
+            .withTransformers(singletonList(newTransformer("transformer1", MSG, GIF, -1, 50)))
+            .build();
+        TransformConfig transformConfig2 = TransformConfig.builder()
+            .withTransformers(singletonList(newTransformer("transformer2", MSG, JPEG, -1, 50)))
+            .build();
+
+        snapshotRegistry.registerSnapshot(() ->
+            CombinedTransformConfig.combineAndRegister(transformConfig1, getClass().getName(), "---", snapshotRegistry));
+        TransformCache data1 = snapshotRegistry.getData();
+        assertEquals("transformer1", snapshotRegistry.findTransformerName(MSG, 100, GIF, emptyMap(), null));
+        assertEquals("(transformers: 1 transforms: 1)", data1.toString());
+
+        // Lookups see either the old or the new data, which replaces it as a whole
+        snapshotRegistry.registerSnapshot(() ->
+        {
+            CombinedTransformConfig.combineAndRegister(transformConfig2, getClass().getName(), "---", snapshotRegistry);
+            assertSame(data1, snapshotRegistry.getData());
+        });
+        assertNotSame(data1, snapshotRegistry.getData());
+        assertNull(snapshotRegistry.findTransformerName(MSG, 100, GIF, emptyMap(), null));
+        assertEquals("transformer2", snapshotRegistry.findTransformerName(MSG, 100, JPEG, emptyMap(), null));
+
+        // Snapshots may not be modified
+        assertThrows(UnsupportedOperationException.class, () -> data1.appendTransform(MSG, PDF,
+            new SupportedTransform("transformer3", emptySet(), -1, 50), "transformer3", null));
+        assertThrows(UnsupportedOperationException.class, () -> data1.retrieveTransforms(MSG).put(PDF, emptyList()));
+    }
+
+    @Test
+    public void testRegisterOutsideASnapshot()
+    {
+        AbstractTransformRegistry snapshotRegistry = new AbstractTransformRegistry()
+        {
+            @Override
+            protected void logError(String msg)
+            {
+                System.out.println(msg);
+            }
+        };
+        TransformConfig transformConfig1 = TransformConfig.builder()
+            .withTransformers(singletonList(newTransformer("transformer1", MSG, GIF, -1, 50)))
+            .build();
+        TransformConfig transformConfig2 = TransformConfig.builder()
+            .withTransformers(singletonList(newTransformer("transformer2", MSG, JPEG, -1, 50)))
+            .build();
+
+        // Each registration publishes a new snapshot that includes the earlier transformers
+        CombinedTransformConfig.combineAndRegister(transformConfig1, getClass().getName(), "---", snapshotRegistry);
+        TransformCache data1 = snapshotRegistry.getData();
+        CombinedTransformConfig.combineAndRegister(transformConfig2, getClass().getName(), "---", snapshotRegistry);
+
+        assertNotSame(data1, snapshotRegistry.getData());
+        assertEquals("(transformers: 1 transforms: 1)", data1.toString());
+        assertEquals("(transformers: 2 transforms: 2)", snapshotRegistry.getData().toString());
+        assertEquals("transformer1", snapshotRegistry.findTransformerName(MSG, 100, GIF, emptyMap(), null));
+        assertEquals("transformer2", snapshotRegistry.findTransformerName(MSG, 100, JPEG, emptyMap(), null));
+        assertTrue(data1.retrieveTransforms(MSG, JPEG).isEmpty());
+    }
+
+    @Test
+    public void testQuery() throws Exception
+    {
+        buildAndPopulateRegistry(new Transformer[]{
+            newTransformer("transformer1", MSG, GIF, 100, 50),
+            newTransformer("transformer2", MSG, GIF, 200, 60),
+            newTransformer("transformer3", MSG, JPEG, -1, 50)});
+
+        List<TransformQuery> queries = Arrays.asList(
+            new TransformQuery(MSG, 50, GIF, emptyMap(), null),
+            new TransformQuery(MSG, 150, GIF, emptyMap(), null),
+            new TransformQuery(MSG, 250, GIF, emptyMap(), null),
+            new TransformQuery(MSG, GIF, emptyMap(), "doclib"),
+            new TransformQuery(MSG, 999999, JPEG, emptyMap(), null),
+            new TransformQuery(GIF, 50, MSG, emptyMap(), null));
+
+        for (boolean parallel : new boolean[]{false, true})
+        {
+            TransformQueryResults results = registry.query(queries, parallel);
+            assertEquals(queries.size(), results.size());
+            for (int i = 0; i < queries.size(); i++)
+            {
+                TransformQuery q = queries.get(i);
+                assertEquals(q.toString(), registry.findMaxSize(q.getSourceMimetype(), q.getTargetMimetype(),
+                    q.getActualOptions(), q.getRenditionName()), results.getMaxSize(i));
+                assertEquals(q.toString(), registry.findTransformerName(q.getSourceMimetype(),
+                    q.getSourceSizeInBytes(), q.getTargetMimetype(), q.getActualOptions(), q.getRenditionName()),
+                    results.getTransformerName(i));
+                assertEquals(q.toString(), registry.isSupported(q.getSourceMimetype(), q.getSourceSizeInBytes(),
+                    q.getTargetMimetype(), q.getActualOptions(), q.getRenditionName()), results.isSupported(i));
+            }
+        }
+
+        TransformQueryResults results = registry.query(queries, false);
+        assertEquals("transformer1", results.getTransformerName(0));
+        assertEquals("transformer2", results.getTransformerName(1));
+        assertFalse(results.isSupported(2));
+        assertEquals(200L, results.getMaxSize(3));
+        assertEquals(-1L, results.getMaxSize(4));
+        assertEquals(0L, results.getMaxSize(5));
+        assertNull(results.getTransformerName(5));
+    }
+
+    @Test
+    public void testQueryMatchesDefaultQuery() throws Exception
+    {
+        buildAndPopulateRegistry(new Transformer[]{
+            newTransformer("transformer1", MSG, GIF, 100, 50),
+            newTransformer("transformer2", MSG, GIF, 200, 60),
+            newTransformer("transformer3", MSG, JPEG, -1, 50),
+            newTransformer("transformer4", MSG, PDF, 0, 50)});
+
+        // Only implements the abstract methods, so uses the interface's default query method
+        TransformServiceRegistry defaultRegistry = new TransformServiceRegistry()
+        {
+            @Override
+            public long findMaxSize(String sourceMimetype, String targetMimetype, Map<String, String> actualOptions,
+                String transformName)
+            {
+                return registry.findMaxSize(sourceMimetype, targetMimetype, actualOptions, transformName);
+            }
+
+            @Override
+            public String findTransformerName(String sourceMimetype, long sourceSizeInBytes, String targetMimetype,
+                Map<String, String> actualOptions, String renditionName)
+            {
+                return registry.findTransformerName(sourceMimetype, sourceSizeInBytes, targetMimetype, actualOptions,
+                    renditionName);
+            }
+        };
+
+        List<TransformQuery> queries = Arrays.asList(
+            new TransformQuery(MSG, 0, GIF, emptyMap(), null),
+            new TransformQuery(MSG, 150, GIF, emptyMap(), null),
+            new TransformQuery(MSG, 250, GIF, emptyMap(), null),
+            new TransformQuery(MSG, 999999, JPEG, emptyMap(), null),
+            new TransformQuery(MSG, 0, PDF, emptyMap(), null),
+            new TransformQuery(MSG, 10, PDF, emptyMap(), null),
+            new TransformQuery(GIF, 0, MSG, emptyMap(), null));
+
+        TransformQueryResults expected = defaultRegistry.query(queries, false);
+        TransformQueryResults actual = registry.query(queries, false);
+        for (int i = 0; i < queries.size(); i++)
+        {
+            String message = queries.get(i).toString();
+            assertEquals(message, expected.getMaxSize(i), actual.getMaxSize(i));
+            assertEquals(message, expected.getTransformerName(i), actual.getTransformerName(i));
+            assertEquals(message, expected.isSupported(i), actual.isSupported(i));
+        }
+        assertEquals(0L, actual.getMaxSize(4));
+        assertFalse(actual.isSupported(4));
+    }
+
     private Transformer newTransformer(String transformerName, String sourceMediaType, String targetMediaType,
                                        long maxSourceSizeBytes, int priority)
     {
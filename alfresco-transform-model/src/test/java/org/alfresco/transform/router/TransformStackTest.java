@@ -30,6 +30,10 @@ import org.junit.jupiter.api.Test;
 import org.mockito.Mock;
 import org.mockito.MockitoAnnotations;
 
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.ObjectInputStream;
+import java.io.ObjectOutputStream;
 import java.math.BigInteger;
 import java.util.ArrayList;
 import java.util.Arrays;
@@ -419,6 +423,41 @@ class TransformStackTest
         assertEquals(7, transformStepCount);
     }
 
+    @Test
+    public void testChangesWrittenBackToTransformsToBeDone() throws Exception
+    {
+        TransformStack.addTransformLevel(internalContext, TransformStack.levelBuilder(TransformStack.FAILOVER_FLAG)
+                .withStep("name", "source", "target")
+                .withStep("name2", "source2", "target2"));
+        TransformStack.setReference(internalContext, 5);
+        TransformStack.incrementAttemptedRetries(internalContext);
+        TransformStack.removeFailedStep(reply, transformerDebug);
+
+        assertEquals("F" + SEPARATOR + "6" + SEPARATOR + "0" + SEPARATOR + "1" +
+                        SEPARATOR + "name2" + SEPARATOR + "source2" + SEPARATOR + "target2",
+                internalContext.getMultiStep().getTransformsToBeDone().get(TOP_STACK_LEVEL));
+        assertEquals("name2", TransformStack.currentStep(internalContext).getTransformerName());
+
+        // Changes made directly to the list are seen by the TransformStack
+        internalContext.getMultiStep().getTransformsToBeDone().set(TOP_STACK_LEVEL,
+                "P" + SEPARATOR + "7" + SEPARATOR + "0" + SEPARATOR + "0" + STEP);
+        assertEquals("7", TransformStack.getReference(internalContext));
+        assertEquals("name", TransformStack.currentStep(internalContext).getTransformerName());
+
+        // Changes are written back when serialized
+        TransformStack.incrementReference(internalContext);
+        ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        try (ObjectOutputStream out = new ObjectOutputStream(bytes))
+        {
+            out.writeObject(internalContext);
+        }
+        try (ObjectInputStream in = new ObjectInputStream(new ByteArrayInputStream(bytes.toByteArray())))
+        {
+            InternalContext copy = (InternalContext) in.readObject();
+            assertEquals("8", TransformStack.getReference(copy));
+        }
+    }
+
     @Test
     public void testCheckStructureNoOptions()
     {
@@ -103,7 +103,7 @@ public class AlfrescoPdfRendererController extends AbstractTransformerController
     }
 
     @Override
-    protected String getTransformerName(final File sourceFile, final String sourceMimetype,
+    protected String getTransformerName(final long sourceSizeInBytes, final String sourceMimetype,
                                         final String targetMimetype, final Map<String, String> transformOptions)
     {
         return null; // does not matter what value is returned, as it is not used because there is only one.
@@ -34,6 +34,8 @@ import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Controller;
 
 import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -108,4 +110,18 @@ public class TikaController extends AbstractTransformerController
     {
         javaExecutor.transformExtractOrEmbed(transformName, sourceMimetype, targetMimetype, transformOptions, sourceFile, targetFile);
     }
+
+    @Override
+    public boolean isStreamingSupported(String transformName, String sourceMimetype, String targetMimetype)
+    {
+        return javaExecutor.isStreamingSupported(transformName, sourceMimetype, targetMimetype);
+    }
+
+    @Override
+    public void transformImpl(String transformName, String sourceMimetype, String targetMimetype,
+                              Map<String, String> transformOptions, InputStream sourceStream,
+                              OutputStream targetStream)
+    {
+        javaExecutor.transformExtractOrEmbed(transformName, sourceMimetype, targetMimetype, transformOptions, sourceStream, targetStream);
+    }
 }
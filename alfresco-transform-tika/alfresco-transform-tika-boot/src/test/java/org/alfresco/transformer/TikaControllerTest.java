@@ -26,6 +26,7 @@
  */
 package org.alfresco.transformer;
 
+import static java.nio.charset.StandardCharsets.UTF_8;
 import static java.nio.file.Files.readAllBytes;
 import static org.alfresco.transform.client.util.RequestParamMap.ENDPOINT_TRANSFORM;
 import static org.alfresco.transformer.executors.Tika.ARCHIVE;
@@ -69,9 +70,13 @@ import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
 import static org.mockito.Mockito.when;
 import static org.springframework.http.HttpHeaders.ACCEPT;
 import static org.springframework.http.HttpHeaders.CONTENT_DISPOSITION;
+import static org.springframework.http.HttpHeaders.CONTENT_LENGTH;
 import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
 import static org.springframework.http.HttpStatus.CREATED;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
@@ -84,6 +89,7 @@ import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.
 import static org.springframework.util.StringUtils.getFilenameExtension;
 
 import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
 import java.io.File;
 import java.io.IOException;
 import java.util.Map;
@@ -108,6 +114,7 @@ import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.StreamingHttpOutputMessage;
 import org.springframework.http.ResponseEntity;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.util.ReflectionTestUtils;
@@ -305,6 +312,38 @@ public class TikaControllerTest extends AbstractTransformerControllerTest
         super.testDelayTest();
     }
 
+    @Test
+    @Override
+    public void rangeRequestTest() throws Exception
+    {
+        mockTransformCommand(PDF, TXT, MIMETYPE_PDF, true);
+        super.rangeRequestTest();
+    }
+
+    @Test
+    @Override
+    public void asyncTransformTest() throws Exception
+    {
+        mockTransformCommand(PDF, TXT, MIMETYPE_PDF, true);
+        super.asyncTransformTest();
+    }
+
+    @Test
+    @Override
+    public void batchTransformTest() throws Exception
+    {
+        mockTransformCommand(PDF, TXT, MIMETYPE_PDF, true);
+        super.batchTransformTest();
+    }
+
+    @Test
+    @Override
+    public void batchFanOutTransformTest() throws Exception
+    {
+        mockTransformCommand(PDF, TXT, MIMETYPE_PDF, true);
+        super.batchFanOutTransformTest();
+    }
+
     @Test
     @Override
     public void noTargetFileTest()
@@ -647,6 +686,76 @@ public class TikaControllerTest extends AbstractTransformerControllerTest
         assertEquals(transformRequest.getSchema(), transformReply.getSchema());
     }
 
+    @Test
+    public void testTargetStreamedIntoResponse() throws Exception
+    {
+        mockTransformCommand(PDF, TXT, MIMETYPE_PDF, false);
+        ReflectionTestUtils.setField(controller, "streamingResponseEnabled", true);
+        try
+        {
+            MvcResult result = mockMvc
+                .perform(mockMvcRequest(ENDPOINT_TRANSFORM, sourceFile, "targetExtension", targetExtension))
+                .andExpect(status().is(OK.value()))
+                .andExpect(header().string(CONTENT_DISPOSITION, "attachment; filename*= UTF-8''quick.txt"))
+                .andExpect(header().string(CONTENT_TYPE, "text/plain;charset=UTF-8"))
+                // Written as it is produced rather than from a file of a known length
+                .andExpect(header().doesNotExist(CONTENT_LENGTH))
+                .andReturn();
+
+            assertTrue(result.getResponse().getContentAsString().contains(EXPECTED_TEXT_CONTENT_CONTAINS));
+        }
+        finally
+        {
+            ReflectionTestUtils.setField(controller, "streamingResponseEnabled", false);
+        }
+    }
+
+    @Test
+    public void testPojoTransformStreamedToSharedFileStore() throws Exception
+    {
+        String sourceFileRef = UUID.randomUUID().toString();
+        File sourceFile = getTestFile("quick." + sourceExtension, true);
+        String targetFileRef = UUID.randomUUID().toString();
+        TransformRequest transformRequest = createTransformRequest(sourceFileRef, sourceFile);
+        updateTransformRequestWithSpecificOptions(transformRequest);
+
+        HttpHeaders headers = new HttpHeaders();
+        headers.set(CONTENT_DISPOSITION, "attachment; filename=quick." + sourceExtension);
+        when(alfrescoSharedFileStoreClient.retrieveFile(sourceFileRef))
+            .thenReturn(new ResponseEntity<>(new FileSystemResource(sourceFile), headers, OK));
+        ByteArrayOutputStream storedTarget = new ByteArrayOutputStream();
+        when(alfrescoSharedFileStoreClient.saveStream(any(), eq(MIMETYPE_TEXT_PLAIN), any()))
+            .thenAnswer(invocation ->
+            {
+                invocation.<StreamingHttpOutputMessage.Body>getArgument(2).writeTo(storedTarget);
+                return new FileRefResponse(new FileRefEntity(targetFileRef));
+            });
+
+        ReflectionTestUtils.setField(controller, "streamingResponseEnabled", true);
+        try
+        {
+            String transformationReplyAsString = mockMvc
+                .perform(MockMvcRequestBuilders
+                    .post(ENDPOINT_TRANSFORM)
+                    .header(ACCEPT, APPLICATION_JSON_VALUE)
+                    .header(CONTENT_TYPE, APPLICATION_JSON_VALUE)
+                    .content(objectMapper.writeValueAsString(transformRequest)))
+                .andExpect(status().is(CREATED.value()))
+                .andReturn().getResponse().getContentAsString();
+
+            TransformReply transformReply = objectMapper.readValue(transformationReplyAsString,
+                TransformReply.class);
+            assertEquals(targetFileRef, transformReply.getTargetReference());
+            assertEquals(Long.valueOf(storedTarget.size()), transformReply.getInternalContext().getCurrentSourceSize());
+            assertTrue(storedTarget.toString(UTF_8).contains(EXPECTED_TEXT_CONTENT_CONTAINS));
+            verify(alfrescoSharedFileStoreClient, never()).saveFile(any());
+        }
+        finally
+        {
+            ReflectionTestUtils.setField(controller, "streamingResponseEnabled", false);
+        }
+    }
+
     @Test
     @Override
     public void httpTransformRequestUsingDirectAccessUrlTest() throws Exception
@@ -636,11 +636,30 @@ public class Tika
         return stringValue;
     }
 
-    // Adds transform specific values such as parser and documentSelector.
     private void transform(String transform, Boolean includeContents,
         Boolean notExtractBookmarksText,
         String sourceFilename,
         String targetFilename, String targetMimetype, String targetEncoding)
+    {
+        try (InputStream is = new FileInputStream(sourceFilename);
+             OutputStream os = new FileOutputStream(targetFilename))
+        {
+            transform(transform, includeContents, notExtractBookmarksText, is, os, targetMimetype, targetEncoding);
+        }
+        catch (IOException e)
+        {
+            throw new IllegalStateException(e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Performs a transform, reading the source from one stream and writing the target to another, neither of which
+     * is closed. Adds transform specific values such as parser and documentSelector.
+     */
+    public void transform(String transform, boolean includeContents,
+        boolean notExtractBookmarksText,
+        InputStream sourceStream,
+        OutputStream targetStream, String targetMimetype, String targetEncoding)
     {
         Parser parser = null;
         DocumentSelector documentSelector = null;
@@ -671,26 +690,27 @@ public class Tika
         }
 
         transform(parser, documentSelector, includeContents, notExtractBookmarksText,
-            sourceFilename, targetFilename, targetMimetype, targetEncoding);
+            sourceStream, targetStream, targetMimetype, targetEncoding);
     }
 
     private void transform(Parser parser, DocumentSelector documentSelector,
         Boolean includeContents,
         Boolean notExtractBookmarksText,
-        String sourceFilename,
-        String targetFilename, String targetMimetype, String targetEncoding)
+        InputStream sourceStream,
+        OutputStream targetStream, String targetMimetype, String targetEncoding)
     {
 
-        try (InputStream is = new BufferedInputStream(new FileInputStream(sourceFilename));
-             OutputStream os = new FileOutputStream(targetFilename);
-             Writer ow = new BufferedWriter(new OutputStreamWriter(os, targetEncoding)))
+        try
         {
+            InputStream is = new BufferedInputStream(sourceStream);
+            Writer ow = new BufferedWriter(new OutputStreamWriter(targetStream, targetEncoding));
             Metadata metadata = new Metadata();
             ParseContext context = buildParseContext(documentSelector, includeContents,
                 notExtractBookmarksText);
             ContentHandler handler = getContentHandler(targetMimetype, ow);
 
             parser.parse(is, handler, metadata, context);
+            ow.flush();
         }
         catch (SAXException | TikaException | IOException e)
         {
@@ -46,11 +46,14 @@ import org.xml.sax.SAXException;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.ArrayList;
 import java.util.Map;
 import java.util.StringJoiner;
 
 import static java.lang.Boolean.parseBoolean;
+import static org.alfresco.transform.router.ExtensionService.getExtensionForMimetype;
 import static org.alfresco.transformer.executors.Tika.INCLUDE_CONTENTS;
 import static org.alfresco.transformer.executors.Tika.TARGET_ENCODING;
 import static org.alfresco.transformer.executors.Tika.TARGET_MIMETYPE;
@@ -117,21 +120,72 @@ public class TikaJavaExecutor implements JavaExecutor
                           Map<String, String> transformOptions, File sourceFile, File targetFile)
             throws Exception
     {
-        final boolean includeContents = parseBoolean(
-                transformOptions.getOrDefault(RequestParamMap.INCLUDE_CONTENTS, "false"));
-        final boolean notExtractBookmarksText = parseBoolean(
-                transformOptions.getOrDefault(RequestParamMap.NOT_EXTRACT_BOOKMARKS_TEXT, String.valueOf(notExtractBookmarksTextDefault)));
-        final String targetEncoding = transformOptions.getOrDefault("targetEncoding", "UTF-8");
+        final boolean includeContents = isIncludeContents(transformOptions);
+        final boolean notExtractBookmarksText = isNotExtractBookmarksText(transformOptions);
+        final String targetEncoding = getTargetEncoding(transformOptions);
+        call(sourceFile, targetFile, transformName,
+                includeContents ? INCLUDE_CONTENTS : null,
+                notExtractBookmarksText ? Tika.NOT_EXTRACT_BOOKMARKS_TEXT : null,
+                TARGET_MIMETYPE + targetMimetype, TARGET_ENCODING + targetEncoding);
+    }
+
+    /**
+     * All the Tika transforms (but not the metadata extractors) are able to read and write streams.
+     */
+    @Override
+    public boolean isStreamingSupported(String transformName, String sourceMimetype, String targetMimetype)
+    {
+        return Tika.TRANSFORM_NAMES.contains(transformName);
+    }
+
+    @Override
+    public void transform(String transformName, String sourceMimetype, String targetMimetype,
+                          Map<String, String> transformOptions, InputStream sourceStream, OutputStream targetStream)
+    {
+        final boolean includeContents = isIncludeContents(transformOptions);
+        final boolean notExtractBookmarksText = isNotExtractBookmarksText(transformOptions);
+        final String targetEncoding = getTargetEncoding(transformOptions);
+
+        StringJoiner sj = new StringJoiner(" ");
+        sj.add(transformName);
+        if (includeContents)
+        {
+            sj.add(INCLUDE_CONTENTS);
+        }
+        if (notExtractBookmarksText)
+        {
+            sj.add(Tika.NOT_EXTRACT_BOOKMARKS_TEXT);
+        }
+        sj.add(TARGET_MIMETYPE + targetMimetype);
+        sj.add(TARGET_ENCODING + targetEncoding);
+        sj.add(getExtensionForMimetype(sourceMimetype));
+        sj.add(getExtensionForMimetype(targetMimetype));
+        LogEntry.setOptions(sj.toString());
+
+        tika.transform(transformName, includeContents, notExtractBookmarksText, sourceStream, targetStream,
+            targetMimetype, targetEncoding);
+    }
+
+    private static boolean isIncludeContents(Map<String, String> transformOptions)
+    {
+        return parseBoolean(transformOptions.getOrDefault(RequestParamMap.INCLUDE_CONTENTS, "false"));
+    }
+
+    private boolean isNotExtractBookmarksText(Map<String, String> transformOptions)
+    {
         if(transformOptions.get(RequestParamMap.NOT_EXTRACT_BOOKMARKS_TEXT)==null && notExtractBookmarksTextDefault)
         {
             LoggerFactory.getLogger(TikaJavaExecutor.class).trace(
                     "notExtractBookmarksText default value has been overridden to {}",
                     notExtractBookmarksTextDefault);
         }
-        call(sourceFile, targetFile, transformName,
-                includeContents ? INCLUDE_CONTENTS : null,
-                notExtractBookmarksText ? Tika.NOT_EXTRACT_BOOKMARKS_TEXT : null,
-                TARGET_MIMETYPE + targetMimetype, TARGET_ENCODING + targetEncoding);
+        return parseBoolean(transformOptions.getOrDefault(RequestParamMap.NOT_EXTRACT_BOOKMARKS_TEXT,
+            String.valueOf(notExtractBookmarksTextDefault)));
+    }
+
+    private static String getTargetEncoding(Map<String, String> transformOptions)
+    {
+        return transformOptions.getOrDefault("targetEncoding", "UTF-8");
     }
 
     @Override
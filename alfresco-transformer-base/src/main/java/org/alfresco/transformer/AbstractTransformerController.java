@@ -34,13 +34,30 @@ import org.alfresco.transform.client.model.config.TransformConfig;
 import org.alfresco.transform.client.registry.TransformServiceRegistry;
 import org.alfresco.transform.exceptions.TransformException;
 import org.alfresco.transform.router.TransformerDebug;
+import org.alfresco.transformer.cache.TransformCoalescer;
+import org.alfresco.transformer.cache.TransformConfigCache;
+import org.alfresco.transformer.cache.TransformConfigCache.SerializedTransformConfig;
+import org.alfresco.transformer.cache.TransformConfigMessageConverter;
+import org.alfresco.transformer.cache.TransformKey;
+import org.alfresco.transformer.cache.TransformResultCache;
 import org.alfresco.transformer.clients.AlfrescoSharedFileStoreClient;
+import org.alfresco.transformer.clients.DirectAccessUrlClient;
+import org.alfresco.transformer.fs.CountingOutputStream;
+import org.alfresco.transformer.fs.DeferredFileOutputStream;
+import org.alfresco.transformer.fs.ScratchSpace;
 import org.alfresco.transformer.logging.LogEntry;
+import org.alfresco.transformer.model.BatchItem;
+import org.alfresco.transformer.model.BatchItemReply;
 import org.alfresco.transformer.model.FileRefResponse;
-import org.codehaus.plexus.util.FileUtils;
+import org.alfresco.transformer.throttling.TooManyTransformsException;
+import org.alfresco.transformer.throttling.TransformPermits;
+import org.alfresco.transformer.util.Deadline;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.core.task.TaskExecutor;
 import org.springframework.core.io.Resource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
@@ -52,36 +69,69 @@ import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
 import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.RequestPart;
 import org.springframework.web.bind.annotation.ResponseBody;
 import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.context.request.RequestAttributes;
+import org.springframework.web.context.request.RequestContextHolder;
+import org.springframework.web.context.request.ServletRequestAttributes;
+import org.springframework.web.context.request.async.DeferredResult;
 import org.springframework.web.multipart.MultipartFile;
 
 import javax.servlet.http.HttpServletRequest;
+import javax.servlet.http.HttpServletResponse;
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
 import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileOutputStream;
 import java.io.IOException;
-import java.net.URL;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.time.Instant;
+import java.util.ArrayList;
 import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.RejectedExecutionException;
 import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+import java.util.function.Supplier;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
 
 import static java.util.stream.Collectors.joining;
-import static org.alfresco.transform.client.model.config.CoreVersionDecorator.setOrClearCoreVersion;
+import static java.util.stream.Collectors.toList;
 import static org.alfresco.transform.client.util.RequestParamMap.DIRECT_ACCESS_URL;
 import static org.alfresco.transform.client.util.RequestParamMap.CONFIG_VERSION;
 import static org.alfresco.transform.client.util.RequestParamMap.CONFIG_VERSION_DEFAULT;
 import static org.alfresco.transform.client.util.RequestParamMap.ENDPOINT_TRANSFORM;
+import static org.alfresco.transform.client.util.RequestParamMap.ENDPOINT_TRANSFORM_ASYNC;
+import static org.alfresco.transform.client.util.RequestParamMap.ENDPOINT_TRANSFORM_BATCH;
 import static org.alfresco.transform.client.util.RequestParamMap.ENDPOINT_TRANSFORM_CONFIG;
+import static org.alfresco.transform.client.util.RequestParamMap.TARGET_ENCODING;
+import static org.alfresco.transform.client.util.RequestParamMap.TIMEOUT;
 import static org.alfresco.transformer.fs.FileManager.TempFileProvider.createTempFile;
 import static org.alfresco.transformer.fs.FileManager.buildFile;
 import static org.alfresco.transformer.fs.FileManager.createAttachment;
+import static org.alfresco.transformer.fs.FileManager.createBatchSourceFile;
 import static org.alfresco.transformer.fs.FileManager.createSourceFile;
 import static org.alfresco.transformer.fs.FileManager.createTargetFile;
 import static org.alfresco.transformer.fs.FileManager.createTargetFileName;
 import static org.alfresco.transformer.fs.FileManager.deleteFile;
+import static org.alfresco.transformer.fs.FileManager.getContentDisposition;
 import static org.alfresco.transformer.fs.FileManager.getFilenameFromContentDisposition;
+import static org.alfresco.transformer.fs.FileManager.openSourceStream;
 import static org.alfresco.transformer.fs.FileManager.save;
+import static org.alfresco.transformer.util.RequestParamMap.BATCH_ITEMS;
 import static org.alfresco.transformer.util.RequestParamMap.FILE;
 import static org.alfresco.transformer.util.RequestParamMap.SOURCE_ENCODING;
 import static org.alfresco.transformer.util.RequestParamMap.SOURCE_EXTENSION;
@@ -90,10 +140,16 @@ import static org.alfresco.transformer.util.RequestParamMap.TARGET_EXTENSION;
 import static org.alfresco.transformer.util.RequestParamMap.TARGET_MIMETYPE;
 import static org.alfresco.transformer.util.RequestParamMap.TEST_DELAY;
 import static org.alfresco.transformer.util.RequestParamMap.TRANSFORM_NAME_PROPERTY;
+import static org.springframework.http.HttpHeaders.CONTENT_DISPOSITION;
+import static org.springframework.http.HttpHeaders.RANGE;
+import static org.springframework.http.HttpHeaders.RETRY_AFTER;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.CREATED;
+import static org.springframework.http.HttpStatus.INSUFFICIENT_STORAGE;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
 import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.HttpStatus.REQUEST_TIMEOUT;
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
 import static org.springframework.http.MediaType.MULTIPART_FORM_DATA_VALUE;
 import static org.springframework.util.StringUtils.getFilenameExtension;
@@ -101,7 +157,10 @@ import static org.springframework.util.StringUtils.getFilenameExtension;
 /**
  * <p>Abstract Controller, provides structure and helper methods to sub-class transformer controllers. Sub classes
  * should implement {@link #transformImpl(String, String, String, Map, File, File)} and unimplemented methods from
- * {@link TransformController}.</p>
+ * {@link TransformController}. Sub classes with transformers that are able to read the source from a stream may
+ * also implement {@link #isStreamingSupported(String, String, String)} and
+ * {@link #transformImpl(String, String, String, Map, InputStream, OutputStream)}, so that uploaded content does not
+ * need to be written to a temporary file.</p>
  *
  * <p>Status Codes:</p>
  * <ul>
@@ -118,15 +177,21 @@ import static org.springframework.util.StringUtils.getFilenameExtension;
  * <li>500 Internal Server Error: The target filename was malformed (should not happen because of other checks)</li>
  * <li>500 Internal Server Error: Transformer failed to create an output file (the exit code was 0, so there should be some content)</li>
  * <li>500 Internal Server Error: Filename encoding error</li>
+ * <li>500 Internal Server Error: Failed to read the source file</li>
  * <li>507 Insufficient Storage: Failed to store the source file</li>
+ * <li>507 Insufficient Storage: Failed to store the target file</li>
  *
- * <li>408 Request Timeout         -- TODO implement general timeout mechanism rather than depend on transformer timeout
- * (might be possible for external processes)</li>
+ * <li>408 Request Timeout: The request did not complete within its timeout. The time includes reading the source,
+ * the transform and (for JSON requests) writing the target</li>
  * <li>415 Unsupported Media Type  -- TODO possibly implement a check on supported source and target mimetypes (probably not)</li>
  * <li>429 Too Many Requests: Returned by liveness probe</li>
+ * <li>429 Too Many Requests: Returned by /transform/async when the transformExecutor's queue is full</li>
+ * <li>429 Too Many Requests: Too many concurrent transforms of the same type. Includes a Retry-After header</li>
  * </ul>
  * <p>Provides methods to help super classes perform /transform requests. Also responses to /version, /ready and /live
  * requests.</p>
+ * <p>The /transform/async endpoints accept the same requests as /transform, but run the transform on the
+ * {@code transformExecutor} rather than on the servlet container's thread.</p>
  */
 public abstract class AbstractTransformerController implements TransformController
 {
@@ -137,9 +202,16 @@ public abstract class AbstractTransformerController implements TransformControll
     public static final List<String> NON_TRANSFORM_OPTION_REQUEST_PARAMETERS = Arrays.asList(SOURCE_EXTENSION,
             TARGET_EXTENSION, TARGET_MIMETYPE, SOURCE_MIMETYPE, TEST_DELAY, TRANSFORM_NAME_PROPERTY, DIRECT_ACCESS_URL);
 
+    private static final String BATCH_CONTENT_TYPE = "application/zip";
+    private static final String BATCH_RESULTS_FILENAME = "batch.zip";
+    private static final String BATCH_RESULTS_ENTRY = "results.json";
+
     @Autowired
     private AlfrescoSharedFileStoreClient alfrescoSharedFileStoreClient;
 
+    @Autowired
+    private DirectAccessUrlClient directAccessUrlClient;
+
     @Autowired
     private TransformRequestValidator transformRequestValidator;
 
@@ -149,6 +221,49 @@ public abstract class AbstractTransformerController implements TransformControll
     @Autowired
     private TransformerDebug transformerDebug;
 
+    @Autowired
+    @Qualifier("transformExecutor")
+    private TaskExecutor transformExecutor;
+
+    @Autowired
+    @Qualifier("batchTransformExecutor")
+    private TaskExecutor batchTransformExecutor;
+
+    @Autowired
+    private TransformPermits transformPermits;
+
+    @Autowired
+    private TransformResultCache transformResultCache;
+
+    @Autowired
+    private TransformCoalescer transformCoalescer;
+
+    @Autowired
+    private TransformConfigCache transformConfigCache;
+
+    @Value("${async-transform.timeout}")
+    private long asyncTransformTimeout;
+
+    @Value("${in-memory.threshold}")
+    private long inMemoryThreshold;
+
+    @Value("${in-memory.maxTargetSize}")
+    private int inMemoryMaxTargetSize;
+
+    @Value("${streaming-response.enabled}")
+    private boolean streamingResponseEnabled;
+
+    @Value("${streaming-response.targetMimetypes}")
+    private List<String> streamingResponseTargetMimetypes;
+
+    @Value("${batch-transform.maxItems}")
+    private int batchTransformMaxItems;
+
+    @Value("${transform-cache.maxSourceSize}")
+    private long cacheMaxSourceSize;
+
+    private final ObjectMapper jsonObjectMapper = new ObjectMapper();
+
     private AtomicInteger httpRequestCount = new AtomicInteger(1);
 
     @GetMapping(value = ENDPOINT_TRANSFORM_CONFIG)
@@ -156,9 +271,35 @@ public abstract class AbstractTransformerController implements TransformControll
             @RequestParam(value = CONFIG_VERSION, defaultValue = CONFIG_VERSION_DEFAULT) int configVersion)
     {
         logger.info("GET Transform Config version: " + configVersion);
-        TransformConfig transformConfig = ((TransformRegistryImpl) transformRegistry).getTransformConfig();
-        transformConfig = setOrClearCoreVersion(transformConfig, configVersion);
-        return new ResponseEntity<>(transformConfig, OK);
+        TransformRegistryImpl transformRegistryImpl = (TransformRegistryImpl) transformRegistry;
+        TransformConfig transformConfig = transformRegistryImpl.getTransformConfig();
+        return createTransformConfigResponse(transformConfig, configVersion, () -> transformConfig,
+            transformRegistryImpl.getConfigLoadTime());
+    }
+
+    /**
+     * Returns the transform config with the core version set or cleared. It is only decorated and serialized again
+     * when the supplied source changes, as the {@link TransformConfigMessageConverter} writes out the cached JSON. The
+     * response includes an ETag, so Spring MVC replies with a 304 if the client already has the same config.
+     *
+     * @param source an object that changes whenever the config changes. Compared by identity.
+     * @param configVersion the version of the config requested by the client.
+     * @param transformConfig supplies the config if it needs to be serialized.
+     * @param lastModified when the config was loaded, or null if not known.
+     * @return a response containing a config that must not be modified.
+     */
+    protected ResponseEntity<TransformConfig> createTransformConfigResponse(Object source, int configVersion,
+        Supplier<TransformConfig> transformConfig, Instant lastModified)
+    {
+        SerializedTransformConfig serializedTransformConfig = transformConfigCache.get(source, configVersion,
+            transformConfig);
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok()
+            .eTag(serializedTransformConfig.getETag());
+        if (lastModified != null)
+        {
+            response.lastModified(lastModified);
+        }
+        return response.body(serializedTransformConfig.getTransformConfig());
     }
 
     @PostMapping(value = ENDPOINT_TRANSFORM, consumes = MULTIPART_FORM_DATA_VALUE)
@@ -173,6 +314,33 @@ public abstract class AbstractTransformerController implements TransformControll
                                               // The TRANSFORM_NAME_PROPERTY param allows ACS legacy transformers to specify which transform to use,
                                               // It can be removed once legacy transformers are removed from ACS.
                                               @RequestParam(value = TRANSFORM_NAME_PROPERTY, required = false) String requestTransformName)
+    {
+        return transform(request, getCurrentResponse(), sourceMultipartFile, targetExtension, sourceMimetype,
+            targetMimetype, requestParameters, testDelay, requestTransformName,
+            Deadline.after(requestParameters.get(TIMEOUT)));
+    }
+
+    /**
+     * @return the response of the HTTP request being handled by the current Thread, into which the target may be
+     * streamed, or {@code null} if there is none, such as when called directly rather than by Spring MVC.
+     */
+    private static HttpServletResponse getCurrentResponse()
+    {
+        RequestAttributes requestAttributes = RequestContextHolder.getRequestAttributes();
+        return requestAttributes instanceof ServletRequestAttributes
+               ? ((ServletRequestAttributes) requestAttributes).getResponse()
+               : null;
+    }
+
+    /**
+     * @param response if not {@code null}, the target may be streamed directly into the response, in which case
+     *                 {@code null} is returned.
+     */
+    private ResponseEntity<Resource> transform(HttpServletRequest request, HttpServletResponse response,
+                                               MultipartFile sourceMultipartFile,
+                                               String targetExtension, String sourceMimetype, String targetMimetype,
+                                               Map<String, String> requestParameters, Long testDelay,
+                                               String requestTransformName, Deadline deadline)
     {
         if (logger.isDebugEnabled())
         {
@@ -182,38 +350,78 @@ public abstract class AbstractTransformerController implements TransformControll
 
         final String directUrl = requestParameters.getOrDefault(DIRECT_ACCESS_URL, "");
 
-        File sourceFile;
+        Map<String, String> transformOptions = getTransformOptions(requestParameters);
+        String transformName;
+        File sourceFile = null;
+        InputStream sourceStream = null;
         String sourceFilename;
+        long sourceSize;
         if (directUrl.isBlank())
         {
             if (sourceMultipartFile ==  null)
             {
                 throw new TransformException(BAD_REQUEST.value(), "Required request part 'file' is not present");
             }
-            sourceFile = createSourceFile(request, sourceMultipartFile);
+            sourceSize = sourceMultipartFile.getSize();
+            transformName = getTransformerName(sourceMimetype, targetMimetype, requestTransformName, sourceSize,
+                transformOptions);
+            if (isStreaming(transformName, sourceMimetype, targetMimetype))
+            {
+                sourceStream = openSourceStream(sourceMultipartFile);
+            }
+            else
+            {
+                sourceFile = createSourceFile(request, sourceMultipartFile);
+            }
             sourceFilename = sourceMultipartFile.getOriginalFilename();
         }
         else
         {
-            sourceFile = getSourceFileFromDirectUrl(directUrl);
+            sourceFile = deadline.get("Reading the source", () -> getSourceFileFromDirectUrl(directUrl));
             sourceFilename = sourceFile.getName();
+            sourceSize = sourceFile.length();
+            transformName = getTransformerName(sourceMimetype, targetMimetype, requestTransformName, sourceSize,
+                transformOptions);
         }
 
         final String targetFilename = createTargetFileName(sourceFilename, targetExtension);
         getProbeTestTransform().incrementTransformerCount();
         final File targetFile = createTargetFile(request, targetFilename);
 
-        Map<String, String> transformOptions = getTransformOptions(requestParameters);
-        String transformName = getTransformerName(sourceMimetype, targetMimetype, requestTransformName, sourceFile, transformOptions);
         String reference = "e"+httpRequestCount.getAndIncrement();
-        transformerDebug.pushTransform(reference, sourceMimetype, targetMimetype, sourceFile, transformName);
+        transformerDebug.pushTransform(reference, sourceMimetype, targetMimetype, sourceSize, transformName);
         transformerDebug.logOptions(reference, requestParameters);
         try
         {
-            transformImpl(transformName, sourceMimetype, targetMimetype, transformOptions, sourceFile, targetFile);
+            if (response != null && sourceStream != null && isStreamingResponse(targetMimetype) &&
+                request.getHeader(RANGE) == null)
+            {
+                long targetSize = transformToResponse(transformName, sourceMimetype, targetMimetype,
+                    transformOptions, sourceStream, sourceSize, targetFilename, response, deadline);
+                LogEntry.setTargetSize(targetSize);
+                long time = LogEntry.setStatusCodeAndMessage(OK.value(), "Success");
+                time += LogEntry.addDelay(testDelay);
+                getProbeTestTransform().recordTransformTime(time);
+                transformerDebug.popTransform(reference, time);
+                return null;
+            }
+
+            byte[] targetContent = null;
+            if (sourceStream == null)
+            {
+                runTransform(transformName, sourceMimetype, targetMimetype, transformOptions, sourceFile, targetFile,
+                    deadline);
+            }
+            else
+            {
+                targetContent = runStreamingTransform(transformName, sourceMimetype, targetMimetype,
+                    transformOptions, sourceStream, sourceSize, targetFile, deadline);
+            }
 
-            final ResponseEntity<Resource> body = createAttachment(targetFilename, targetFile);
-            LogEntry.setTargetSize(targetFile.length());
+            final ResponseEntity<Resource> body = targetContent == null
+                ? createAttachment(targetFilename, targetFile)
+                : createAttachment(targetFilename, targetContent);
+            LogEntry.setTargetSize(targetContent == null ? targetFile.length() : targetContent.length);
             long time = LogEntry.setStatusCodeAndMessage(OK.value(), "Success");
             time += LogEntry.addDelay(testDelay);
             getProbeTestTransform().recordTransformTime(time);
@@ -227,22 +435,573 @@ public abstract class AbstractTransformerController implements TransformControll
         }
     }
 
-    private File getSourceFileFromDirectUrl(String directUrl)
+    /**
+     * Asynchronous variant of {@link #transform(HttpServletRequest, MultipartFile, String, String, String, Map, Long,
+     * String)}. The transform is run by the {@code transformExecutor}, so the servlet container's
+     * thread is released while it takes place. The target is not streamed into the response.
+     */
+    @PostMapping(value = ENDPOINT_TRANSFORM_ASYNC, consumes = MULTIPART_FORM_DATA_VALUE)
+    public DeferredResult<ResponseEntity<Resource>> transformAsync(HttpServletRequest request,
+                                              @RequestParam(value = FILE, required = false) MultipartFile sourceMultipartFile,
+                                              @RequestParam(TARGET_EXTENSION) String targetExtension,
+                                              @RequestParam(value = SOURCE_MIMETYPE, required = false) String sourceMimetype,
+                                              @RequestParam(value = TARGET_MIMETYPE, required = false) String targetMimetype,
+                                              @RequestParam Map<String, String> requestParameters,
+                                              @RequestParam(value = TEST_DELAY, required = false) Long testDelay,
+                                              @RequestParam(value = TRANSFORM_NAME_PROPERTY, required = false) String requestTransformName)
     {
-        File sourceFile = createTempFile("tmp", ".tmp");
+        final Deadline deadline = Deadline.after(requestParameters.get(TIMEOUT));
+        return runAsync(() -> transform(request, null, sourceMultipartFile, targetExtension, sourceMimetype,
+            targetMimetype, requestParameters, testDelay, requestTransformName, deadline));
+    }
+
+    /**
+     * Asynchronous variant of {@link #transform(TransformRequest, Long)}. The transform is run by the
+     * {@code transformExecutor}, so the servlet container's thread is released while it takes place.
+     */
+    @PostMapping(value = ENDPOINT_TRANSFORM_ASYNC, produces = APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public DeferredResult<ResponseEntity<TransformReply>> transformAsync(@RequestBody TransformRequest request,
+        @RequestParam(value = "timeout", required = false) Long timeout)
+    {
+        final Deadline deadline = getDeadline(request, timeout);
+        return runAsync(() -> transform(request, timeout, deadline));
+    }
+
+    private <T> DeferredResult<T> runAsync(Supplier<T> transform)
+    {
+        final DeferredResult<T> result = new DeferredResult<>(asyncTransformTimeout);
+        final LogEntry logEntry = LogEntry.current();
+        final ScratchSpace.Request scratchRequest = ScratchSpace.current();
         try
         {
-            FileUtils.copyURLToFile(new URL(directUrl), sourceFile);
+            transformExecutor.execute(() ->
+            {
+                LogEntry.resume(logEntry);
+                ScratchSpace.resume(scratchRequest);
+                try
+                {
+                    result.setResult(transform.get());
+                }
+                catch (Throwable t)
+                {
+                    result.setErrorResult(t);
+                }
+                finally
+                {
+                    LogEntry.suspend();
+                    ScratchSpace.suspend();
+                }
+            });
+        }
+        catch (RejectedExecutionException e)
+        {
+            throw new TransformException(TOO_MANY_REQUESTS.value(),
+                "Too many transforms are queued, please try again later", e);
+        }
+        return result;
+    }
+
+    /**
+     * '/transform/batch' endpoint, which performs a transform of each of the supplied files in a single request, so
+     * that large numbers of small transforms do not each pay the cost of a separate request. The optional
+     * {@code items} part is a JSON list of {@link BatchItem}s that describe each file, in the same order. Values they
+     * do not include default to the request parameters, which are the same as those used by {@code /transform}. The
+     * items are performed in parallel by the {@code batchTransformExecutor}.
+     *
+     * <p>If a single file is supplied with several items, each item is a different transform of that file (such as
+     * a PDF, a thumbnail and the text of a document), which is only uploaded and stored once.</p>
+     *
+     * <p>The response is a zip containing the target of each successful transform, written as soon as it completes so
+     * that targets are not held until the end of the request, followed by a {@code results.json} entry, which
+     * contains a {@link BatchItemReply} for each item in the same order as the items, with its status and any error.
+     * The failure of one item does not stop the others.</p>
+     */
+    @PostMapping(value = ENDPOINT_TRANSFORM_BATCH, consumes = MULTIPART_FORM_DATA_VALUE)
+    public void transformBatch(HttpServletResponse response,
+                               @RequestParam(FILE) List<MultipartFile> sourceMultipartFiles,
+                               @RequestPart(value = BATCH_ITEMS, required = false) List<BatchItem> items,
+                               @RequestParam Map<String, String> requestParameters) throws IOException
+    {
+        final boolean fanOut = sourceMultipartFiles.size() == 1 && items != null && items.size() > 1;
+        final int itemCount = fanOut ? items.size() : sourceMultipartFiles.size();
+        if (itemCount > batchTransformMaxItems)
+        {
+            throw new TransformException(BAD_REQUEST.value(),
+                "A batch may not contain more than " + batchTransformMaxItems + " items");
+        }
+        if (items != null && items.size() != sourceMultipartFiles.size() && !fanOut)
+        {
+            throw new TransformException(BAD_REQUEST.value(),
+                "The number of batch items does not match the number of files");
+        }
+        LogEntry.setSource(BATCH_RESULTS_FILENAME,
+            sourceMultipartFiles.stream().mapToLong(MultipartFile::getSize).sum());
+        LogEntry.setTarget(BATCH_RESULTS_FILENAME);
+
+        // The upload can only be moved into a file once, so every item of a fan out reads the same file
+        final File sharedSourceFile = fanOut ? createBatchSourceFile(sourceMultipartFiles.get(0)) : null;
+        final List<CompletableFuture<BatchItemResult>> results = new ArrayList<>();
+        final BlockingQueue<CompletableFuture<BatchItemResult>> completed = new LinkedBlockingQueue<>();
+        try
+        {
+            for (int i = 0; i < itemCount; i++)
+            {
+                final int index = i;
+                final MultipartFile sourceMultipartFile = sourceMultipartFiles.get(fanOut ? 0 : i);
+                final BatchItem item = getBatchItem(items == null ? null : items.get(i), requestParameters);
+                final CompletableFuture<BatchItemResult> future = supplyBatchItem(() -> transformBatchItem(index,
+                    sourceMultipartFile, sharedSourceFile, item));
+                future.whenComplete((result, t) -> completed.add(future));
+                results.add(future);
+            }
+        }
+        catch (RejectedExecutionException e)
+        {
+            awaitBatchItems(results);
+            throw new TransformException(TOO_MANY_REQUESTS.value(),
+                "Too many batch items are queued, please try again later", e);
+        }
+
+        response.setContentType(BATCH_CONTENT_TYPE);
+        response.setHeader(CONTENT_DISPOSITION, getContentDisposition(BATCH_RESULTS_FILENAME));
+        final CountingOutputStream outputStream = new CountingOutputStream(response.getOutputStream());
+        int succeeded = 0;
+        try (ZipOutputStream zip = new ZipOutputStream(outputStream))
+        {
+            final BatchItemReply[] replies = new BatchItemReply[itemCount];
+            for (int i = 0; i < itemCount; i++)
+            {
+                BatchItemResult result = completed.take().join();
+                if (result.reply.getTargetEntry() != null)
+                {
+                    zip.putNextEntry(new ZipEntry(result.reply.getTargetEntry()));
+                    if (result.targetContent != null)
+                    {
+                        zip.write(result.targetContent);
+                        result.targetContent = null;
+                    }
+                    else
+                    {
+                        Files.copy(result.targetFile.toPath(), zip);
+                        result.targetFile.delete();
+                    }
+                    zip.closeEntry();
+                    succeeded++;
+                }
+                replies[result.reply.getIndex()] = result.reply;
+            }
+            zip.putNextEntry(new ZipEntry(BATCH_RESULTS_ENTRY));
+            zip.write(jsonObjectMapper.writeValueAsBytes(replies));
+            zip.closeEntry();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new TransformException(INTERNAL_SERVER_ERROR.value(), "Interrupted while waiting for batch items", e);
+        }
+        finally
+        {
+            // Temporary files are removed when the request completes, so wait for any remaining items to finish
+            awaitBatchItems(results);
+        }
+        LogEntry.setTargetSize(outputStream.getCount());
+        LogEntry.setStatusCodeAndMessage(OK.value(),
+            "Success: " + succeeded + " of " + results.size() + " batch items");
+    }
+
+    /**
+     * '/transform/batch' endpoint which consumes and produces 'application/json'. Each of the requests is performed
+     * in the same way as by {@code /transform}, in parallel by the {@code batchTransformExecutor}. Requests with the
+     * same source (such as several renditions of a new document) only read it once from the Shared File Store or
+     * Direct Access Url.
+     *
+     * @param requests The transformation requests
+     * @param timeout  Milliseconds in which each request must complete. If not supplied, the timeout transform option
+     *                 of each request is used.
+     * @return A reply for each request, in the same order. The status of each reply indicates if it succeeded.
+     */
+    @PostMapping(value = ENDPOINT_TRANSFORM_BATCH, consumes = APPLICATION_JSON_VALUE, produces = APPLICATION_JSON_VALUE)
+    @ResponseBody
+    public ResponseEntity<List<TransformReply>> transformBatch(@RequestBody List<TransformRequest> requests,
+        @RequestParam(value = "timeout", required = false) Long timeout)
+    {
+        if (requests.size() > batchTransformMaxItems)
+        {
+            throw new TransformException(BAD_REQUEST.value(),
+                "A batch may not contain more than " + batchTransformMaxItems + " items");
+        }
+
+        final Map<List<String>, SharedSource> sharedSources = new HashMap<>();
+        final List<CompletableFuture<TransformReply>> replies = new ArrayList<>();
+        try
+        {
+            for (TransformRequest request : requests)
+            {
+                final SharedSource sharedSource = sharedSources.computeIfAbsent(getSourceKey(request),
+                    k -> new SharedSource());
+                final Deadline deadline = getDeadline(request, timeout);
+                replies.add(supplyBatchItem(() ->
+                {
+                    TransformReply reply = transform(request, timeout, deadline, sharedSource).getBody();
+                    LogEntry.setStatusCodeAndMessage(reply.getStatus(),
+                        reply.getErrorDetails() == null ? "Success" : reply.getErrorDetails());
+                    return reply;
+                }));
+            }
+            return ResponseEntity.ok(replies.stream().map(CompletableFuture::join).collect(toList()));
+        }
+        catch (RejectedExecutionException e)
+        {
+            throw new TransformException(TOO_MANY_REQUESTS.value(),
+                "Too many batch items are queued, please try again later", e);
+        }
+        finally
+        {
+            awaitBatchItems(replies);
+            sharedSources.values().forEach(SharedSource::delete);
+        }
+    }
+
+    /**
+     * @return identifies requests in a batch that may share a source file. The declared source extension and
+     * mimetype are included, as they determine the name of the file.
+     */
+    private static List<String> getSourceKey(TransformRequest request)
+    {
+        String directUrl = request.getTransformRequestOptions() == null ? ""
+            : request.getTransformRequestOptions().getOrDefault(DIRECT_ACCESS_URL, "");
+        return Arrays.asList(directUrl.isBlank() ? "ref:" + request.getSourceReference() : "url:" + directUrl,
+            request.getSourceExtension(), request.getSourceMediaType());
+    }
+
+    /**
+     * Runs one of the items of a {@code /transform/batch} request on the {@code batchTransformExecutor}, with the
+     * request's {@link ScratchSpace} directory. Each item has its own {@link LogEntry}, as the items of a request run
+     * at the same time.
+     *
+     * @throws RejectedExecutionException if the executor's queue is full.
+     */
+    private <T> CompletableFuture<T> supplyBatchItem(Supplier<T> item)
+    {
+        final ScratchSpace.Request scratchRequest = ScratchSpace.current();
+        return CompletableFuture.supplyAsync(() ->
+        {
+            LogEntry.start();
+            ScratchSpace.resume(scratchRequest);
+            try
+            {
+                return item.get();
+            }
+            finally
+            {
+                LogEntry.complete();
+                ScratchSpace.suspend();
+            }
+        }, batchTransformExecutor);
+    }
+
+    /**
+     * Waits for the items of a {@code /transform/batch} request that have been started, ignoring any failures.
+     */
+    private static void awaitBatchItems(List<? extends CompletableFuture<?>> items)
+    {
+        CompletableFuture.allOf(items.toArray(new CompletableFuture[0])).handle((result, t) -> null).join();
+    }
+
+    /**
+     * @return the item with values it does not include taken from the request parameters.
+     */
+    private BatchItem getBatchItem(BatchItem item, Map<String, String> requestParameters)
+    {
+        Map<String, String> transformOptions = new HashMap<>(requestParameters);
+        transformOptions.remove(BATCH_ITEMS);
+        if (item == null)
+        {
+            item = new BatchItem();
+        }
+        if (item.getTransformOptions() != null)
+        {
+            transformOptions.putAll(item.getTransformOptions());
+        }
+        return new BatchItem(
+            item.getSourceMimetype() != null ? item.getSourceMimetype() : requestParameters.get(SOURCE_MIMETYPE),
+            item.getTargetMimetype() != null ? item.getTargetMimetype() : requestParameters.get(TARGET_MIMETYPE),
+            item.getTargetExtension() != null ? item.getTargetExtension() : requestParameters.get(TARGET_EXTENSION),
+            getTransformOptions(transformOptions));
+    }
+
+    /**
+     * Performs one of the items in a {@code /transform/batch} request, in the same way as a {@code /transform}
+     * request, but without its per request debug. Failures are reported in the item's reply rather than thrown.
+     *
+     * @param sharedSourceFile if not {@code null}, the content of the sourceMultipartFile, which is shared with other
+     *                         items and so not deleted.
+     */
+    private BatchItemResult transformBatchItem(int index, MultipartFile sourceMultipartFile, File sharedSourceFile,
+                                               BatchItem item)
+    {
+        final String sourceFilename = sourceMultipartFile.getOriginalFilename();
+        final BatchItemResult result = new BatchItemResult(new BatchItemReply(index, sourceFilename));
+        try
+        {
+            if (item.getTargetExtension() == null)
+            {
+                throw new TransformException(BAD_REQUEST.value(),
+                    "Request parameter '" + TARGET_EXTENSION + "' is missing");
+            }
+            final String targetFilename = createTargetFileName(sourceFilename, item.getTargetExtension());
+            if (targetFilename == null)
+            {
+                throw new TransformException(BAD_REQUEST.value(), "The source filename was not supplied");
+            }
+            final Map<String, String> transformOptions = item.getTransformOptions();
+            final Deadline deadline = Deadline.after(transformOptions.get(TIMEOUT));
+            final long sourceSize = sourceMultipartFile.getSize();
+            LogEntry.setSource(sourceFilename, sourceSize);
+            LogEntry.setTarget(targetFilename);
+            final String sourceMimetype = item.getSourceMimetype();
+            final String targetMimetype = item.getTargetMimetype();
+            final String transformName = getTransformerName(sourceMimetype, targetMimetype, null, sourceSize,
+                transformOptions);
+            getProbeTestTransform().incrementTransformerCount();
+
+            final File targetFile = createTempFile("target_", "_" + targetFilename);
+            if (isStreaming(transformName, sourceMimetype, targetMimetype))
+            {
+                InputStream sourceStream = sharedSourceFile != null
+                    ? new BufferedInputStream(new FileInputStream(sharedSourceFile))
+                    : sourceMultipartFile.getInputStream();
+                result.targetContent = runStreamingTransform(transformName, sourceMimetype, targetMimetype,
+                    transformOptions, sourceStream, sourceSize, targetFile, deadline);
+            }
+            else if (sharedSourceFile != null)
+            {
+                runTransform(transformName, sourceMimetype, targetMimetype, transformOptions, sharedSourceFile,
+                    targetFile, deadline);
+            }
+            else
+            {
+                File sourceFile = createBatchSourceFile(sourceMultipartFile);
+                runTransform(transformName, sourceMimetype, targetMimetype, transformOptions, sourceFile, targetFile,
+                    deadline);
+                sourceFile.delete();
+            }
+            if (result.targetContent == null)
+            {
+                result.targetFile = targetFile;
+            }
+
+            result.reply.setStatus(OK.value());
+            result.reply.setTargetEntry(index + "/" + targetFilename);
+            result.reply.setTargetSize(result.targetContent != null ? result.targetContent.length
+                : targetFile.length());
+            LogEntry.setTargetSize(result.reply.getTargetSize());
+            LogEntry.setStatusCodeAndMessage(OK.value(), "Success");
+        }
+        catch (TransformException e)
+        {
+            logger.error("Batch item {} failed: {}", index, e.getMessage());
+            result.reply.setStatus(e.getStatusCode());
+            result.reply.setErrorDetails(e.getMessage());
+            LogEntry.setStatusCodeAndMessage(e.getStatusCode(), e.getMessage());
+        }
+        catch (Exception e)
+        {
+            logger.error("Batch item {} failed", index, e);
+            result.reply.setStatus(INTERNAL_SERVER_ERROR.value());
+            result.reply.setErrorDetails(messageWithCause("Failed at processing transformation", e));
+            LogEntry.setStatusCodeAndMessage(INTERNAL_SERVER_ERROR.value(), result.reply.getErrorDetails());
         }
-        catch (IllegalArgumentException e)
+        return result;
+    }
+
+    /**
+     * The reply to one of the items in a {@code /transform/batch} request, and its target if it succeeded.
+     */
+    private static class BatchItemResult
+    {
+        private final BatchItemReply reply;
+        private byte[] targetContent;
+        private File targetFile;
+
+        private BatchItemResult(BatchItemReply reply)
         {
-            throw new TransformException(BAD_REQUEST.value(), "Direct Access Url is invalid.", e);
+            this.reply = reply;
+        }
+    }
+
+    /**
+     * Calls {@link #transformImpl(String, String, String, Map, File, File)} once a permit has been obtained from the
+     * {@link TransformPermits} pool for the transformer or its T-Engine. The transform is interrupted if the
+     * deadline expires, and the time remaining is passed to the transformer as the {@code timeout} transform option,
+     * so that any external process is also stopped. If the {@link TransformResultCache} is enabled and already
+     * contains the result, the transform is skipped. If the {@link TransformCoalescer} is enabled and an identical
+     * transform is already running, its result is used. Neither is used for sources larger than
+     * {@code transform-cache.maxSourceSize} bytes, to avoid reading the whole source to create the {@link TransformKey}.
+     */
+    private void runTransform(String transformName, String sourceMimetype, String targetMimetype,
+                              Map<String, String> transformOptions, File sourceFile, File targetFile,
+                              Deadline deadline)
+    {
+        if ((transformResultCache.isEnabled() || transformCoalescer.isEnabled()) &&
+            sourceFile.length() <= cacheMaxSourceSize)
+        {
+            String key = TransformKey.create(sourceFile, transformName, sourceMimetype, targetMimetype,
+                transformOptions);
+            if (!transformResultCache.get(key, targetFile))
+            {
+                transformCoalescer.transform(key, targetFile, deadline, file ->
+                {
+                    transformWithPermit(transformName, transformOptions, deadline, options -> transformImpl(
+                        transformName, sourceMimetype, targetMimetype, options, sourceFile, file));
+                    transformResultCache.put(key, file);
+                });
+            }
+        }
+        else
+        {
+            transformWithPermit(transformName, transformOptions, deadline, options -> transformImpl(
+                transformName, sourceMimetype, targetMimetype, options, sourceFile, targetFile));
+        }
+    }
+
+    /**
+     * Streaming equivalent of {@link #runTransform(String, String, String, Map, File, File, Deadline)}, which calls
+     * {@link #transformImpl(String, String, String, Map, InputStream, OutputStream)}, so that the source is not
+     * written to a temporary file. If the source is no larger than {@code in-memory.threshold} bytes, the target is
+     * also held in memory, unless it exceeds {@code in-memory.maxTargetSize} bytes.
+     *
+     * @return the target content if it was held in memory, or {@code null} if it was written to the targetFile.
+     */
+    private byte[] runStreamingTransform(String transformName, String sourceMimetype, String targetMimetype,
+                                         Map<String, String> transformOptions, InputStream sourceStream,
+                                         long sourceSize, File targetFile, Deadline deadline)
+    {
+        DeferredFileOutputStream deferredStream = inMemoryThreshold > 0 && sourceSize <= inMemoryThreshold
+            ? new DeferredFileOutputStream(inMemoryMaxTargetSize, targetFile)
+            : null;
+        try (InputStream inputStream = sourceStream;
+             OutputStream outputStream = deferredStream != null
+                 ? deferredStream
+                 : new BufferedOutputStream(new FileOutputStream(targetFile)))
+        {
+            transformWithPermit(transformName, transformOptions, deadline, options -> transformImpl(
+                transformName, sourceMimetype, targetMimetype, options, inputStream, outputStream));
         }
         catch (IOException e)
         {
-            throw new TransformException(BAD_REQUEST.value(), "Direct Access Url not found.", e);
+            throw new TransformException(INSUFFICIENT_STORAGE.value(), "Failed to store the target file", e);
+        }
+        long targetSize = deferredStream != null ? deferredStream.getSize() : targetFile.length();
+        if (sourceSize > 0 && targetSize == 0)
+        {
+            throw new TransformException(INTERNAL_SERVER_ERROR.value(),
+                "Transformer failed to create an output file. Target file is empty but source file was not empty.");
         }
+        return deferredStream != null && deferredStream.isInMemory() ? deferredStream.toByteArray() : null;
+    }
+
+    /**
+     * Streams the target directly into the HTTP response as it is written by the transformer, so the client starts
+     * receiving content (using chunked transfer encoding) before the transform completes and the target is never held
+     * in memory or a file. Once the first bytes have been sent the status can no longer be changed, so a failure
+     * after that point causes the connection to be closed without completing the response.
+     *
+     * @return the size of the target.
+     */
+    private long transformToResponse(String transformName, String sourceMimetype, String targetMimetype,
+                                     Map<String, String> transformOptions, InputStream sourceStream,
+                                     long sourceSize, String targetFilename, HttpServletResponse response,
+                                     Deadline deadline)
+    {
+        String targetEncoding = transformOptions.get(TARGET_ENCODING);
+        response.setStatus(OK.value());
+        response.setContentType(targetEncoding == null ? targetMimetype
+            : targetMimetype + ";charset=" + targetEncoding);
+        response.setHeader(CONTENT_DISPOSITION, getContentDisposition(targetFilename));
+        // The output stream is not closed or flushed until the transform succeeds, as that would commit the response
+        try (InputStream inputStream = sourceStream)
+        {
+            CountingOutputStream outputStream = new CountingOutputStream(response.getOutputStream());
+            transformWithPermit(transformName, transformOptions, deadline, options -> transformImpl(
+                transformName, sourceMimetype, targetMimetype, options, inputStream, outputStream));
+            if (sourceSize > 0 && outputStream.getCount() == 0)
+            {
+                throw new TransformException(INTERNAL_SERVER_ERROR.value(),
+                    "Transformer failed to create an output file. Target file is empty but source file was not empty.");
+            }
+            response.flushBuffer();
+            return outputStream.getCount();
+        }
+        catch (IOException e)
+        {
+            // Normally the client has closed the connection
+            throw new TransformException(INTERNAL_SERVER_ERROR.value(), "Failed to write the target", e);
+        }
+        catch (RuntimeException e)
+        {
+            // Nothing has been sent, so clear the headers set above before the error is returned
+            if (!response.isCommitted())
+            {
+                response.reset();
+            }
+            throw e;
+        }
+    }
+
+    /**
+     * @return {@code true} if the target should be streamed directly into the response (or the Shared File Store),
+     * rather than being written to a file first.
+     */
+    private boolean isStreamingResponse(String targetMimetype)
+    {
+        return streamingResponseEnabled && streamingResponseTargetMimetypes.contains(targetMimetype);
+    }
+
+    /**
+     * @return {@code true} if the transform should be performed using streams. The {@link TransformResultCache} and
+     * {@link TransformCoalescer} identify transforms by the content of the source file, so streaming is not used if
+     * either is enabled.
+     */
+    private boolean isStreaming(String transformName, String sourceMimetype, String targetMimetype)
+    {
+        return !transformResultCache.isEnabled() && !transformCoalescer.isEnabled() &&
+            isStreamingSupported(transformName, sourceMimetype, targetMimetype);
+    }
+
+    private void transformWithPermit(String transformName, Map<String, String> transformOptions, Deadline deadline,
+                                     Consumer<Map<String, String>> transform)
+    {
+        try (TransformPermits.Permit permit = transformPermits.acquire(transformName, getTransformerId(transformName)))
+        {
+            deadline.run("The transform", () ->
+            {
+                // A copy, so that the request's options are not changed
+                Map<String, String> options = new HashMap<>(transformOptions);
+                if (deadline.isSet())
+                {
+                    options.put(TIMEOUT, String.valueOf(Math.max(1, deadline.getRemaining())));
+                }
+                transform.accept(options);
+            });
+        }
+    }
+
+    /**
+     * @return the id of the T-Engine that performs the named transform, used to limit the number of concurrent
+     * transforms when there is no limit for the transformName itself. Defaults to {@code null}, as a T-Engine only
+     * contains one.
+     */
+    protected String getTransformerId(String transformName)
+    {
+        return null;
+    }
 
+    private File getSourceFileFromDirectUrl(String directUrl)
+    {
+        File sourceFile = createTempFile("tmp", ".tmp");
+        directAccessUrlClient.download(directUrl, sourceFile);
         return sourceFile;
     }
 
@@ -261,13 +1020,46 @@ public abstract class AbstractTransformerController implements TransformControll
      * instead of the one which produces 'html'
      *
      * @param request The transformation request
-     * @param timeout Transformation timeout
+     * @param timeout Milliseconds in which the request must complete. If not supplied, the timeout transform option
+     *                is used.
      * @return A transformation reply
      */
     @PostMapping(value = ENDPOINT_TRANSFORM, produces = APPLICATION_JSON_VALUE)
     @ResponseBody
     public ResponseEntity<TransformReply> transform(@RequestBody TransformRequest request,
         @RequestParam(value = "timeout", required = false) Long timeout)
+    {
+        return transform(request, timeout, getDeadline(request, timeout));
+    }
+
+    private static Deadline getDeadline(TransformRequest request, Long timeout)
+    {
+        if (timeout == null && request.getTransformRequestOptions() != null)
+        {
+            try
+            {
+                return Deadline.after(request.getTransformRequestOptions().get(TIMEOUT));
+            }
+            catch (TransformException e)
+            {
+                // An invalid option is reported by the transformer that uses it
+                return Deadline.NONE;
+            }
+        }
+        return Deadline.after(timeout);
+    }
+
+    private ResponseEntity<TransformReply> transform(TransformRequest request, Long timeout, Deadline deadline)
+    {
+        return transform(request, timeout, deadline, null);
+    }
+
+    /**
+     * @param sharedSource if not {@code null}, the source is read via a {@link SharedSource}, as other requests in
+     *                     the same batch have the same source. It is then not deleted by this method.
+     */
+    private ResponseEntity<TransformReply> transform(TransformRequest request, Long timeout, Deadline deadline,
+                                                     SharedSource sharedSource)
     {
         logger.trace("Received {}, timeout {} ms", request, timeout);
 
@@ -300,15 +1092,9 @@ public abstract class AbstractTransformerController implements TransformControll
         File sourceFile;
         try
         {
-            final String directUrl = request.getTransformRequestOptions().getOrDefault(DIRECT_ACCESS_URL, "");
-            if (directUrl.isBlank())
-            {
-                sourceFile = loadSourceFile(request.getSourceReference(), request.getSourceExtension());
-            }
-            else
-            {
-                sourceFile = getSourceFileFromDirectUrl(directUrl);
-            }
+            sourceFile = sharedSource == null
+                ? loadSourceFile(request, deadline)
+                : sharedSource.get(request, deadline);
         }
         catch (TransformException e)
         {
@@ -338,21 +1124,45 @@ public abstract class AbstractTransformerController implements TransformControll
             return new ResponseEntity<>(reply, HttpStatus.valueOf(reply.getStatus()));
         }
 
+        final File ownedSourceFile = sharedSource == null ? sourceFile : null;
+
         // Create local temp target file in order to run the transformation
         final String targetFilename = createTargetFileName(sourceFile.getName(),
             request.getTargetExtension());
         final File targetFile = buildFile(targetFilename);
 
-        // Run the transformation
+        // Run the transformation. Streamed targets are written to the Shared File Store at the same time.
+        FileRefResponse targetRef = null;
         try
         {
             String targetMimetype = request.getTargetMediaType();
             String sourceMimetype = request.getSourceMediaType();
             Map<String, String> transformOptions = getTransformOptions(request.getTransformRequestOptions());
             transformerDebug.logOptions(request);
-            String transformName = getTransformerName(sourceFile, sourceMimetype, targetMimetype, transformOptions);
-            transformImpl(transformName, sourceMimetype, targetMimetype, transformOptions, sourceFile, targetFile);
-            reply.getInternalContext().setCurrentSourceSize(targetFile.length());
+            String transformName = getTransformerName(sourceFile.length(), sourceMimetype, targetMimetype,
+                transformOptions);
+            if (isStreamingResponse(targetMimetype) && isStreaming(transformName, sourceMimetype, targetMimetype))
+            {
+                AtomicLong targetSize = new AtomicLong();
+                targetRef = alfrescoSharedFileStoreClient.saveStream(targetFilename, targetMimetype, body ->
+                {
+                    try (InputStream inputStream = new BufferedInputStream(new FileInputStream(sourceFile));
+                         CountingOutputStream outputStream = new CountingOutputStream(body))
+                    {
+                        transformWithPermit(transformName, transformOptions, deadline, options -> transformImpl(
+                            transformName, sourceMimetype, targetMimetype, options, inputStream,
+                            outputStream));
+                        targetSize.set(outputStream.getCount());
+                    }
+                });
+                reply.getInternalContext().setCurrentSourceSize(targetSize.get());
+            }
+            else
+            {
+                runTransform(transformName, sourceMimetype, targetMimetype, transformOptions, sourceFile, targetFile,
+                    deadline);
+                reply.getInternalContext().setCurrentSourceSize(targetFile.length());
+            }
         }
         catch (TransformException e)
         {
@@ -361,6 +1171,13 @@ public abstract class AbstractTransformerController implements TransformControll
 
             transformerDebug.logFailure(reply);
             logger.trace("Failed to perform transform (TransformException), sending " + reply, e);
+            deleteTempFiles(ownedSourceFile, targetFile);
+            if (e instanceof TooManyTransformsException)
+            {
+                return ResponseEntity.status(reply.getStatus())
+                    .header(RETRY_AFTER, String.valueOf(((TooManyTransformsException) e).getRetryAfterSeconds()))
+                    .body(reply);
+            }
             return new ResponseEntity<>(reply, HttpStatus.valueOf(reply.getStatus()));
         }
         catch (Exception e)
@@ -370,14 +1187,18 @@ public abstract class AbstractTransformerController implements TransformControll
 
             transformerDebug.logFailure(reply);
             logger.trace("Failed to perform transform (Exception), sending " + reply, e);
+            deleteTempFiles(ownedSourceFile, targetFile);
             return new ResponseEntity<>(reply, HttpStatus.valueOf(reply.getStatus()));
         }
 
         // Write the target file
-        FileRefResponse targetRef;
         try
         {
-            targetRef = alfrescoSharedFileStoreClient.saveFile(targetFile);
+            if (targetRef == null)
+            {
+                targetRef = deadline.get("Writing the target",
+                    () -> alfrescoSharedFileStoreClient.saveFile(targetFile));
+            }
         }
         catch (TransformException e)
         {
@@ -386,6 +1207,7 @@ public abstract class AbstractTransformerController implements TransformControll
 
             transformerDebug.logFailure(reply);
             logger.trace("Failed to save target file (TransformException), sending " + reply, e);
+            deleteTempFiles(ownedSourceFile, targetFile);
             return new ResponseEntity<>(reply, HttpStatus.valueOf(reply.getStatus()));
         }
         catch (HttpClientErrorException e)
@@ -395,6 +1217,7 @@ public abstract class AbstractTransformerController implements TransformControll
 
             transformerDebug.logFailure(reply);
             logger.trace("Failed to save target file (HttpClientErrorException), sending " + reply, e);
+            deleteTempFiles(ownedSourceFile, targetFile);
             return new ResponseEntity<>(reply, HttpStatus.valueOf(reply.getStatus()));
         }
         catch (Exception e)
@@ -404,18 +1227,43 @@ public abstract class AbstractTransformerController implements TransformControll
 
             transformerDebug.logFailure(reply);
             logger.trace("Failed to save target file (Exception), sending " + reply, e);
+            deleteTempFiles(ownedSourceFile, targetFile);
             return new ResponseEntity<>(reply, HttpStatus.valueOf(reply.getStatus()));
         }
 
-        try
+        deleteTempFiles(ownedSourceFile, targetFile);
+
+        reply.setTargetReference(targetRef.getEntry().getFileRef());
+        reply.setStatus(CREATED.value());
+
+        transformerDebug.popTransform(reply);
+        logger.trace("Sending successful {}, timeout {} ms", reply, timeout);
+        return new ResponseEntity<>(reply, HttpStatus.valueOf(reply.getStatus()));
+    }
+
+    private static void deleteTempFiles(File sourceFile, File targetFile)
+    {
+        // The target will not exist if the transform failed
+        if (targetFile.exists())
         {
-            deleteFile(targetFile);
+            try
+            {
+                deleteFile(targetFile);
+            }
+            catch (Exception e)
+            {
+                logger.error("Failed to delete local temp target file '{}'. Error will be ignored ",
+                    targetFile, e);
+            }
         }
-        catch (Exception e)
+        if (sourceFile != null)
         {
-            logger.error("Failed to delete local temp target file '{}'. Error will be ignored ",
-                targetFile, e);
+            deleteSourceFile(sourceFile);
         }
+    }
+
+    private static void deleteSourceFile(File sourceFile)
+    {
         try
         {
             deleteFile(sourceFile);
@@ -424,13 +1272,103 @@ public abstract class AbstractTransformerController implements TransformControll
         {
             logger.error("Failed to delete source local temp file " + sourceFile, e);
         }
+    }
 
-        reply.setTargetReference(targetRef.getEntry().getFileRef());
-        reply.setStatus(CREATED.value());
+    private File loadSourceFile(TransformRequest request, Deadline deadline)
+    {
+        final String directUrl = request.getTransformRequestOptions().getOrDefault(DIRECT_ACCESS_URL, "");
+        return deadline.get("Reading the source", () -> directUrl.isBlank()
+            ? loadSourceFile(request.getSourceReference(), request.getSourceExtension())
+            : getSourceFileFromDirectUrl(directUrl));
+    }
 
-        transformerDebug.popTransform(reply);
-        logger.trace("Sending successful {}, timeout {} ms", reply, timeout);
-        return new ResponseEntity<>(reply, HttpStatus.valueOf(reply.getStatus()));
+    /**
+     * The source of several JSON requests in a {@code /transform/batch} request, which is only read (from the Shared
+     * File Store or a Direct Access Url) by the first request to use it. Other requests wait for it within their own
+     * deadline. If reading fails, the other requests report the same failure rather than trying again, unless the
+     * failure was specific to the request that read it (such as its own timeout), in which case the next request
+     * tries again within its deadline.
+     */
+    private class SharedSource
+    {
+        private File sourceFile;
+        private RuntimeException failure;
+        private boolean loading;
+
+        private File get(TransformRequest request, Deadline deadline)
+        {
+            synchronized (this)
+            {
+                while (loading)
+                {
+                    deadline.check("Waiting for the source");
+                    try
+                    {
+                        wait(Math.max(1, deadline.getRemaining()));
+                    }
+                    catch (InterruptedException e)
+                    {
+                        Thread.currentThread().interrupt();
+                        throw new TransformException(INTERNAL_SERVER_ERROR.value(),
+                            "Interrupted while waiting for the source", e);
+                    }
+                }
+                if (failure != null)
+                {
+                    throw failure;
+                }
+                if (sourceFile != null)
+                {
+                    return sourceFile;
+                }
+                loading = true;
+            }
+
+            File file = null;
+            try
+            {
+                file = loadSourceFile(request, deadline);
+                return file;
+            }
+            catch (RuntimeException e)
+            {
+                if (!isRetryable(e))
+                {
+                    synchronized (this)
+                    {
+                        failure = e;
+                    }
+                }
+                throw e;
+            }
+            finally
+            {
+                synchronized (this)
+                {
+                    sourceFile = file;
+                    loading = false;
+                    notifyAll();
+                }
+            }
+        }
+
+        private boolean isRetryable(RuntimeException e)
+        {
+            if (e instanceof TransformException)
+            {
+                int statusCode = ((TransformException) e).getStatusCode();
+                return statusCode == REQUEST_TIMEOUT.value() || statusCode == TOO_MANY_REQUESTS.value();
+            }
+            return false;
+        }
+
+        private synchronized void delete()
+        {
+            if (sourceFile != null)
+            {
+                deleteSourceFile(sourceFile);
+            }
+        }
     }
 
     private Errors validateTransformRequest(final TransformRequest transformRequest)
@@ -483,7 +1421,7 @@ public abstract class AbstractTransformerController implements TransformControll
             logger.warn(message);
             throw new TransformException(BAD_REQUEST.value(), message);
         }
-        final File file = createTempFile("source_", "." + extension);
+        final File file = createTempFile("source_", "." + extension, size);
 
         logger.debug("Read source content {} length={} contentType={}",
             sourceReference, size, contentType);
@@ -512,14 +1450,14 @@ public abstract class AbstractTransformerController implements TransformControll
     }
 
     private String getTransformerName(String sourceMimetype, String targetMimetype,
-                                      String requestTransformName, File sourceFile,
+                                      String requestTransformName, long sourceSizeInBytes,
                                       Map<String, String> transformOptions)
     {
         // Check if transformName was provided in the request (this can happen for ACS legacy transformers)
         String transformName = requestTransformName;
         if (transformName == null || transformName.isEmpty())
         {
-            transformName = getTransformerName(sourceFile, sourceMimetype, targetMimetype, transformOptions);
+            transformName = getTransformerName(sourceSizeInBytes, sourceMimetype, targetMimetype, transformOptions);
         }
         else if (logger.isInfoEnabled())
         {
@@ -528,7 +1466,19 @@ public abstract class AbstractTransformerController implements TransformControll
         return transformName;
     }
 
-    protected String getTransformerName(final File sourceFile, final String sourceMimetype,
+    /**
+     * @deprecated The transformer is selected before the source is written to a file, so this method is no longer
+     * called. It is final so that subclasses which override it fail to compile rather than being silently ignored.
+     * Override {@link #getTransformerName(long, String, String, Map)} instead.
+     */
+    @Deprecated
+    protected final String getTransformerName(final File sourceFile, final String sourceMimetype,
+        final String targetMimetype, final Map<String, String> transformOptions)
+    {
+        return getTransformerName(sourceFile.length(), sourceMimetype, targetMimetype, transformOptions);
+    }
+
+    protected String getTransformerName(final long sourceSizeInBytes, final String sourceMimetype,
         final String targetMimetype, final Map<String, String> transformOptions)
     {
         // The transformOptions always contains sourceEncoding when sent to a T-Engine, even though it should not be
@@ -537,7 +1487,6 @@ public abstract class AbstractTransformerController implements TransformControll
         String sourceEncoding = transformOptions.remove(SOURCE_ENCODING);
         try
         {
-            final long sourceSizeInBytes = sourceFile.length();
             final String transformerName = transformRegistry.findTransformerName(sourceMimetype,
                     sourceSizeInBytes, targetMimetype, transformOptions, null);
             if (transformerName == null)
@@ -26,6 +26,8 @@
  */
 package org.alfresco.transformer;
 
+import static org.alfresco.transformer.fs.FileManager.TempFileProvider.getScratchSpace;
+import static org.alfresco.transformer.throttling.TransformPermits.waitingForPermits;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
 
@@ -38,7 +40,10 @@ import javax.jms.Message;
 import org.alfresco.transform.client.model.TransformReply;
 import org.alfresco.transform.client.model.TransformRequest;
 import org.alfresco.transform.exceptions.TransformException;
+import org.alfresco.transformer.fs.ScratchSpace;
+import org.alfresco.transformer.messaging.JmsConcurrencyController;
 import org.alfresco.transformer.messaging.TransformMessageConverter;
+import org.alfresco.transformer.messaging.TransformMessageConverter.Encoding;
 import org.alfresco.transformer.messaging.TransformReplySender;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -75,6 +80,9 @@ public class QueueTransformService
     @Autowired
     private TransformReplySender transformReplySender;
 
+    @Autowired
+    private JmsConcurrencyController jmsConcurrencyController;
+
     @JmsListener(destination = "${queue.engineRequestQueue}", concurrency = "${jms-listener.concurrency}")
     public void receive(final Message msg)
     {
@@ -108,6 +116,9 @@ public class QueueTransformService
 
         logger.trace("New T-Request from queue with correlationId: {}", correlationId);
 
+        // Reply using the same encoding as the request
+        final Encoding encoding = TransformMessageConverter.getEncoding(msg);
+
         Optional<TransformRequest> transformRequest;
         try
         {
@@ -117,7 +128,7 @@ public class QueueTransformService
         {
             logger.error(e.getMessage(), e);
             replyWithError(replyToDestinationQueue, HttpStatus.valueOf(e.getStatusCode()),
-                e.getMessage(), correlationId);
+                e.getMessage(), correlationId, encoding);
             return;
         }
 
@@ -125,14 +136,24 @@ public class QueueTransformService
         {
             logger.error("T-Request from message with correlationID {} is null!", correlationId);
             replyWithInternalSvErr(replyToDestinationQueue,
-                "JMS exception during T-Request deserialization: ", correlationId);
+                "JMS exception during T-Request deserialization: ", correlationId, encoding);
             return;
         }
 
-        TransformReply reply = transformController.transform(transformRequest.get(), null)
-                                                  .getBody();
+        TransformReply reply;
+        long startTime = jmsConcurrencyController.transformStarted();
+        try (ScratchSpace.Request scratchRequest = getScratchSpace().startRequest())
+        {
+            // A message that has been taken from the queue may not be rejected with a 429, as the client would see
+            // a failed transform, so it waits for a permit. The listener concurrency limits the number waiting.
+            reply = waitingForPermits(() -> transformController.transform(transformRequest.get(), null).getBody());
+        }
+        finally
+        {
+            jmsConcurrencyController.transformFinished(startTime, transformRequest.get());
+        }
 
-        transformReplySender.send(replyToDestinationQueue, reply);
+        transformReplySender.send(replyToDestinationQueue, reply, encoding);
     }
 
     /**
@@ -176,14 +197,14 @@ public class QueueTransformService
     }
 
     private void replyWithInternalSvErr(final Destination destination, final String msg,
-        final String correlationId)
+        final String correlationId, final Encoding encoding)
     {
-        replyWithError(destination, INTERNAL_SERVER_ERROR, msg, correlationId);
+        replyWithError(destination, INTERNAL_SERVER_ERROR, msg, correlationId, encoding);
     }
 
     private void replyWithError(final Destination destination, final HttpStatus status,
         final String msg,
-        final String correlationId)
+        final String correlationId, final Encoding encoding)
     {
         final TransformReply reply = TransformReply
             .builder()
@@ -191,7 +212,7 @@ public class QueueTransformService
             .withErrorDetails(msg)
             .build();
 
-        transformReplySender.send(destination, reply, correlationId);
+        transformReplySender.send(destination, reply, correlationId, encoding);
     }
 
     private static String tryRetrieveCorrelationId(final Message msg)
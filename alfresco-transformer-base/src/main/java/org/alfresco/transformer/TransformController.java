@@ -27,10 +27,14 @@
 package org.alfresco.transformer;
 
 import static java.text.MessageFormat.format;
+import static org.springframework.http.HttpHeaders.RETRY_AFTER;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
 
 import java.io.File;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
 import java.util.Collection;
 import java.util.Map;
 
@@ -42,6 +46,7 @@ import org.alfresco.transform.client.model.TransformRequest;
 import org.alfresco.transform.exceptions.TransformException;
 import org.alfresco.transformer.logging.LogEntry;
 import org.alfresco.transformer.probes.ProbeTestTransform;
+import org.alfresco.transformer.throttling.TooManyTransformsException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.TypeMismatchException;
@@ -76,6 +81,31 @@ public interface TransformController
     void transformImpl(String transformName, String sourceMimetype, String targetMimetype,
                        Map<String, String> transformOptions, File sourceFile, File targetFile);
 
+    /**
+     * @return {@code true} if the named transform may be performed by
+     * {@link #transformImpl(String, String, String, Map, InputStream, OutputStream)}, so that the source does not
+     * need to be written to a temporary file. Defaults to {@code false}.
+     */
+    default boolean isStreamingSupported(String transformName, String sourceMimetype, String targetMimetype)
+    {
+        return false;
+    }
+
+    /**
+     * Stream based equivalent of {@link #transformImpl(String, String, String, Map, File, File)}, which should be
+     * overridden along with {@link #isStreamingSupported(String, String, String)}. Neither stream is closed.
+     *
+     * @param sourceStream the source content
+     * @param targetStream to which the target content is written
+     */
+    default void transformImpl(String transformName, String sourceMimetype, String targetMimetype,
+                               Map<String, String> transformOptions, InputStream sourceStream,
+                               OutputStream targetStream)
+    {
+        throw new TransformException(INTERNAL_SERVER_ERROR.value(),
+            getTransformerName() + " does not support streaming transforms");
+    }
+
     /**
      * @deprecated use {@link #transformImpl(String, String, String, Map, File, File)} and timeout should be part of
      * the transformOptions created from the TransformRequest.
@@ -98,6 +128,16 @@ public interface TransformController
      */
     String getTransformerName();
 
+    /**
+     * @return the number of transforms the T-Engine is able to perform at the same time without them competing for
+     * resources, such as the number of external processes it uses. Used as the starting point when the number of JMS
+     * consumers is adjusted. Defaults to the number of available processors.
+     */
+    default int getParallelism()
+    {
+        return Runtime.getRuntime().availableProcessors();
+    }
+
     /**
      * Provides the Kubernetes pod probes.
      */
@@ -217,6 +257,18 @@ public interface TransformController
         long time = LogEntry.setStatusCodeAndMessage(statusCode, message);
         getProbeTestTransform().recordTransformTime(time);
 
+        // Part of a streamed target has already been sent, so the status can no longer be changed. Rethrowing the
+        // exception causes the servlet container to close the connection without completing the response.
+        if (response.isCommitted())
+        {
+            throw e;
+        }
+
+        if (e instanceof TooManyTransformsException)
+        {
+            response.setHeader(RETRY_AFTER,
+                String.valueOf(((TooManyTransformsException) e).getRetryAfterSeconds()));
+        }
         response.sendError(statusCode, getTransformerName() + " - " + message);
     }
 
@@ -26,31 +26,58 @@
  */
 package org.alfresco.transformer;
 
+import static javax.servlet.DispatcherType.ASYNC;
 import static org.alfresco.transformer.fs.FileManager.SOURCE_FILE;
+import static org.alfresco.transformer.fs.FileManager.TempFileProvider.getScratchSpace;
 import static org.alfresco.transformer.fs.FileManager.TARGET_FILE;
 import static org.alfresco.transformer.fs.FileManager.deleteFile;
 
 import javax.servlet.http.HttpServletRequest;
 import javax.servlet.http.HttpServletResponse;
 
+import org.alfresco.transformer.fs.ScratchSpace;
 import org.alfresco.transformer.logging.LogEntry;
 import org.springframework.web.servlet.handler.HandlerInterceptorAdapter;
 
 /**
  * TransformInterceptor
  * <br/>
- * Handles ThreadLocal Log entries for each request.
+ * Handles ThreadLocal Log entries and {@link ScratchSpace} requests for each request. When a request is processed
+ * asynchronously, they are suspended when the container Thread is released and resumed when the result is
+ * dispatched.
  */
 public class TransformInterceptor extends HandlerInterceptorAdapter
 {
+    private static final String LOG_ENTRY = "logEntry";
+    private static final String SCRATCH_REQUEST = "scratchRequest";
+
     @Override
     public boolean preHandle(HttpServletRequest request,
         HttpServletResponse response, Object handler)
     {
-        LogEntry.start();
+        LogEntry logEntry = (LogEntry) request.getAttribute(LOG_ENTRY);
+        if (request.getDispatcherType() == ASYNC && logEntry != null)
+        {
+            LogEntry.resume(logEntry);
+            ScratchSpace.resume((ScratchSpace.Request) request.getAttribute(SCRATCH_REQUEST));
+        }
+        else
+        {
+            LogEntry.start();
+            getScratchSpace().startRequest();
+        }
         return true;
     }
 
+    @Override
+    public void afterConcurrentHandlingStarted(HttpServletRequest request,
+        HttpServletResponse response, Object handler)
+    {
+        // The source and target files are still in use, so are not deleted yet.
+        request.setAttribute(LOG_ENTRY, LogEntry.suspend());
+        request.setAttribute(SCRATCH_REQUEST, ScratchSpace.suspend());
+    }
+
     @Override
     public void afterCompletion(HttpServletRequest request,
         HttpServletResponse response, Object handler, Exception ex)
@@ -58,6 +85,11 @@ public class TransformInterceptor extends HandlerInterceptorAdapter
         // TargetFile cannot be deleted until completion, otherwise 0 bytes are sent.
         deleteFile(request, SOURCE_FILE);
         deleteFile(request, TARGET_FILE);
+        ScratchSpace.Request scratchRequest = ScratchSpace.suspend();
+        if (scratchRequest != null)
+        {
+            scratchRequest.close();
+        }
 
         LogEntry.complete();
     }
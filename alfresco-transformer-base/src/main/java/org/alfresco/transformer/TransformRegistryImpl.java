@@ -26,19 +26,26 @@
 package org.alfresco.transformer;
 
 import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.util.concurrent.TimeUnit.SECONDS;
 import static org.alfresco.transform.client.model.config.CoreVersionDecorator.setCoreVersionOnSingleStepTransformers;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
 
+import java.io.ByteArrayInputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.io.InputStreamReader;
 import java.io.Reader;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
 
 import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
 
 import org.alfresco.transform.client.model.config.TransformConfig;
 import org.alfresco.transform.client.registry.AbstractTransformRegistry;
 import org.alfresco.transform.client.registry.CombinedTransformConfig;
-import org.alfresco.transform.client.registry.TransformCache;
 import org.alfresco.transform.exceptions.TransformException;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
@@ -50,7 +57,9 @@ import com.fasterxml.jackson.databind.ObjectMapper;
 import org.springframework.core.io.ResourceLoader;
 
 /**
- * Used by clients to work out if a transformation is supported based on the engine_config.json.
+ * Used by clients to work out if a transformation is supported based on the engine_config.json. If
+ * {@code transform.core.config.reloadInterval} is set, the config is checked for changes every that many seconds, so
+ * that it may be changed without restarting the T-Engine.
  */
 public class TransformRegistryImpl extends AbstractTransformRegistry
 {
@@ -65,26 +74,109 @@ public class TransformRegistryImpl extends AbstractTransformRegistry
     @Value("${transform.core.version}")
     private String coreVersion;
 
+    @Value("${transform.core.config.reloadInterval:0}")
+    private long reloadInterval;
+
     private Resource engineConfig;
 
+    private final ObjectMapper jsonObjectMapper = new ObjectMapper();
+
+    // The content of the engine config that was last loaded, used to detect changes.
+    private byte[] engineConfigContent;
+
+    // The config returned by getTransformConfig, which is the one the registry's data was built from.
+    private volatile TransformConfig transformConfig;
+
+    private volatile int configVersion = 0;
+    private volatile Instant configLoadTime;
+
+    private ScheduledExecutorService reloader;
+
     @PostConstruct
     public void afterPropertiesSet()
     {
         engineConfig = resourceLoader.getResource(locationFromProperty);
-        TransformConfig transformConfig = getTransformConfig();
-        // There is only one TransformConfig in a T-Engine so the following call is fine
-        CombinedTransformConfig.combineAndRegister(transformConfig, locationFromProperty, "---", this);
+        load(readEngineConfig());
+
+        if (reloadInterval > 0)
+        {
+            reloader = Executors.newSingleThreadScheduledExecutor(runnable ->
+            {
+                Thread thread = new Thread(runnable, "engine-config-reload");
+                thread.setDaemon(true);
+                return thread;
+            });
+            reloader.scheduleWithFixedDelay(this::reloadIfChanged, reloadInterval, reloadInterval, SECONDS);
+        }
     }
 
-    // Holds the structures used by AbstractTransformRegistry to look up what is supported.
-    // Unlike other sub classes this class does not extend Data or replace it at run time.
-    private TransformCache data = new TransformCache();
+    @PreDestroy
+    public void close()
+    {
+        if (reloader != null)
+        {
+            reloader.shutdownNow();
+        }
+    }
 
-    private ObjectMapper jsonObjectMapper = new ObjectMapper();
+    /**
+     * Reads the engine config again and if it has changed, rebuilds the registry's data from it. Called periodically
+     * when {@code transform.core.config.reloadInterval} is set, off the request path. Requests continue to use the
+     * previous data until the new data replaces it. If the new config cannot be read, the previous data is retained.
+     *
+     * @return {@code true} if the config had changed and was reloaded.
+     */
+    synchronized boolean reloadIfChanged()
+    {
+        try
+        {
+            byte[] content = readEngineConfig();
+            if (Arrays.equals(content, engineConfigContent))
+            {
+                return false;
+            }
+            load(content);
+            log.info("Reloaded {} as version {}", locationFromProperty, configVersion);
+            return true;
+        }
+        catch (RuntimeException e)
+        {
+            log.error("Failed to reload " + locationFromProperty + ". The previous config is still being used.", e);
+            return false;
+        }
+    }
 
-    TransformConfig getTransformConfig()
+    private synchronized void load(byte[] content)
+    {
+        // The config is parsed twice, as CombinedTransformConfig may modify the one that is registered.
+        TransformConfig registeredTransformConfig = parseEngineConfig(content);
+        TransformConfig newTransformConfig = parseEngineConfig(content);
+
+        // There is only one TransformConfig in a T-Engine so the following call is fine
+        registerSnapshot(() ->
+            CombinedTransformConfig.combineAndRegister(registeredTransformConfig, locationFromProperty, "---", this));
+        transformConfig = newTransformConfig;
+        engineConfigContent = content;
+        configLoadTime = Instant.now();
+        configVersion++;
+    }
+
+    private byte[] readEngineConfig()
+    {
+        try (InputStream inputStream = engineConfig.getInputStream())
+        {
+            return inputStream.readAllBytes();
+        }
+        catch (IOException e)
+        {
+            throw new TransformException(INTERNAL_SERVER_ERROR.value(),
+                "Could not read " + locationFromProperty, e);
+        }
+    }
+
+    private TransformConfig parseEngineConfig(byte[] content)
     {
-        try (Reader reader = new InputStreamReader(engineConfig.getInputStream(), UTF_8))
+        try (Reader reader = new InputStreamReader(new ByteArrayInputStream(content), UTF_8))
         {
             TransformConfig transformConfig = jsonObjectMapper.readValue(reader, TransformConfig.class);
             setCoreVersionOnSingleStepTransformers(transformConfig, coreVersion);
@@ -97,10 +189,28 @@ public class TransformRegistryImpl extends AbstractTransformRegistry
         }
     }
 
-    @Override
-    public TransformCache getData()
+    /**
+     * @return the engine config that the registry's data was built from.
+     */
+    TransformConfig getTransformConfig()
+    {
+        return transformConfig;
+    }
+
+    /**
+     * @return the number of times the engine config has been loaded, starting at 1 when the T-Engine starts.
+     */
+    public int getConfigVersion()
+    {
+        return configVersion;
+    }
+
+    /**
+     * @return when the engine config was last loaded.
+     */
+    public Instant getConfigLoadTime()
     {
-        return data;
+        return configLoadTime;
     }
 
     @Override
@@ -0,0 +1,254 @@
+/*
+ * #%L
+ * Alfresco Transform Core
+ * %%
+ * Copyright (C) 2005 - 2022 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software.
+ * -
+ * If the software was purchased under a paid Alfresco license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ * -
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * -
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * -
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.transformer.cache;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.alfresco.transformer.fs.FileManager.TempFileProvider.getScratchSpace;
+import static org.alfresco.transformer.fs.FileManager.linkOrCopy;
+import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
+import static org.springframework.http.HttpStatus.REQUEST_TIMEOUT;
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeoutException;
+import java.util.function.Consumer;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.alfresco.transform.exceptions.TransformException;
+import org.alfresco.transformer.util.Deadline;
+
+/**
+ * Combines identical transforms (those with the same {@link TransformKey}) that are requested at the same time, so
+ * that only one is actually performed. This is common when a document is first uploaded and several renditions or
+ * previews of it are requested at once.<p>
+ *
+ * The first request (the leader) performs the transform into a shared temporary file. Requests that arrive while it
+ * is running wait for it and then receive their own hard link (or copy) of the shared file, which is deleted once
+ * every request has its result. If the leader fails, the other requests fail in the same way, unless the failure
+ * was specific to the leader (such as its own timeout), in which case they try again.
+ */
+public class TransformCoalescer
+{
+    private final boolean enabled;
+    private final ConcurrentMap<String, Flight> flights = new ConcurrentHashMap<>();
+    private Counter coalesced;
+
+    /**
+     * @param enabled if {@code false}, every transform is performed.
+     * @param meterRegistry used to publish the number of transforms that were not performed. May be {@code null}.
+     */
+    public TransformCoalescer(boolean enabled, MeterRegistry meterRegistry)
+    {
+        this.enabled = enabled;
+        if (enabled && meterRegistry != null)
+        {
+            coalesced = Counter.builder("transformer.coalesced")
+                               .description("Transforms that used the result of an identical transform")
+                               .register(meterRegistry);
+        }
+    }
+
+    public boolean isEnabled()
+    {
+        return enabled;
+    }
+
+    /**
+     * Creates the target file, either by running the supplied transform or by waiting for an identical transform
+     * that is already running.
+     *
+     * @param key identifies the transform.
+     * @param targetFile the file to be created.
+     * @param deadline limits how long to wait for an identical transform.
+     * @param transform performs the transform, writing to the file it is given.
+     */
+    public void transform(String key, File targetFile, Deadline deadline, Consumer<File> transform)
+    {
+        if (!enabled)
+        {
+            transform.accept(targetFile);
+            return;
+        }
+
+        while (true)
+        {
+            deadline.check("The transform");
+            Flight flight = new Flight();
+            Flight existing = flights.putIfAbsent(key, flight);
+            if (existing == null)
+            {
+                lead(key, flight, targetFile, transform);
+                return;
+            }
+            if (existing.join())
+            {
+                if (coalesced != null)
+                {
+                    coalesced.increment();
+                }
+                if (follow(existing, targetFile, deadline))
+                {
+                    return;
+                }
+            }
+        }
+    }
+
+    private void lead(String key, Flight flight, File targetFile, Consumer<File> transform)
+    {
+        flight.join();
+        try
+        {
+            File sharedFile;
+            try
+            {
+                sharedFile = getScratchSpace().createSharedFile("shared_", "_" + targetFile.getName());
+                flight.sharedFile = sharedFile;
+                transform.accept(sharedFile);
+            }
+            catch (RuntimeException | Error e)
+            {
+                flights.remove(key, flight);
+                flight.result.completeExceptionally(e);
+                throw e;
+            }
+            flights.remove(key, flight);
+            flight.result.complete(sharedFile);
+            copy(sharedFile, targetFile);
+        }
+        finally
+        {
+            flight.leave();
+        }
+    }
+
+    /**
+     * @return {@code false} if the transform should be attempted again.
+     */
+    private boolean follow(Flight flight, File targetFile, Deadline deadline)
+    {
+        try
+        {
+            File sharedFile = flight.result.get(deadline.getRemaining(), MILLISECONDS);
+            copy(sharedFile, targetFile);
+            return true;
+        }
+        catch (TimeoutException e)
+        {
+            return false;
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new TransformException(INTERNAL_SERVER_ERROR.value(),
+                "Interrupted while waiting for an identical transform", e);
+        }
+        catch (ExecutionException e)
+        {
+            Throwable cause = e.getCause();
+            if (cause instanceof TransformException)
+            {
+                int statusCode = ((TransformException) cause).getStatusCode();
+                if (statusCode == REQUEST_TIMEOUT.value() || statusCode == TOO_MANY_REQUESTS.value())
+                {
+                    return false;
+                }
+                throw new TransformException(statusCode, cause.getMessage(), cause);
+            }
+            throw new TransformException(INTERNAL_SERVER_ERROR.value(),
+                "An identical transform failed: " + cause.getMessage(), cause);
+        }
+        finally
+        {
+            flight.leave();
+        }
+    }
+
+    private static void copy(File sharedFile, File targetFile)
+    {
+        try
+        {
+            linkOrCopy(sharedFile, targetFile);
+        }
+        catch (IOException e)
+        {
+            throw new TransformException(INTERNAL_SERVER_ERROR.value(),
+                "Failed to copy the result of an identical transform", e);
+        }
+    }
+
+    /**
+     * @return the number of transforms currently running that other requests may join.
+     */
+    public int getInFlight()
+    {
+        return flights.size();
+    }
+
+    /**
+     * A transform that is being performed, and the requests waiting for its result.
+     */
+    private static class Flight
+    {
+        private final CompletableFuture<File> result = new CompletableFuture<>();
+        private volatile File sharedFile;
+        private int participants;
+        private boolean closed;
+
+        /**
+         * @return {@code false} if the result is no longer available.
+         */
+        private synchronized boolean join()
+        {
+            if (closed)
+            {
+                return false;
+            }
+            participants++;
+            return true;
+        }
+
+        private synchronized void leave()
+        {
+            participants--;
+            if (participants == 0 && result.isDone())
+            {
+                closed = true;
+                if (sharedFile != null)
+                {
+                    sharedFile.delete();
+                }
+            }
+        }
+    }
+}
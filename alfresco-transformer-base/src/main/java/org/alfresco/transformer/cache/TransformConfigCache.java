@@ -0,0 +1,152 @@
+/*
+ * #%L
+ * Alfresco Transform Core
+ * %%
+ * Copyright (C) 2005 - 2022 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software.
+ * -
+ * If the software was purchased under a paid Alfresco license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ * -
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * -
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * -
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.transformer.cache;
+
+import static org.alfresco.transform.client.model.config.CoreVersionDecorator.CONFIG_VERSION_INCLUDES_CORE_VERSION;
+import static org.alfresco.transform.client.model.config.CoreVersionDecorator.setOrClearCoreVersion;
+import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
+
+import java.util.concurrent.atomic.AtomicReferenceArray;
+import java.util.function.Supplier;
+
+import org.alfresco.transform.client.model.config.TransformConfig;
+import org.alfresco.transform.exceptions.TransformException;
+import org.springframework.util.DigestUtils;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+/**
+ * Holds the serialized form of the config returned by {@code /transform/config}, which is polled by the T-Router and
+ * every repository node. The config is only serialized again when the registry's config changes, rather than on
+ * every request. Each serialized config has a strong ETag (an MD5 hash of its content, as used by Spring's
+ * ShallowEtagHeaderFilter), so clients that send it back in an {@code If-None-Match} header receive a 304. The
+ * {@link TransformConfigMessageConverter} writes out the cached JSON when the config is returned.
+ */
+public class TransformConfigCache
+{
+    private final ObjectMapper objectMapper;
+
+    // Indexed by whether the core version is included, as older clients request the config without it.
+    private final AtomicReferenceArray<SerializedTransformConfig> cache = new AtomicReferenceArray<>(2);
+
+    public TransformConfigCache(ObjectMapper objectMapper)
+    {
+        this.objectMapper = objectMapper;
+    }
+
+    /**
+     * Returns the serialized config, serializing it if it has not already been done for the supplied source.
+     *
+     * @param source an object that changes whenever the config changes, such as the config itself or the registry's
+     *               data. Compared by identity.
+     * @param configVersion the version of the config requested by the client.
+     * @param transformConfig supplies the config if it needs to be serialized.
+     * @return the serialized config.
+     */
+    public SerializedTransformConfig get(Object source, int configVersion, Supplier<TransformConfig> transformConfig)
+    {
+        int index = configVersion >= CONFIG_VERSION_INCLUDES_CORE_VERSION ? 1 : 0;
+        SerializedTransformConfig serializedTransformConfig = cache.get(index);
+        if (serializedTransformConfig == null || serializedTransformConfig.source != source)
+        {
+            // Concurrent requests may serialize the same config, but the result is the same.
+            TransformConfig decoratedTransformConfig = setOrClearCoreVersion(transformConfig.get(), configVersion);
+            serializedTransformConfig = new SerializedTransformConfig(source, decoratedTransformConfig,
+                writeValueAsBytes(decoratedTransformConfig));
+            cache.set(index, serializedTransformConfig);
+        }
+        return serializedTransformConfig;
+    }
+
+    /**
+     * @return the JSON of a config returned by {@link SerializedTransformConfig#getTransformConfig()} without
+     * serializing it again, or if it is not one of them, the JSON of the supplied config.
+     */
+    public byte[] serialize(TransformConfig transformConfig)
+    {
+        for (int i = 0; i < cache.length(); i++)
+        {
+            SerializedTransformConfig serializedTransformConfig = cache.get(i);
+            if (serializedTransformConfig != null && serializedTransformConfig.transformConfig == transformConfig)
+            {
+                return serializedTransformConfig.body;
+            }
+        }
+        return writeValueAsBytes(transformConfig);
+    }
+
+    private byte[] writeValueAsBytes(TransformConfig transformConfig)
+    {
+        try
+        {
+            return objectMapper.writeValueAsBytes(transformConfig);
+        }
+        catch (JsonProcessingException e)
+        {
+            throw new TransformException(INTERNAL_SERVER_ERROR.value(),
+                "Failed to serialize the transform config", e);
+        }
+    }
+
+    public static class SerializedTransformConfig
+    {
+        private final Object source;
+        private final TransformConfig transformConfig;
+        private final byte[] body;
+        private final String eTag;
+
+        private SerializedTransformConfig(Object source, TransformConfig transformConfig, byte[] body)
+        {
+            this.source = source;
+            this.transformConfig = transformConfig;
+            this.body = body;
+            this.eTag = '"' + DigestUtils.md5DigestAsHex(body) + '"';
+        }
+
+        /**
+         * @return the config with the core version set or cleared, which must not be modified.
+         */
+        public TransformConfig getTransformConfig()
+        {
+            return transformConfig;
+        }
+
+        /**
+         * @return the JSON content, which must not be modified.
+         */
+        public byte[] getBody()
+        {
+            return body;
+        }
+
+        public String getETag()
+        {
+            return eTag;
+        }
+    }
+}
@@ -0,0 +1,83 @@
+/*
+ * #%L
+ * Alfresco Transform Core
+ * %%
+ * Copyright (C) 2005 - 2022 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software.
+ * -
+ * If the software was purchased under a paid Alfresco license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ * -
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * -
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * -
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.transformer.cache;
+
+import static org.springframework.http.MediaType.APPLICATION_JSON;
+
+import java.io.IOException;
+
+import org.alfresco.transform.client.model.config.TransformConfig;
+import org.springframework.http.HttpInputMessage;
+import org.springframework.http.HttpOutputMessage;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.AbstractHttpMessageConverter;
+import org.springframework.http.converter.HttpMessageNotReadableException;
+import org.springframework.lang.NonNull;
+
+/**
+ * Writes the {@link TransformConfig} returned by {@code /transform/config} using the JSON held by the
+ * {@link TransformConfigCache}, so that it is not serialized on every request. Used in preference to the general
+ * Jackson converter, which would otherwise serialize it again. Configs that are not cached are serialized with the
+ * same ObjectMapper.
+ */
+public class TransformConfigMessageConverter extends AbstractHttpMessageConverter<TransformConfig>
+{
+    private final TransformConfigCache transformConfigCache;
+
+    public TransformConfigMessageConverter(TransformConfigCache transformConfigCache)
+    {
+        super(APPLICATION_JSON);
+        this.transformConfigCache = transformConfigCache;
+    }
+
+    @Override
+    protected boolean supports(@NonNull Class<?> clazz)
+    {
+        return TransformConfig.class.isAssignableFrom(clazz);
+    }
+
+    @Override
+    public boolean canRead(@NonNull Class<?> clazz, MediaType mediaType)
+    {
+        return false;
+    }
+
+    @Override
+    @NonNull
+    protected TransformConfig readInternal(@NonNull Class<? extends TransformConfig> clazz,
+        @NonNull HttpInputMessage inputMessage)
+    {
+        throw new HttpMessageNotReadableException("The transform config is only written", inputMessage);
+    }
+
+    @Override
+    protected void writeInternal(@NonNull TransformConfig transformConfig, HttpOutputMessage outputMessage)
+        throws IOException
+    {
+        outputMessage.getBody().write(transformConfigCache.serialize(transformConfig));
+    }
+}
@@ -0,0 +1,123 @@
+/*
+ * #%L
+ * Alfresco Transform Core
+ * %%
+ * Copyright (C) 2005 - 2022 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software.
+ * -
+ * If the software was purchased under a paid Alfresco license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ * -
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * -
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * -
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.transformer.cache;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static java.nio.file.StandardOpenOption.READ;
+import static org.alfresco.transform.client.util.RequestParamMap.TIMEOUT;
+import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.Map;
+import java.util.TreeMap;
+
+import org.alfresco.transform.exceptions.TransformException;
+
+/**
+ * Creates a key that identifies the result of a transform. It is a SHA-256 hash of the source content, the
+ * transformer name, the source and target mimetypes and the transform options (sorted by name). The {@code timeout}
+ * option is ignored, as it does not change the result.
+ */
+public class TransformKey
+{
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private TransformKey()
+    {
+    }
+
+    public static String create(File sourceFile, String transformName, String sourceMimetype,
+                                String targetMimetype, Map<String, String> transformOptions)
+    {
+        MessageDigest digest = newDigest();
+        try (FileChannel channel = FileChannel.open(sourceFile.toPath(), READ))
+        {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+            while (channel.read(buffer) != -1)
+            {
+                buffer.flip();
+                digest.update(buffer);
+                buffer.clear();
+            }
+        }
+        catch (IOException e)
+        {
+            throw new TransformException(INTERNAL_SERVER_ERROR.value(), "Failed to read the source file", e);
+        }
+
+        update(digest, transformName);
+        update(digest, sourceMimetype);
+        update(digest, targetMimetype);
+        new TreeMap<>(transformOptions).forEach((name, value) ->
+        {
+            if (!TIMEOUT.equals(name))
+            {
+                update(digest, name);
+                update(digest, value);
+            }
+        });
+        return toHex(digest.digest());
+    }
+
+    private static MessageDigest newDigest()
+    {
+        try
+        {
+            return MessageDigest.getInstance("SHA-256");
+        }
+        catch (NoSuchAlgorithmException e)
+        {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static void update(MessageDigest digest, String value)
+    {
+        // Each value is terminated by a 0, so that different values cannot produce the same sequence of bytes
+        if (value != null)
+        {
+            digest.update(value.getBytes(UTF_8));
+        }
+        digest.update((byte) 0);
+    }
+
+    private static String toHex(byte[] bytes)
+    {
+        StringBuilder sb = new StringBuilder(bytes.length * 2);
+        for (byte b : bytes)
+        {
+            sb.append(Character.forDigit((b >> 4) & 0xF, 16))
+              .append(Character.forDigit(b & 0xF, 16));
+        }
+        return sb.toString();
+    }
+}
@@ -0,0 +1,292 @@
+/*
+ * #%L
+ * Alfresco Transform Core
+ * %%
+ * Copyright (C) 2005 - 2022 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software.
+ * -
+ * If the software was purchased under a paid Alfresco license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ * -
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * -
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * -
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.transformer.cache;
+
+import static java.nio.file.StandardCopyOption.ATOMIC_MOVE;
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+
+import java.io.File;
+import java.io.FileInputStream;
+import java.io.FileNotFoundException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.UUID;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Optional cache of transform results, so that repeated requests to transform the same content in the same way (for
+ * example to re-render a document after a metadata only change) do not need to run the transformer again. Entries
+ * are identified by a {@link TransformKey} and are held as files in a directory. Once the total size of the files
+ * exceeds a maximum, the least recently used entries are removed. Results are copied into and out of the cache
+ * rather than linked, so that changes to a target file cannot alter a cached entry.<p>
+ *
+ * The cache is disabled if no directory is supplied.
+ */
+public class TransformResultCache
+{
+    private static final Logger logger = LoggerFactory.getLogger(TransformResultCache.class);
+
+    private static final String TMP_SUFFIX = ".tmp";
+
+    private final File directory;
+    private final long maxSize;
+
+    // Entry sizes in least recently used order. Guarded by this.
+    private final Map<String, Long> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private long size;
+
+    private Counter hits;
+    private Counter misses;
+    private Counter evictions;
+
+    /**
+     * @param directory the directory in which to hold cached results. {@code null} or blank disables the cache.
+     * @param maxSize the maximum total size of the cached results in bytes.
+     * @param meterRegistry used to publish hit, miss and eviction counts. May be {@code null}.
+     */
+    public TransformResultCache(String directory, long maxSize, MeterRegistry meterRegistry)
+    {
+        this.directory = directory == null || directory.isBlank() ? null : new File(directory);
+        this.maxSize = maxSize;
+        if (this.directory != null)
+        {
+            load();
+            logger.info("Caching up to {} bytes of transform results in {}", maxSize, directory);
+            if (meterRegistry != null)
+            {
+                register(meterRegistry);
+            }
+        }
+    }
+
+    private void register(MeterRegistry meterRegistry)
+    {
+        hits = Counter.builder("transformer.cache.requests")
+                      .description("Transforms found in the result cache")
+                      .tag("result", "hit")
+                      .register(meterRegistry);
+        misses = Counter.builder("transformer.cache.requests")
+                        .description("Transforms not found in the result cache")
+                        .tag("result", "miss")
+                        .register(meterRegistry);
+        evictions = Counter.builder("transformer.cache.evictions")
+                           .description("Results removed from the cache to keep it within its maximum size")
+                           .register(meterRegistry);
+        Gauge.builder("transformer.cache.size", this, TransformResultCache::getSize)
+             .description("Total size of the cached results")
+             .baseUnit("bytes")
+             .register(meterRegistry);
+    }
+
+    /**
+     * Rebuilds the cache from the files left by a previous run, using their last modified time as the last time
+     * they were used.
+     */
+    private void load()
+    {
+        if (!directory.exists() && !directory.mkdirs() && !directory.exists())
+        {
+            throw new IllegalStateException("Failed to create the transform cache directory: " + directory);
+        }
+        File[] files = directory.listFiles();
+        if (files == null)
+        {
+            throw new IllegalStateException("Failed to read the transform cache directory: " + directory);
+        }
+        Arrays.sort(files, Comparator.comparingLong(File::lastModified));
+        synchronized (this)
+        {
+            for (File file : files)
+            {
+                if (file.getName().endsWith(TMP_SUFFIX))
+                {
+                    file.delete();
+                }
+                else if (file.isFile())
+                {
+                    entries.put(file.getName(), file.length());
+                    size += file.length();
+                }
+            }
+            evict();
+        }
+    }
+
+    public boolean isEnabled()
+    {
+        return directory != null;
+    }
+
+    /**
+     * Replaces the target file with the cached result, if there is one. If the cached result cannot be copied, the
+     * target file is left empty, so that the caller may perform the transform instead.
+     *
+     * @return {@code true} if the cached result was used.
+     */
+    public boolean get(String key, File targetFile)
+    {
+        if (!isEnabled())
+        {
+            return false;
+        }
+        InputStream cached = open(key);
+        if (cached != null)
+        {
+            try (InputStream in = cached)
+            {
+                Files.copy(in, targetFile.toPath(), REPLACE_EXISTING);
+                increment(hits);
+                return true;
+            }
+            catch (IOException e)
+            {
+                logger.warn("Failed to use cached result {}", key, e);
+                clear(targetFile);
+            }
+        }
+        increment(misses);
+        return false;
+    }
+
+    /**
+     * Opens a cached result while holding the lock, so that it cannot be evicted before it is opened. Once open, its
+     * content remains readable even if it is evicted while being copied.
+     *
+     * @return the content of the cached result, or {@code null} if there is none.
+     */
+    private synchronized InputStream open(String key)
+    {
+        Long length = entries.get(key);
+        if (length == null)
+        {
+            return null;
+        }
+        File file = new File(directory, key);
+        try
+        {
+            InputStream in = new FileInputStream(file);
+            file.setLastModified(System.currentTimeMillis());
+            return in;
+        }
+        catch (FileNotFoundException e)
+        {
+            // Removed by something other than this cache
+            logger.warn("Cached result {} is missing", key);
+            entries.remove(key);
+            size -= length;
+            return null;
+        }
+    }
+
+    private static void clear(File targetFile)
+    {
+        try (OutputStream out = Files.newOutputStream(targetFile.toPath()))
+        {
+            // Creates or truncates the file
+        }
+        catch (IOException e)
+        {
+            logger.warn("Failed to clear target file {}", targetFile, e);
+        }
+    }
+
+    /**
+     * Adds a transform result to the cache. Failures are logged rather than thrown, as the result has already been
+     * created.
+     */
+    public void put(String key, File targetFile)
+    {
+        if (!isEnabled())
+        {
+            return;
+        }
+        long length = targetFile.length();
+        if (length > maxSize)
+        {
+            return;
+        }
+        File tmp = new File(directory, key + "." + UUID.randomUUID() + TMP_SUFFIX);
+        try
+        {
+            Files.copy(targetFile.toPath(), tmp.toPath());
+            Files.move(tmp.toPath(), new File(directory, key).toPath(), ATOMIC_MOVE, REPLACE_EXISTING);
+        }
+        catch (IOException e)
+        {
+            logger.warn("Failed to cache transform result {}", key, e);
+            tmp.delete();
+            return;
+        }
+        synchronized (this)
+        {
+            Long previous = entries.put(key, length);
+            size += length - (previous == null ? 0 : previous);
+            evict();
+        }
+    }
+
+    private void evict()
+    {
+        Iterator<Map.Entry<String, Long>> iterator = entries.entrySet().iterator();
+        while (size > maxSize && iterator.hasNext())
+        {
+            Map.Entry<String, Long> entry = iterator.next();
+            iterator.remove();
+            size -= entry.getValue();
+            new File(directory, entry.getKey()).delete();
+            increment(evictions);
+        }
+    }
+
+    /**
+     * @return the total size of the cached results in bytes.
+     */
+    public synchronized long getSize()
+    {
+        return size;
+    }
+
+    private static void increment(Counter counter)
+    {
+        if (counter != null)
+        {
+            counter.increment();
+        }
+    }
+}
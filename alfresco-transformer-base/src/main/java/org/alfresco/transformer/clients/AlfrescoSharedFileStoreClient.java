@@ -27,9 +27,20 @@
 package org.alfresco.transformer.clients;
 
 import static org.springframework.http.HttpMethod.POST;
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.springframework.http.HttpHeaders.CONTENT_DISPOSITION;
+import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
+import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
 import static org.springframework.http.MediaType.MULTIPART_FORM_DATA;
 
 import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.HttpURLConnection;
+import java.net.Proxy;
+import java.net.URI;
+import java.net.URL;
+import java.util.Collections;
 
 import org.alfresco.transform.exceptions.TransformException;
 import org.alfresco.transformer.model.FileRefResponse;
@@ -37,11 +48,19 @@ import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
+import org.springframework.http.ContentDisposition;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.http.StreamingHttpOutputMessage;
+import org.springframework.http.client.ClientHttpRequest;
+import org.springframework.http.client.ClientHttpResponse;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
 import org.springframework.util.LinkedMultiValueMap;
+import org.springframework.util.MimeTypeUtils;
 import org.springframework.web.client.HttpClientErrorException;
+import org.springframework.web.client.HttpMessageConverterExtractor;
 import org.springframework.web.client.RestTemplate;
 
 /**
@@ -100,4 +119,90 @@ public class AlfrescoSharedFileStoreClient
             throw new TransformException(e.getStatusCode().value(), e.getMessage(), e);
         }
     }
+
+    /**
+     * Stores content in Shared File Store as it is written, rather than from a file. The multipart request is built
+     * by hand, so that the content is streamed to the Shared File Store (using chunked transfer encoding) without
+     * being held in memory. If the content cannot be written, the connection is closed without completing the
+     * request, so that the Shared File Store does not store a partial file.
+     *
+     * @param filename the name of the file to be stored
+     * @param mimetype the mimetype of the content
+     * @param content  writes the content to the supplied stream, which it should not close
+     * @return A FileRefResponse containing detail about file's reference
+     */
+    public FileRefResponse saveStream(String filename, String mimetype, StreamingHttpOutputMessage.Body content)
+    {
+        final String boundary = new String(MimeTypeUtils.generateMultipartBoundary(), UTF_8);
+        final StreamingRequestFactory requestFactory = new StreamingRequestFactory();
+        boolean completed = false;
+        try
+        {
+            ClientHttpRequest request = requestFactory.createRequest(URI.create(fileStoreUrl), POST);
+            request.getHeaders().setContentType(new MediaType(MULTIPART_FORM_DATA,
+                Collections.singletonMap("boundary", boundary)));
+            OutputStream body = request.getBody();
+            String partHeaders = "--" + boundary + "\r\n" +
+                CONTENT_DISPOSITION + ": " +
+                ContentDisposition.formData().name("file").filename(filename).build() + "\r\n" +
+                CONTENT_TYPE + ": " + mimetype + "\r\n\r\n";
+            body.write(partHeaders.getBytes(UTF_8));
+            content.writeTo(body);
+            body.write(("\r\n--" + boundary + "--\r\n").getBytes(UTF_8));
+            body.flush();
+
+            try (ClientHttpResponse response = request.execute())
+            {
+                completed = true;
+                if (response.getStatusCode().isError())
+                {
+                    throw new TransformException(response.getRawStatusCode(),
+                        "Failed to save the target in the Shared File Store: " + response.getStatusText());
+                }
+                return new HttpMessageConverterExtractor<>(FileRefResponse.class,
+                    restTemplate.getMessageConverters()).extractData(response);
+            }
+        }
+        catch (IOException e)
+        {
+            throw new TransformException(INTERNAL_SERVER_ERROR.value(),
+                "Failed to save the target in the Shared File Store", e);
+        }
+        finally
+        {
+            if (!completed)
+            {
+                requestFactory.disconnect();
+            }
+        }
+    }
+
+    /**
+     * Creates a streaming request and keeps its connection, so that it may be closed if the body cannot be written.
+     * Otherwise the partly written request would be left open.
+     */
+    private static class StreamingRequestFactory extends SimpleClientHttpRequestFactory
+    {
+        private HttpURLConnection connection;
+
+        private StreamingRequestFactory()
+        {
+            setBufferRequestBody(false);
+        }
+
+        @Override
+        protected HttpURLConnection openConnection(URL url, Proxy proxy) throws IOException
+        {
+            connection = super.openConnection(url, proxy);
+            return connection;
+        }
+
+        private void disconnect()
+        {
+            if (connection != null)
+            {
+                connection.disconnect();
+            }
+        }
+    }
 }
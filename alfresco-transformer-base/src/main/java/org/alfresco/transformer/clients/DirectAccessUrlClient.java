@@ -0,0 +1,434 @@
+/*
+ * #%L
+ * Alfresco Transform Core
+ * %%
+ * Copyright (C) 2005 - 2022 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software.
+ * -
+ * If the software was purchased under a paid Alfresco license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ * -
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * -
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * -
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.transformer.clients;
+
+import static java.nio.file.StandardOpenOption.CREATE;
+import static java.nio.file.StandardOpenOption.TRUNCATE_EXISTING;
+import static java.nio.file.StandardOpenOption.WRITE;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.springframework.http.HttpStatus.PARTIAL_CONTENT;
+import static org.springframework.http.HttpStatus.REQUESTED_RANGE_NOT_SATISFIABLE;
+import static org.springframework.http.HttpStatus.REQUEST_TIMEOUT;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.net.SocketTimeoutException;
+import java.net.URI;
+import java.net.URISyntaxException;
+import java.net.URL;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import javax.annotation.PreDestroy;
+
+import io.micrometer.core.instrument.DistributionSummary;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import org.alfresco.transform.exceptions.TransformException;
+import org.codehaus.plexus.util.FileUtils;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Downloads source content from a Direct Access Url, such as a pre-signed S3 url, into a local file.<p>
+ *
+ * A single pooled HTTP client is used, so connections are kept alive and reused between requests. Large objects may
+ * be fetched as several HTTP Range segments in parallel, which is often much faster from object stores that limit
+ * the bandwidth of each connection. The first request asks for the first segment. If the server replies with
+ * {@code 206 Partial Content} and the object is larger, the remaining segments are requested in parallel and each is
+ * written straight into its position in the file. Servers that do not support ranges return the whole object,
+ * which is simply streamed into the file.<p>
+ *
+ * The request timeout only covers the wait for the response headers, so the content of each response is also read
+ * with an idle timeout. If no data arrives for that long, the download fails rather than waiting forever on a
+ * stalled server.<p>
+ *
+ * Urls other than http and https (such as file urls used in tests) are read with a single stream.
+ */
+public class DirectAccessUrlClient
+{
+    private static final Logger logger = LoggerFactory.getLogger(DirectAccessUrlClient.class);
+
+    private static final Pattern CONTENT_RANGE = Pattern.compile("bytes \\d+-\\d+/(\\d+)");
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private static final ScheduledThreadPoolExecutor watchdogs = createWatchdogs();
+
+    private final HttpClient httpClient;
+    private final Duration requestTimeout;
+    private final long readTimeout;
+    private final long segmentSize;
+    private final ExecutorService segmentExecutor;
+
+    private Timer downloadTimer;
+    private DistributionSummary downloadThroughput;
+
+    /**
+     * @param connectTimeout milliseconds to wait for a connection.
+     * @param requestTimeout milliseconds to wait for the headers of a response (or of each segment).
+     * @param readTimeout milliseconds to wait for more of the content of a response before failing.
+     * @param segmentSize the size in bytes of each Range request. 0 disables ranged downloads.
+     * @param parallelism the maximum number of segments downloaded at the same time, across all requests.
+     * @param meterRegistry used to publish the download time and throughput. May be {@code null}.
+     */
+    public DirectAccessUrlClient(long connectTimeout, long requestTimeout, long readTimeout, long segmentSize,
+                                 int parallelism, MeterRegistry meterRegistry)
+    {
+        this.requestTimeout = Duration.ofMillis(requestTimeout);
+        this.readTimeout = readTimeout;
+        this.segmentSize = segmentSize;
+        // HTTP/1.1 so that parallel segments use separate connections rather than being multiplexed over one.
+        this.httpClient = HttpClient.newBuilder()
+                                    .version(HttpClient.Version.HTTP_1_1)
+                                    .connectTimeout(Duration.ofMillis(connectTimeout))
+                                    .followRedirects(HttpClient.Redirect.NORMAL)
+                                    .build();
+        this.segmentExecutor = segmentSize > 0 ? Executors.newFixedThreadPool(parallelism, new DaemonThreadFactory()) : null;
+        if (meterRegistry != null)
+        {
+            downloadTimer = Timer.builder("transformer.directAccessUrl.download")
+                                 .description("Time taken to download content from Direct Access Urls")
+                                 .register(meterRegistry);
+            downloadThroughput = DistributionSummary.builder("transformer.directAccessUrl.throughput")
+                                                    .description("Download rate from Direct Access Urls")
+                                                    .baseUnit("bytes/second")
+                                                    .register(meterRegistry);
+        }
+    }
+
+    private static ScheduledThreadPoolExecutor createWatchdogs()
+    {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable ->
+        {
+            Thread thread = new Thread(runnable, "direct-access-url-watchdog");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    @PreDestroy
+    public void close()
+    {
+        if (segmentExecutor != null)
+        {
+            segmentExecutor.shutdownNow();
+        }
+    }
+
+    /**
+     * Downloads the content of the Direct Access Url into the supplied file.
+     *
+     * @throws TransformException 400 if the url is invalid or its content could not be read, or 408 if the server
+     * stopped sending the content.
+     */
+    public void download(String directUrl, File file)
+    {
+        long start = System.nanoTime();
+        try
+        {
+            if (isHttp(directUrl))
+            {
+                downloadHttp(new URI(directUrl), file);
+            }
+            else
+            {
+                FileUtils.copyURLToFile(new URL(directUrl), file);
+            }
+        }
+        catch (URISyntaxException | IllegalArgumentException e)
+        {
+            throw new TransformException(BAD_REQUEST.value(), "Direct Access Url is invalid.", e);
+        }
+        catch (SocketTimeoutException e)
+        {
+            throw new TransformException(REQUEST_TIMEOUT.value(), "Direct Access Url download stalled.", e);
+        }
+        catch (IOException e)
+        {
+            throw new TransformException(BAD_REQUEST.value(), "Direct Access Url not found.", e);
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new TransformException(BAD_REQUEST.value(), "Direct Access Url download was interrupted.", e);
+        }
+        record(file.length(), System.nanoTime() - start);
+    }
+
+    private static boolean isHttp(String directUrl)
+    {
+        return directUrl.regionMatches(true, 0, "http://", 0, 7) ||
+               directUrl.regionMatches(true, 0, "https://", 0, 8);
+    }
+
+    private void downloadHttp(URI uri, File file) throws IOException, InterruptedException
+    {
+        HttpResponse<InputStream> response = send(uri, segmentExecutor != null);
+        if (response.statusCode() == REQUESTED_RANGE_NOT_SATISFIABLE.value())
+        {
+            // Some stores reject a Range request for an empty object
+            response.body().close();
+            response = send(uri, false);
+        }
+        checkStatus(response);
+
+        try (FileChannel channel = FileChannel.open(file.toPath(), WRITE, CREATE, TRUNCATE_EXISTING))
+        {
+            long length = response.statusCode() == PARTIAL_CONTENT.value() ? getLength(response) : -1;
+            List<Future<?>> segments = new ArrayList<>();
+            try
+            {
+                // Start the other segments before reading the first, so that they all download at the same time
+                for (long position = segmentSize; length > 0 && position < length; position += segmentSize)
+                {
+                    long segmentPosition = position;
+                    segments.add(segmentExecutor.submit(() -> downloadSegment(uri, segmentPosition, channel)));
+                }
+                write(response.body(), channel, 0);
+                for (Future<?> segment : segments)
+                {
+                    segment.get();
+                }
+            }
+            catch (ExecutionException e)
+            {
+                Throwable cause = e.getCause();
+                throw cause instanceof IOException ? (IOException) cause : new IOException(cause);
+            }
+            finally
+            {
+                segments.forEach(segment -> segment.cancel(true));
+            }
+        }
+    }
+
+    private HttpResponse<InputStream> send(URI uri, boolean firstSegment) throws IOException, InterruptedException
+    {
+        HttpRequest.Builder request = HttpRequest.newBuilder(uri).timeout(requestTimeout).GET();
+        if (firstSegment)
+        {
+            request.header("Range", range(0));
+        }
+        return httpClient.send(request.build(), HttpResponse.BodyHandlers.ofInputStream());
+    }
+
+    private Void downloadSegment(URI uri, long position, FileChannel channel) throws IOException, InterruptedException
+    {
+        HttpRequest request = HttpRequest.newBuilder(uri)
+                                         .timeout(requestTimeout)
+                                         .header("Range", range(position))
+                                         .GET()
+                                         .build();
+        HttpResponse<InputStream> response = httpClient.send(request, HttpResponse.BodyHandlers.ofInputStream());
+        checkStatus(response);
+        if (response.statusCode() != PARTIAL_CONTENT.value())
+        {
+            response.body().close();
+            throw new IOException("Range request for " + uri.getHost() + " returned " + response.statusCode());
+        }
+        write(response.body(), channel, position);
+        return null;
+    }
+
+    private String range(long position)
+    {
+        return "bytes=" + position + "-" + (position + segmentSize - 1);
+    }
+
+    private static void checkStatus(HttpResponse<InputStream> response) throws IOException
+    {
+        int status = response.statusCode();
+        if (status < 200 || status >= 300)
+        {
+            response.body().close();
+            throw new IOException("Direct Access Url returned " + status);
+        }
+    }
+
+    /**
+     * @return the total length of the content from the Content-Range header of a 206 response.
+     */
+    private static long getLength(HttpResponse<InputStream> response) throws IOException
+    {
+        String contentRange = response.headers().firstValue("Content-Range").orElse("");
+        Matcher matcher = CONTENT_RANGE.matcher(contentRange);
+        if (!matcher.matches())
+        {
+            response.body().close();
+            throw new IOException("Unexpected Content-Range: " + contentRange);
+        }
+        return Long.parseLong(matcher.group(1));
+    }
+
+    /**
+     * Writes the body of a response into the channel, failing if no data arrives for {@code readTimeout}
+     * milliseconds.
+     */
+    private void write(InputStream body, FileChannel channel, long position) throws IOException
+    {
+        IdleWatchdog watchdog = new IdleWatchdog(body, readTimeout);
+        ScheduledFuture<?> future = readTimeout > 0
+            ? watchdogs.scheduleWithFixedDelay(watchdog, readTimeout / 4 + 1, readTimeout / 4 + 1, MILLISECONDS)
+            : null;
+        try (InputStream inputStream = body)
+        {
+            byte[] bytes = new byte[BUFFER_SIZE];
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            int read;
+            while (true)
+            {
+                watchdog.startRead();
+                try
+                {
+                    read = inputStream.read(bytes);
+                }
+                finally
+                {
+                    watchdog.endRead();
+                }
+                if (read == -1)
+                {
+                    break;
+                }
+                buffer.limit(read);
+                while (buffer.hasRemaining())
+                {
+                    position += channel.write(buffer, position);
+                }
+                buffer.clear();
+            }
+        }
+        finally
+        {
+            if (future != null)
+            {
+                future.cancel(false);
+            }
+        }
+    }
+
+    private void record(long bytes, long nanos)
+    {
+        logger.debug("Downloaded {} bytes in {}ms", bytes, TimeUnit.NANOSECONDS.toMillis(nanos));
+        if (downloadTimer != null)
+        {
+            downloadTimer.record(nanos, TimeUnit.NANOSECONDS);
+            if (nanos > 0)
+            {
+                downloadThroughput.record(bytes * 1_000_000_000d / nanos);
+            }
+        }
+    }
+
+    /**
+     * Closes the body of a response once a read has been waiting for data for longer than the timeout, which makes
+     * the read fail. Interrupting the reading thread is not enough, as the HttpClient's body stream ignores it.
+     */
+    private static class IdleWatchdog implements Runnable
+    {
+        private final InputStream body;
+        private final long timeout;
+        private boolean reading;
+        private long readStart;
+        private boolean expired;
+
+        private IdleWatchdog(InputStream body, long timeout)
+        {
+            this.body = body;
+            this.timeout = timeout;
+        }
+
+        @Override
+        public synchronized void run()
+        {
+            if (reading && !expired && System.currentTimeMillis() - readStart >= timeout)
+            {
+                expired = true;
+                try
+                {
+                    body.close();
+                }
+                catch (IOException e)
+                {
+                    logger.debug("Failed to close a stalled Direct Access Url response", e);
+                }
+            }
+        }
+
+        private synchronized void startRead()
+        {
+            reading = true;
+            readStart = System.currentTimeMillis();
+        }
+
+        /**
+         * @throws SocketTimeoutException if the body was closed because the read took too long.
+         */
+        private synchronized void endRead() throws SocketTimeoutException
+        {
+            reading = false;
+            if (expired)
+            {
+                throw new SocketTimeoutException("No content received for " + timeout + "ms");
+            }
+        }
+    }
+
+    private static class DaemonThreadFactory implements ThreadFactory
+    {
+        private final AtomicInteger count = new AtomicInteger();
+
+        @Override
+        public Thread newThread(Runnable runnable)
+        {
+            Thread thread = new Thread(runnable, "direct-access-url-" + count.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        }
+    }
+}
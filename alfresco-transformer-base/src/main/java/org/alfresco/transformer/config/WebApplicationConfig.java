@@ -31,14 +31,32 @@ import org.alfresco.transform.client.registry.TransformServiceRegistry;
 import org.alfresco.transform.router.TransformerDebug;
 import org.alfresco.transformer.TransformInterceptor;
 import org.alfresco.transformer.TransformRegistryImpl;
+import org.alfresco.transformer.cache.TransformCoalescer;
+import org.alfresco.transformer.cache.TransformConfigCache;
+import org.alfresco.transformer.cache.TransformConfigMessageConverter;
+import org.alfresco.transformer.cache.TransformResultCache;
 import org.alfresco.transformer.clients.AlfrescoSharedFileStoreClient;
+import org.alfresco.transformer.clients.DirectAccessUrlClient;
+import org.alfresco.transformer.fs.FileManager.TempFileProvider;
+import org.alfresco.transformer.fs.ScratchSpace;
+import org.alfresco.transformer.throttling.TransformPermits;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.SimpleClientHttpRequestFactory;
+import org.springframework.scheduling.concurrent.ThreadPoolTaskExecutor;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
 import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+import io.micrometer.core.instrument.MeterRegistry;
+
 import static org.alfresco.transform.client.util.RequestParamMap.ENDPOINT_TRANSFORM;
+import static org.alfresco.transform.client.util.RequestParamMap.ENDPOINT_TRANSFORM_ASYNC;
+import static org.alfresco.transform.client.util.RequestParamMap.ENDPOINT_TRANSFORM_BATCH;
 
 @Configuration
 public class WebApplicationConfig implements WebMvcConfigurer
@@ -48,7 +66,7 @@ public class WebApplicationConfig implements WebMvcConfigurer
     {
         registry
             .addInterceptor(transformInterceptor())
-            .addPathPatterns(ENDPOINT_TRANSFORM, "/live", "/ready");
+            .addPathPatterns(ENDPOINT_TRANSFORM, ENDPOINT_TRANSFORM_ASYNC, ENDPOINT_TRANSFORM_BATCH, "/live", "/ready");
     }
 
     @Bean
@@ -57,10 +75,127 @@ public class WebApplicationConfig implements WebMvcConfigurer
         return new TransformInterceptor();
     }
 
+    /**
+     * Runs the transforms requested via the asynchronous endpoints, so that the servlet container's threads are only
+     * used for I/O and remain available for other requests such as the probes.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor transformExecutor(
+        @Value("${async-transform.poolSize}") int poolSize,
+        @Value("${async-transform.queueCapacity}") int queueCapacity)
+    {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("transform-");
+        return executor;
+    }
+
+    /**
+     * Performs the items of {@code /transform/batch} requests in parallel. Requests with items that do not fit in the
+     * queue are rejected with a 429.
+     */
+    @Bean
+    public ThreadPoolTaskExecutor batchTransformExecutor(
+        @Value("${batch-transform.poolSize}") int poolSize,
+        @Value("${batch-transform.queueCapacity}") int queueCapacity)
+    {
+        ThreadPoolTaskExecutor executor = new ThreadPoolTaskExecutor();
+        executor.setCorePoolSize(poolSize);
+        executor.setMaxPoolSize(poolSize);
+        executor.setQueueCapacity(queueCapacity);
+        executor.setThreadNamePrefix("batch-");
+        return executor;
+    }
+
+    /**
+     * Limits the number of concurrent transforms performed by each transformer (or T-Engine in the all in one
+     * T-Engine), so that one type of transform cannot starve the others.
+     */
+    @Bean
+    public TransformPermits transformPermits(
+        @Value("${transform-limits.permits}") String limits,
+        @Value("${transform-limits.maxQueued}") int maxQueued,
+        @Value("${transform-limits.queueTimeout}") long queueTimeout,
+        ObjectProvider<MeterRegistry> meterRegistry)
+    {
+        return new TransformPermits(limits, maxQueued, queueTimeout, meterRegistry.getIfAvailable());
+    }
+
+    /**
+     * Optional cache of transform results, so that repeated requests for the same transform of the same content are
+     * not performed again.
+     */
+    @Bean
+    public TransformResultCache transformResultCache(
+        @Value("${transform-cache.directory}") String directory,
+        @Value("${transform-cache.maxSize}") long maxSize,
+        ObjectProvider<MeterRegistry> meterRegistry)
+    {
+        return new TransformResultCache(directory, maxSize, meterRegistry.getIfAvailable());
+    }
+
+    /**
+     * Optionally combines identical transforms that are requested at the same time, so that only one is performed.
+     */
+    @Bean
+    public TransformCoalescer transformCoalescer(
+        @Value("${transform-coalescing.enabled}") boolean enabled,
+        ObjectProvider<MeterRegistry> meterRegistry)
+    {
+        return new TransformCoalescer(enabled, meterRegistry.getIfAvailable());
+    }
+
+    /**
+     * Holds the serialized config returned by {@code /transform/config}, so that it is not serialized on every request.
+     */
+    @Bean
+    public TransformConfigCache transformConfigCache(ObjectMapper objectMapper)
+    {
+        return new TransformConfigCache(objectMapper);
+    }
+
+    /**
+     * Writes the config returned by {@code /transform/config} from the {@link TransformConfigCache}. Spring Boot adds
+     * HttpMessageConverter beans ahead of its default converters.
+     */
+    @Bean
+    public TransformConfigMessageConverter transformConfigMessageConverter(TransformConfigCache transformConfigCache)
+    {
+        return new TransformConfigMessageConverter(transformConfigCache);
+    }
+
+    /**
+     * Manages the directories used for temporary files, and is used by the {@link TempFileProvider}.
+     */
+    @Bean
+    public ScratchSpace scratchSpace(
+        @Value("${scratch.directory}") String directory,
+        @Value("${scratch.memoryDirectory}") String memoryDirectory,
+        @Value("${scratch.memoryThreshold}") long memoryThreshold,
+        @Value("${scratch.memoryMaxSize}") long memoryMaxSize,
+        @Value("${scratch.quota}") long quota,
+        @Value("${scratch.quotaWait}") long quotaWait,
+        @Value("${scratch.maxAge}") long maxAge,
+        ObjectProvider<MeterRegistry> meterRegistry)
+    {
+        ScratchSpace scratchSpace = new ScratchSpace(directory, memoryDirectory, memoryThreshold, memoryMaxSize,
+            quota, quotaWait, maxAge, meterRegistry.getIfAvailable());
+        TempFileProvider.setScratchSpace(scratchSpace);
+        return scratchSpace;
+    }
+
+    /**
+     * Used to read and write content in the Shared File Store. Request bodies are streamed rather than buffered in
+     * memory, so that large targets do not need to fit in the heap.
+     */
     @Bean
     public RestTemplate restTemplate()
     {
-        return new RestTemplate();
+        SimpleClientHttpRequestFactory requestFactory = new SimpleClientHttpRequestFactory();
+        requestFactory.setBufferRequestBody(false);
+        return new RestTemplate(requestFactory);
     }
 
     @Bean
@@ -69,6 +204,19 @@ public class WebApplicationConfig implements WebMvcConfigurer
         return new AlfrescoSharedFileStoreClient();
     }
 
+    @Bean
+    public DirectAccessUrlClient directAccessUrlClient(
+        @Value("${direct-access-url.connectTimeout}") long connectTimeout,
+        @Value("${direct-access-url.requestTimeout}") long requestTimeout,
+        @Value("${direct-access-url.readTimeout}") long readTimeout,
+        @Value("${direct-access-url.segmentSize}") long segmentSize,
+        @Value("${direct-access-url.parallelism}") int parallelism,
+        ObjectProvider<MeterRegistry> meterRegistry)
+    {
+        return new DirectAccessUrlClient(connectTimeout, requestTimeout, readTimeout, segmentSize, parallelism,
+            meterRegistry.getIfAvailable());
+    }
+
     @Bean
     public TransformRequestValidator transformRequestValidator()
     {
@@ -550,6 +550,7 @@ public class RuntimeExec
                             logger.debug(
                                 "Process has taken too long ({} seconds). Killing process {}",
                                 timeoutMs / 1000, Arrays.deepToString(command));
+                            thisProcess.destroy();
                         }
                     }
                 }, timeoutMs);
@@ -578,6 +579,7 @@ public class RuntimeExec
 
         // wait for the process to finish
         int exitValue = 0;
+        boolean interrupted = false;
         try
         {
             if (waitForCompletion)
@@ -590,6 +592,11 @@ public class RuntimeExec
             // process was interrupted - generate an error message
             stdErrGobbler.addToBuffer(e.toString());
             exitValue = defaultFailureExitValue;
+
+            // The caller has given up (for example its deadline has passed), so stop the process rather than
+            // leaving it running.
+            process.destroy();
+            interrupted = true;
         }
 
         if (waitForCompletion)
@@ -598,6 +605,11 @@ public class RuntimeExec
             stdOutGobbler.waitForCompletion();
             stdErrGobbler.waitForCompletion();
         }
+        if (interrupted)
+        {
+            // preserve the interrupt for the caller
+            Thread.currentThread().interrupt();
+        }
 
         // get the stream values
         String execOut = stdOutGobbler.getBuffer();
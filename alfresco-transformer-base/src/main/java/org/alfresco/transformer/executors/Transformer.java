@@ -30,8 +30,15 @@ package org.alfresco.transformer.executors;
 import org.alfresco.transform.exceptions.TransformException;
 
 import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
 import java.util.Map;
 
+import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
+import static org.alfresco.transform.router.ExtensionService.getExtensionForMimetype;
+import static org.alfresco.transform.router.ExtensionService.getExtensionForTargetMimetype;
+import static org.alfresco.transformer.fs.FileManager.TempFileProvider.createTempFile;
 import static org.alfresco.transformer.util.MimetypeMap.MIMETYPE_METADATA_EMBED;
 import static org.alfresco.transformer.util.MimetypeMap.MIMETYPE_METADATA_EXTRACT;
 import static org.alfresco.transformer.util.RequestParamMap.TRANSFORM_NAME_PARAMETER;
@@ -76,17 +83,9 @@ public interface Transformer
                 transform(transformName, sourceMimetype, targetMimetype, transformOptions, sourceFile, targetFile);
             }
         }
-        catch (TransformException e)
-        {
-            throw e;
-        }
-        catch (IllegalArgumentException e)
-        {
-            throw new TransformException(BAD_REQUEST.value(), getMessage(e), e);
-        }
         catch (Exception e)
         {
-            throw new TransformException(INTERNAL_SERVER_ERROR.value(), getMessage(e), e);
+            throw asTransformException(e);
         }
         if (!targetFile.exists())
         {
@@ -100,6 +99,93 @@ public interface Transformer
         }
     }
 
+    /**
+     * @return {@code true} if the named transform is able to read its source from an {@link InputStream} and write
+     * its target to an {@link OutputStream}, so that no temporary files are needed. Defaults to {@code false}.
+     */
+    default boolean isStreamingSupported(String transformName, String sourceMimetype, String targetMimetype)
+    {
+        return false;
+    }
+
+    /**
+     * Stream based equivalent of {@link #transformExtractOrEmbed(String, String, String, Map, File, File)}. Neither
+     * stream is closed. If {@link #isStreamingSupported(String, String, String)} returns {@code false}, or the request
+     * is a metadata extract or embed (which only have file based methods), the source is written to a temporary file,
+     * the file based method is called and the target file is copied to the targetStream. Channels may be adapted
+     * using {@link java.nio.channels.Channels}.
+     */
+    default void transformExtractOrEmbed(String transformName, String sourceMimetype, String targetMimetype,
+                                         Map<String, String> transformOptions,
+                                         InputStream sourceStream, OutputStream targetStream) throws TransformException
+    {
+        if (MIMETYPE_METADATA_EXTRACT.equals(targetMimetype) || MIMETYPE_METADATA_EMBED.equals(targetMimetype) ||
+            !isStreamingSupported(transformName, sourceMimetype, targetMimetype))
+        {
+            transformExtractOrEmbedUsingFiles(transformName, sourceMimetype, targetMimetype, transformOptions,
+                sourceStream, targetStream);
+            return;
+        }
+        try
+        {
+            transform(transformName, sourceMimetype, targetMimetype, transformOptions, sourceStream, targetStream);
+            targetStream.flush();
+        }
+        catch (Exception e)
+        {
+            throw asTransformException(e);
+        }
+    }
+
+    private void transformExtractOrEmbedUsingFiles(String transformName, String sourceMimetype, String targetMimetype,
+                                                   Map<String, String> transformOptions,
+                                                   InputStream sourceStream, OutputStream targetStream)
+    {
+        File sourceFile = null;
+        File targetFile = null;
+        try
+        {
+            sourceFile = createTempFile("source_", getSuffix(getExtensionForMimetype(sourceMimetype)));
+            targetFile = createTempFile("target_",
+                getSuffix(getExtensionForTargetMimetype(targetMimetype, sourceMimetype)));
+            Files.copy(sourceStream, sourceFile.toPath(), REPLACE_EXISTING);
+            transformExtractOrEmbed(transformName, sourceMimetype, targetMimetype, transformOptions, sourceFile,
+                targetFile);
+            Files.copy(targetFile.toPath(), targetStream);
+            targetStream.flush();
+        }
+        catch (Exception e)
+        {
+            throw asTransformException(e);
+        }
+        finally
+        {
+            if (sourceFile != null)
+            {
+                sourceFile.delete();
+            }
+            if (targetFile != null)
+            {
+                targetFile.delete();
+            }
+        }
+    }
+
+    private static String getSuffix(String extension)
+    {
+        return "." + (extension == null ? "tmp" : extension);
+    }
+
+    private static TransformException asTransformException(Exception e)
+    {
+        if (e instanceof TransformException)
+        {
+            return (TransformException) e;
+        }
+        int statusCode = e instanceof IllegalArgumentException ? BAD_REQUEST.value() : INTERNAL_SERVER_ERROR.value();
+        return new TransformException(statusCode, getMessage(e), e);
+    }
+
     private static String getMessage(Exception e)
     {
         return e.getMessage() == null ? e.getClass().getSimpleName() : e.getMessage();
@@ -111,6 +197,16 @@ public interface Transformer
     {
     }
 
+    /**
+     * Stream based equivalent of {@link #transform(String, String, String, Map, File, File)}. Only called if
+     * {@link #isStreamingSupported(String, String, String)} returns {@code true}.
+     */
+    default void transform(String transformName, String sourceMimetype, String targetMimetype,
+                           Map<String, String> transformOptions,
+                           InputStream sourceStream, OutputStream targetStream) throws Exception
+    {
+    }
+
     default void extractMetadata(String transformName, String sourceMimetype, String targetMimetype,
                                  Map<String, String> transformOptions,
                                  File sourceFile, File targetFile) throws Exception
@@ -0,0 +1,131 @@
+/*
+ * #%L
+ * Alfresco Transform Core
+ * %%
+ * Copyright (C) 2005 - 2022 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software.
+ * -
+ * If the software was purchased under a paid Alfresco license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ * -
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * -
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * -
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.transformer.fs;
+
+import java.io.BufferedOutputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.FileOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * An OutputStream that holds its content in memory until more than a threshold number of bytes have been written,
+ * after which all the content is written to a file. Used for the targets of streaming transforms of small sources, so
+ * that they are returned to the client without being written to disk.
+ */
+public class DeferredFileOutputStream extends OutputStream
+{
+    private final int threshold;
+    private final File file;
+    private ByteArrayOutputStream memoryStream;
+    private OutputStream fileStream;
+    private long size;
+
+    /**
+     * @param threshold the maximum number of bytes held in memory.
+     * @param file to which the content is written once the threshold is exceeded. It is not created otherwise.
+     */
+    public DeferredFileOutputStream(int threshold, File file)
+    {
+        this.threshold = threshold;
+        this.file = file;
+        memoryStream = new ByteArrayOutputStream(Math.min(threshold, 8192));
+    }
+
+    @Override
+    public void write(int b) throws IOException
+    {
+        getStream(1).write(b);
+        size++;
+    }
+
+    @Override
+    public void write(byte[] b, int off, int len) throws IOException
+    {
+        getStream(len).write(b, off, len);
+        size += len;
+    }
+
+    private OutputStream getStream(int len) throws IOException
+    {
+        if (fileStream == null && size + len > threshold)
+        {
+            fileStream = new BufferedOutputStream(new FileOutputStream(file));
+            memoryStream.writeTo(fileStream);
+            memoryStream = null;
+        }
+        return fileStream == null ? memoryStream : fileStream;
+    }
+
+    @Override
+    public void flush() throws IOException
+    {
+        if (fileStream != null)
+        {
+            fileStream.flush();
+        }
+    }
+
+    @Override
+    public void close() throws IOException
+    {
+        if (fileStream != null)
+        {
+            fileStream.close();
+        }
+    }
+
+    /**
+     * @return {@code true} if the content is still held in memory, rather than in the file.
+     */
+    public boolean isInMemory()
+    {
+        return fileStream == null;
+    }
+
+    /**
+     * @return the number of bytes written.
+     */
+    public long getSize()
+    {
+        return size;
+    }
+
+    /**
+     * @return a copy of the content, if it is held in memory.
+     * @throws IllegalStateException if the content has been written to the file.
+     */
+    public byte[] toByteArray()
+    {
+        if (!isInMemory())
+        {
+            throw new IllegalStateException("The content has been written to " + file);
+        }
+        return memoryStream.toByteArray();
+    }
+}
@@ -35,7 +35,7 @@ import static org.springframework.util.StringUtils.getFilenameExtension;
 
 import java.io.File;
 import java.io.IOException;
-import java.net.MalformedURLException;
+import java.io.InputStream;
 import java.nio.file.Files;
 import java.nio.file.StandardCopyOption;
 import java.util.Arrays;
@@ -44,8 +44,9 @@ import javax.servlet.http.HttpServletRequest;
 
 import org.alfresco.transform.exceptions.TransformException;
 import org.alfresco.transformer.logging.LogEntry;
+import org.springframework.core.io.ByteArrayResource;
+import org.springframework.core.io.FileSystemResource;
 import org.springframework.core.io.Resource;
-import org.springframework.core.io.UrlResource;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.multipart.MultipartFile;
@@ -111,20 +112,43 @@ public class FileManager
         return filename;
     }
 
+    /**
+     * Moves the uploaded content into the supplied file. The servlet container will normally have already spooled the
+     * multipart upload to its own temporary file, so rather than copying the bytes a second time, the part is renamed
+     * into place. Small parts that the container has held in memory are simply written out. If the part cannot be
+     * moved, such as when the container is unable to do so across file systems, its content is copied instead.
+     */
     private static void save(MultipartFile multipartFile, File file)
     {
         try
         {
-            Files.copy(multipartFile.getInputStream(), file.toPath(),
-                StandardCopyOption.REPLACE_EXISTING);
+            multipartFile.transferTo(file);
         }
         catch (IOException e)
+        {
+            copy(multipartFile, file, e);
+        }
+        catch (IllegalStateException e)
         {
             throw new TransformException(INSUFFICIENT_STORAGE.value(),
                 "Failed to store the source file", e);
         }
     }
 
+    private static void copy(MultipartFile multipartFile, File file, IOException transferException)
+    {
+        try (InputStream inputStream = multipartFile.getInputStream())
+        {
+            Files.copy(inputStream, file.toPath(), StandardCopyOption.REPLACE_EXISTING);
+        }
+        catch (IOException e)
+        {
+            e.addSuppressed(transferException);
+            throw new TransformException(INSUFFICIENT_STORAGE.value(),
+                "Failed to store the source file", e);
+        }
+    }
+
     public static void save(Resource body, File file)
     {
         try
@@ -140,23 +164,36 @@ public class FileManager
 
     private static Resource load(File file)
     {
+        // A FileSystemResource reads the file via NIO and reports its exact length, which is used to set the
+        // Content-Length and to build the ResourceRegions returned for HTTP Range requests.
+        Resource resource = new FileSystemResource(file);
+        if (resource.exists() && resource.isReadable())
+        {
+            return resource;
+        }
+        throw new TransformException(INTERNAL_SERVER_ERROR.value(),
+            "Could not read the target file: " + file.getPath());
+    }
+
+    /**
+     * Makes the content of one file available as another, by creating a hard link if possible, so that the content
+     * is not copied. This is only safe as the files are not modified once they have been written. Falls back to a
+     * copy if the file system does not support links or the files are on different file systems.
+     *
+     * @param from the existing file.
+     * @param to the file to be replaced.
+     * @throws IOException if the content could not be linked or copied.
+     */
+    public static void linkOrCopy(File from, File to) throws IOException
+    {
+        Files.deleteIfExists(to.toPath());
         try
         {
-            Resource resource = new UrlResource(file.toURI());
-            if (resource.exists() || resource.isReadable())
-            {
-                return resource;
-            }
-            else
-            {
-                throw new TransformException(INTERNAL_SERVER_ERROR.value(),
-                    "Could not read the target file: " + file.getPath());
-            }
+            Files.createLink(to.toPath(), from.toPath());
         }
-        catch (MalformedURLException e)
+        catch (IOException | UnsupportedOperationException e)
         {
-            throw new TransformException(INTERNAL_SERVER_ERROR.value(),
-                "The target filename was malformed: " + file.getPath(), e);
+            Files.copy(from.toPath(), to.toPath(), StandardCopyOption.REPLACE_EXISTING);
         }
     }
 
@@ -216,13 +253,54 @@ public class FileManager
         String filename = multipartFile.getOriginalFilename();
         long size = multipartFile.getSize();
         filename = checkFilename(true, filename);
-        File file = TempFileProvider.createTempFile("source_", "_" + filename);
+        File file = TempFileProvider.createTempFile("source_", "_" + filename, size);
         request.setAttribute(SOURCE_FILE, file);
         save(multipartFile, file);
         LogEntry.setSource(filename, size);
         return file;
     }
 
+    /**
+     * Returns a File that holds the source content of one of the files in a {@code /transform/batch} request. Unlike
+     * {@link #createSourceFile(HttpServletRequest, MultipartFile)}, the {@link LogEntry} is not updated, as it
+     * describes the whole batch, and the file is removed with the rest of the request's temporary files.
+     *
+     * @param multipartFile from the request
+     * @return a temporary File.
+     * @throws TransformException if there was no source filename.
+     */
+    public static File createBatchSourceFile(MultipartFile multipartFile)
+    {
+        String filename = checkFilename(true, multipartFile.getOriginalFilename());
+        File file = TempFileProvider.createTempFile("source_", "_" + filename, multipartFile.getSize());
+        save(multipartFile, file);
+        return file;
+    }
+
+    /**
+     * Returns the uploaded source content as a stream, for transformers that are able to read it without it first
+     * being written to a temporary File.
+     *
+     * @param multipartFile from the request
+     * @return a stream that must be closed by the caller.
+     * @throws TransformException if there was no source filename or the content could not be read.
+     */
+    public static InputStream openSourceStream(MultipartFile multipartFile)
+    {
+        String filename = checkFilename(true, multipartFile.getOriginalFilename());
+        try
+        {
+            InputStream inputStream = multipartFile.getInputStream();
+            LogEntry.setSource(filename, multipartFile.getSize());
+            return inputStream;
+        }
+        catch (IOException e)
+        {
+            throw new TransformException(INTERNAL_SERVER_ERROR.value(),
+                "Failed to read the source file", e);
+        }
+    }
+
     public static void deleteFile(HttpServletRequest request, String attributeName)
     {
         File file = (File) request.getAttribute(attributeName);
@@ -232,52 +310,104 @@ public class FileManager
         }
     }
 
+    /**
+     * Returns the target file as an attachment. The body is a file based {@link Resource}, so Spring MVC sets an exact
+     * Content-Length and {@code Accept-Ranges: bytes}, and replies to HTTP Range requests with
+     * {@code 206 Partial Content} containing just the requested bytes. This allows clients to resume the download of
+     * large targets.
+     *
+     * @param targetFilename the name the client should use for the target.
+     * @param targetFile the result of the transform.
+     * @return the response to return from the controller.
+     */
     public static ResponseEntity<Resource> createAttachment(String targetFilename, File
         targetFile)
     {
-        Resource targetResource = load(targetFile);
+        return createAttachment(targetFilename, load(targetFile));
+    }
+
+    /**
+     * Returns target content that has been held in memory as an attachment, in the same way as
+     * {@link #createAttachment(String, File)}.
+     *
+     * @param targetFilename the name the client should use for the target.
+     * @param targetContent the result of the transform.
+     * @return the response to return from the controller.
+     */
+    public static ResponseEntity<Resource> createAttachment(String targetFilename, byte[] targetContent)
+    {
+        return createAttachment(targetFilename, new ByteArrayResource(targetContent));
+    }
+
+    private static ResponseEntity<Resource> createAttachment(String targetFilename, Resource targetResource)
+    {
+        return ResponseEntity.ok().header(CONTENT_DISPOSITION, getContentDisposition(targetFilename))
+            .body(targetResource);
+    }
+
+    /**
+     * @param targetFilename the name the client should use for the target.
+     * @return the Content-Disposition header value used to return the target as an attachment.
+     */
+    public static String getContentDisposition(String targetFilename)
+    {
         targetFilename = UriUtils.encodePath(getFilename(targetFilename), "UTF-8");
-        return ResponseEntity.ok().header(CONTENT_DISPOSITION,
-            "attachment; filename*= UTF-8''" + targetFilename).body(targetResource);
+        return "attachment; filename*= UTF-8''" + targetFilename;
     }
 
     /**
-     * TempFileProvider - Duplicated and adapted from alfresco-core.
+     * TempFileProvider - Duplicated and adapted from alfresco-core. Files are created in the {@link ScratchSpace}.
      */
     public static class TempFileProvider
     {
+        private static volatile ScratchSpace scratchSpace;
+
         public static File createTempFile(final String prefix, final String suffix)
         {
-            final File directory = getTempDir();
-            try
-            {
-                return File.createTempFile(prefix, suffix, directory);
-            }
-            catch (IOException e)
-            {
-                throw new RuntimeException(
-                    "Failed to created temp file: \n   prefix: " + prefix +
-                    "\n   suffix: " + suffix + "\n   directory: " + directory, e);
-            }
+            return getScratchSpace().createTempFile(prefix, suffix, -1);
         }
 
-        private static File getTempDir()
+        /**
+         * @param expectedSize the number of bytes that will be written to the file, or -1 if not known.
+         */
+        public static File createTempFile(final String prefix, final String suffix, final long expectedSize)
         {
-            final String dirName = "Alfresco";
-            final String systemTempDirPath = System.getProperty("java.io.tmpdir");
-            if (systemTempDirPath == null)
+            return getScratchSpace().createTempFile(prefix, suffix, expectedSize);
+        }
+
+        public static ScratchSpace getScratchSpace()
+        {
+            if (scratchSpace == null)
             {
-                throw new RuntimeException("System property not available: java.io.tmpdir");
+                synchronized (TempFileProvider.class)
+                {
+                    if (scratchSpace == null)
+                    {
+                        scratchSpace = ScratchSpace.createDefault();
+                    }
+                }
             }
+            return scratchSpace;
+        }
 
-            final File systemTempDir = new File(systemTempDirPath);
-            final File tempDir = new File(systemTempDir, dirName);
-            if (!tempDir.exists() && !tempDir.mkdirs() && !tempDir.exists())
+        public static void setScratchSpace(ScratchSpace scratchSpace)
+        {
+            TempFileProvider.scratchSpace = scratchSpace;
+        }
+
+        /**
+         * Stops the supplied ScratchSpace being used once it has been closed, such as when the Spring context that
+         * created it is closed. A default one is created if another is not set.
+         */
+        static void clearScratchSpace(ScratchSpace scratchSpace)
+        {
+            synchronized (TempFileProvider.class)
             {
-                throw new RuntimeException("Failed to create temp directory: " + tempDir);
+                if (TempFileProvider.scratchSpace == scratchSpace)
+                {
+                    TempFileProvider.scratchSpace = null;
+                }
             }
-
-            return tempDir;
         }
     }
 }
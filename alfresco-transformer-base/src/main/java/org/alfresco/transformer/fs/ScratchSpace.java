@@ -0,0 +1,494 @@
+/*
+ * #%L
+ * Alfresco Transform Core
+ * %%
+ * Copyright (C) 2005 - 2022 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software.
+ * -
+ * If the software was purchased under a paid Alfresco license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ * -
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * -
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * -
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.transformer.fs;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.springframework.http.HttpStatus.INSUFFICIENT_STORAGE;
+
+import java.io.File;
+import java.io.IOException;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.alfresco.transform.exceptions.TransformException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.FileSystemUtils;
+
+/**
+ * Manages the directories in which temporary files are created while transforms take place.<p>
+ *
+ * Each request is given its own directory (see {@link #startRequest()}), which is removed with everything in it
+ * when the request completes, so files are not left behind if a request fails part way through. The directory is
+ * first renamed, so other threads never see a partially deleted directory. The Request is bound to the current
+ * Thread in the same way as a {@link org.alfresco.transformer.logging.LogEntry}.<p>
+ *
+ * Optionally:
+ * <ul>
+ * <li>sources smaller than a threshold are placed in a RAM backed directory such as {@code /dev/shm}.</li>
+ * <li>the total size of sources is limited. Requests wait for space to become available and then fail with a
+ * 507 Insufficient Storage.</li>
+ * <li>a background sweeper removes request directories that are no longer in use and are older than a maximum age.
+ * These are left behind if the T-Engine is stopped part way through a request. It also removes files older than the
+ * maximum age that were created outside an open request, which are given an {@code unowned_} prefix.</li>
+ * </ul>
+ */
+public class ScratchSpace implements AutoCloseable
+{
+    private static final Logger logger = LoggerFactory.getLogger(ScratchSpace.class);
+
+    private static final String REQUEST_PREFIX = "request_";
+    private static final String DELETED_SUFFIX = ".deleted";
+    // Prefix of files created when there is no open request, which are removed by the sweeper once old enough
+    private static final String UNOWNED_PREFIX = "unowned_";
+
+    private static final ThreadLocal<Request> currentRequest = new ThreadLocal<>();
+
+    private final File directory;
+    private final File memoryDirectory;
+    private final long memoryThreshold;
+    private final long memoryMaxSize;
+    private final long quota;
+    private final long quotaWait;
+    private final long maxAge;
+
+    private final Set<String> activeRequests = ConcurrentHashMap.newKeySet();
+    private final ScheduledExecutorService sweeper;
+
+    // Guarded by this
+    private long reserved;
+    private long memoryReserved;
+
+    private Counter swept;
+
+    /**
+     * @param directory for temporary files. Blank uses {@code java.io.tmpdir/Alfresco}.
+     * @param memoryDirectory an optional RAM backed directory. May be blank.
+     * @param memoryThreshold sources up to this number of bytes are placed in the memoryDirectory.
+     * @param memoryMaxSize maximum total bytes of sources in the memoryDirectory.
+     * @param quota maximum total bytes of sources. 0 means there is no limit.
+     * @param quotaWait milliseconds a request waits for space before failing.
+     * @param maxAge minutes after which unused files are removed. 0 disables the sweeper.
+     * @param meterRegistry used to publish the space reserved by requests. May be {@code null}.
+     */
+    public ScratchSpace(String directory, String memoryDirectory, long memoryThreshold, long memoryMaxSize,
+                        long quota, long quotaWait, long maxAge, MeterRegistry meterRegistry)
+    {
+        this.directory = createDirectory(directory == null || directory.isBlank()
+            ? getDefaultDirectory()
+            : new File(directory));
+        this.memoryDirectory = memoryDirectory == null || memoryDirectory.isBlank()
+            ? null
+            : createDirectory(new File(memoryDirectory));
+        this.memoryThreshold = memoryThreshold;
+        this.memoryMaxSize = memoryMaxSize;
+        this.quota = quota;
+        this.quotaWait = quotaWait;
+        this.maxAge = maxAge * 60 * 1000;
+
+        removeDeleted(this.directory);
+        removeDeleted(this.memoryDirectory);
+
+        if (meterRegistry != null)
+        {
+            register(meterRegistry);
+        }
+        if (this.maxAge > 0)
+        {
+            sweeper = Executors.newSingleThreadScheduledExecutor(runnable ->
+            {
+                Thread thread = new Thread(runnable, "scratch-sweeper");
+                thread.setDaemon(true);
+                return thread;
+            });
+            long period = Math.max(this.maxAge / 4, 1000);
+            sweeper.scheduleWithFixedDelay(this::sweep, period, period, MILLISECONDS);
+        }
+        else
+        {
+            sweeper = null;
+        }
+    }
+
+    /**
+     * @return a ScratchSpace with no RAM backed directory, quota or sweeper.
+     */
+    static ScratchSpace createDefault()
+    {
+        return new ScratchSpace(null, null, 0, 0, 0, 0, 0, null);
+    }
+
+    private static File getDefaultDirectory()
+    {
+        final String systemTempDirPath = System.getProperty("java.io.tmpdir");
+        if (systemTempDirPath == null)
+        {
+            throw new RuntimeException("System property not available: java.io.tmpdir");
+        }
+        return new File(systemTempDirPath, "Alfresco");
+    }
+
+    private static File createDirectory(File directory)
+    {
+        if (!directory.exists() && !directory.mkdirs() && !directory.exists())
+        {
+            throw new RuntimeException("Failed to create temp directory: " + directory);
+        }
+        return directory;
+    }
+
+    private void register(MeterRegistry meterRegistry)
+    {
+        Gauge.builder("transformer.scratch.reserved", this, ScratchSpace::getReserved)
+             .description("Bytes reserved for source files")
+             .baseUnit("bytes")
+             .register(meterRegistry);
+        Gauge.builder("transformer.scratch.requests", activeRequests, Set::size)
+             .description("Requests using the scratch space")
+             .register(meterRegistry);
+        swept = Counter.builder("transformer.scratch.swept")
+                       .description("Orphaned files and directories removed by the sweeper")
+                       .register(meterRegistry);
+    }
+
+    /**
+     * Starts a new request and binds it to the current Thread. Files created by {@link #createTempFile} on the
+     * Thread are placed in the request's directory until the request is closed.
+     */
+    public Request startRequest()
+    {
+        Request request = new Request();
+        currentRequest.set(request);
+        return request;
+    }
+
+    /**
+     * @return the request bound to the current Thread, or {@code null}.
+     */
+    public static Request current()
+    {
+        return currentRequest.get();
+    }
+
+    /**
+     * Detaches the request from the current Thread, so that it may be resumed on another Thread.
+     */
+    public static Request suspend()
+    {
+        Request request = currentRequest.get();
+        currentRequest.remove();
+        return request;
+    }
+
+    /**
+     * Attaches a request that was started on another Thread to the current Thread.
+     */
+    public static void resume(Request request)
+    {
+        if (request == null)
+        {
+            currentRequest.remove();
+        }
+        else
+        {
+            currentRequest.set(request);
+        }
+    }
+
+    /**
+     * Creates a temporary file in the directory of the current request, or if there is none (or it has been closed),
+     * in the scratch directory, where it is removed by the sweeper if the caller does not delete it.
+     *
+     * @param expectedSize the number of bytes that will be written to the file if known, otherwise -1. Known sizes
+     *                     count towards the quota and allow small files to be placed in the RAM backed directory.
+     * @throws TransformException 507 if there is not enough space within the quota.
+     */
+    public File createTempFile(String prefix, String suffix, long expectedSize)
+    {
+        Request request = currentRequest.get();
+        if (request == null)
+        {
+            return createFile(directory, UNOWNED_PREFIX + prefix, suffix);
+        }
+        boolean memory = false;
+        if (expectedSize >= 0)
+        {
+            memory = reserveMemory(expectedSize);
+            if (!memory)
+            {
+                reserve(expectedSize);
+            }
+            request.addReservation(expectedSize, memory);
+        }
+        File requestDirectory = request.getDirectory(memory);
+        return createFile(requestDirectory, requestDirectory == directory ? UNOWNED_PREFIX + prefix : prefix, suffix);
+    }
+
+    /**
+     * Creates a temporary file that is not removed when the current request completes, because it is used by other
+     * requests. The caller is responsible for deleting it.
+     */
+    public File createSharedFile(String prefix, String suffix)
+    {
+        return createFile(directory, prefix, suffix);
+    }
+
+    private static File createFile(File directory, String prefix, String suffix)
+    {
+        try
+        {
+            // The directory may have been removed by something that cleans up old temporary files
+            return File.createTempFile(prefix, suffix, createDirectory(directory));
+        }
+        catch (IOException e)
+        {
+            throw new RuntimeException(
+                "Failed to created temp file: \n   prefix: " + prefix +
+                "\n   suffix: " + suffix + "\n   directory: " + directory, e);
+        }
+    }
+
+    private synchronized boolean reserveMemory(long size)
+    {
+        if (memoryDirectory == null || size > memoryThreshold || memoryReserved + size > memoryMaxSize)
+        {
+            return false;
+        }
+        memoryReserved += size;
+        return true;
+    }
+
+    private synchronized void reserve(long size)
+    {
+        if (quota > 0)
+        {
+            if (size > quota)
+            {
+                throw new TransformException(INSUFFICIENT_STORAGE.value(),
+                    "The source file is larger than the scratch space quota");
+            }
+            long end = System.currentTimeMillis() + quotaWait;
+            while (reserved + size > quota)
+            {
+                long remaining = end - System.currentTimeMillis();
+                if (remaining <= 0)
+                {
+                    throw new TransformException(INSUFFICIENT_STORAGE.value(),
+                        "There is not enough scratch space to store the source file");
+                }
+                try
+                {
+                    wait(remaining);
+                }
+                catch (InterruptedException e)
+                {
+                    Thread.currentThread().interrupt();
+                    throw new TransformException(INSUFFICIENT_STORAGE.value(),
+                        "Interrupted while waiting for scratch space", e);
+                }
+            }
+        }
+        reserved += size;
+    }
+
+    private synchronized void release(long size, long memorySize)
+    {
+        reserved -= size;
+        memoryReserved -= memorySize;
+        notifyAll();
+    }
+
+    /**
+     * @return the number of bytes reserved by current requests.
+     */
+    public synchronized long getReserved()
+    {
+        return reserved + memoryReserved;
+    }
+
+    private static void delete(File file)
+    {
+        if (file != null && file.exists())
+        {
+            // Rename first, so that the directory disappears in one step
+            File deleted = new File(file.getPath() + DELETED_SUFFIX);
+            FileSystemUtils.deleteRecursively(file.renameTo(deleted) ? deleted : file);
+        }
+    }
+
+    private static void removeDeleted(File directory)
+    {
+        File[] files = directory == null ? null : directory.listFiles();
+        if (files != null)
+        {
+            for (File file : files)
+            {
+                if (file.getName().endsWith(DELETED_SUFFIX))
+                {
+                    FileSystemUtils.deleteRecursively(file);
+                }
+            }
+        }
+    }
+
+    /**
+     * Removes request directories that are not used by a current request and are older than the maxAge, and
+     * unowned files that are older than the maxAge.
+     */
+    void sweep()
+    {
+        sweep(directory);
+        sweep(memoryDirectory);
+    }
+
+    private void sweep(File directory)
+    {
+        File[] files = directory == null ? null : directory.listFiles();
+        if (files == null)
+        {
+            return;
+        }
+        long cutoff = System.currentTimeMillis() - maxAge;
+        for (File file : files)
+        {
+            String name = file.getName();
+            // Only request directories and unowned files are removed, as the directory may be shared with other
+            // processes
+            if ((name.startsWith(REQUEST_PREFIX) && !activeRequests.contains(name) &&
+                 (name.endsWith(DELETED_SUFFIX) || file.lastModified() < cutoff)) ||
+                (name.startsWith(UNOWNED_PREFIX) && file.lastModified() < cutoff))
+            {
+                logger.debug("Removing orphaned temp file {}", file);
+                if (FileSystemUtils.deleteRecursively(file) && swept != null)
+                {
+                    swept.increment();
+                }
+            }
+        }
+    }
+
+    @Override
+    public void close()
+    {
+        if (sweeper != null)
+        {
+            sweeper.shutdownNow();
+        }
+        FileManager.TempFileProvider.clearScratchSpace(this);
+    }
+
+    /**
+     * The temporary files used by a single transform request. Closing the request removes them.
+     */
+    public class Request implements AutoCloseable
+    {
+        private final String name = REQUEST_PREFIX + UUID.randomUUID();
+
+        // Guarded by this
+        private File requestDirectory;
+        private File requestMemoryDirectory;
+        private long requestReserved;
+        private long requestMemoryReserved;
+        private boolean closed;
+
+        private Request()
+        {
+            activeRequests.add(name);
+        }
+
+        private synchronized File getDirectory(boolean memory)
+        {
+            if (closed)
+            {
+                return directory;
+            }
+            if (memory)
+            {
+                if (requestMemoryDirectory == null)
+                {
+                    requestMemoryDirectory = createDirectory(new File(memoryDirectory, name));
+                }
+                return requestMemoryDirectory;
+            }
+            if (requestDirectory == null)
+            {
+                requestDirectory = createDirectory(new File(directory, name));
+            }
+            return requestDirectory;
+        }
+
+        private void addReservation(long size, boolean memory)
+        {
+            synchronized (this)
+            {
+                if (!closed)
+                {
+                    if (memory)
+                    {
+                        requestMemoryReserved += size;
+                    }
+                    else
+                    {
+                        requestReserved += size;
+                    }
+                    return;
+                }
+            }
+            // The request has already released its reservations, so this one would otherwise never be released.
+            // The file is created in the scratch directory as an unowned file, which the sweeper removes once it is
+            // older than the maxAge, if the caller has not already deleted it.
+            release(memory ? 0 : size, memory ? size : 0);
+        }
+
+        @Override
+        public void close()
+        {
+            if (currentRequest.get() == this)
+            {
+                currentRequest.remove();
+            }
+            synchronized (this)
+            {
+                if (closed)
+                {
+                    return;
+                }
+                closed = true;
+                delete(requestDirectory);
+                delete(requestMemoryDirectory);
+            }
+            activeRequests.remove(name);
+            release(requestReserved, requestMemoryReserved);
+        }
+    }
+}
@@ -117,6 +117,37 @@ public final class LogEntry
         currentLogEntry.get();
     }
 
+    /**
+     * @return the entry of the current Thread, so that it may be {@link #resume(LogEntry) resumed} on another Thread.
+     */
+    public static LogEntry current()
+    {
+        return currentLogEntry.get();
+    }
+
+    /**
+     * Detaches the current entry from the current Thread without completing it. Used when the processing of a request
+     * continues on another Thread.
+     *
+     * @return the detached entry.
+     */
+    public static LogEntry suspend()
+    {
+        LogEntry logEntry = currentLogEntry.get();
+        currentLogEntry.remove();
+        return logEntry;
+    }
+
+    /**
+     * Attaches an entry that was started on another Thread to the current Thread.
+     *
+     * @param logEntry obtained from {@link #current()} or {@link #suspend()}.
+     */
+    public static void resume(LogEntry logEntry)
+    {
+        currentLogEntry.set(logEntry);
+    }
+
     public static void setSource(String source, long sourceSize)
     {
         LogEntry logEntry = currentLogEntry.get();
@@ -0,0 +1,325 @@
+/*
+ * #%L
+ * Alfresco Transform Core
+ * %%
+ * Copyright (C) 2005 - 2022 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software.
+ * -
+ * If the software was purchased under a paid Alfresco license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ * -
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * -
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * -
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.transformer.messaging;
+
+import java.lang.management.ManagementFactory;
+import java.lang.management.OperatingSystemMXBean;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.function.DoubleSupplier;
+
+import org.alfresco.transform.client.model.TransformRequest;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.context.SmartLifecycle;
+import org.springframework.jms.config.JmsListenerEndpointRegistry;
+import org.springframework.jms.listener.DefaultMessageListenerContainer;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+
+/**
+ * Adjusts the maximum number of JMS consumers of the T-Engine's request queue, within the {@code jms-listener.concurrency}
+ * range, so that the T-Engine takes as many requests as it is able to process without becoming overloaded.<p>
+ *
+ * The limit starts at the natural parallelism of the T-Engine (such as the number of LibreOffice processes), and is
+ * applied before the listener containers are started. Every interval it is reduced by a quarter if the CPU utilization
+ * exceeds {@code cpuTarget} or transforms are taking more than {@code latencyTolerance} times as long as they normally
+ * do. Otherwise, if all the consumers were busy, it is increased by one.<p>
+ *
+ * As the time taken depends on the type of transform and size of the content, a separate baseline latency is kept for
+ * each combination of source and target mimetypes and source size (to the nearest power of two). Each baseline is the
+ * lowest recent average latency for that combination, which slowly drifts up so that it follows gradual changes.
+ * A change in the mix of transforms, such as to larger documents, is therefore not mistaken for overload.
+ */
+public class JmsConcurrencyController implements SmartLifecycle
+{
+    private static final Logger logger = LoggerFactory.getLogger(JmsConcurrencyController.class);
+
+    /** Fraction of the difference by which a baseline latency moves towards a higher average each interval. */
+    private static final double BASELINE_DRIFT = 0.05;
+
+    private final int minConsumers;
+    private final int maxConsumers;
+    private final boolean enabled;
+    private final long interval;
+    private final double cpuTarget;
+    private final double latencyTolerance;
+    private final DoubleSupplier cpuLoad;
+    private final JmsListenerEndpointRegistry endpointRegistry;
+
+    private final Map<String, Latency> latencies = new ConcurrentHashMap<>();
+    private final AtomicInteger inFlight = new AtomicInteger();
+    private final AtomicInteger peakInFlight = new AtomicInteger();
+
+    private volatile int limit;
+    private ScheduledExecutorService scheduler;
+
+    /**
+     * @param concurrency      the {@code jms-listener.concurrency} range, such as {@code 1-10}, or a single maximum.
+     * @param parallelism      the number of transforms the T-Engine is naturally able to perform at the same time.
+     * @param enabled          if {@code false} the listener containers are not adjusted.
+     * @param interval         seconds between adjustments.
+     * @param cpuTarget        CPU utilization (0 to 1) above which consumers are removed.
+     * @param latencyTolerance multiple of the baseline latency above which consumers are removed.
+     * @param endpointRegistry holds the listener containers to be adjusted. May be {@code null} in tests.
+     * @param meterRegistry    used to publish the current limit. May be {@code null}.
+     */
+    public JmsConcurrencyController(String concurrency, int parallelism, boolean enabled, long interval,
+        double cpuTarget, double latencyTolerance, JmsListenerEndpointRegistry endpointRegistry,
+        MeterRegistry meterRegistry)
+    {
+        this(concurrency, parallelism, enabled, interval, cpuTarget, latencyTolerance, endpointRegistry,
+            meterRegistry, JmsConcurrencyController::getSystemCpuLoad);
+    }
+
+    JmsConcurrencyController(String concurrency, int parallelism, boolean enabled, long interval, double cpuTarget,
+        double latencyTolerance, JmsListenerEndpointRegistry endpointRegistry, MeterRegistry meterRegistry,
+        DoubleSupplier cpuLoad)
+    {
+        int separator = concurrency.indexOf('-');
+        this.minConsumers = separator == -1 ? 1 : Integer.parseInt(concurrency.substring(0, separator).trim());
+        this.maxConsumers = Integer.parseInt(concurrency.substring(separator + 1).trim());
+        this.enabled = enabled;
+        this.interval = interval;
+        this.cpuTarget = cpuTarget;
+        this.latencyTolerance = latencyTolerance;
+        this.endpointRegistry = endpointRegistry;
+        this.cpuLoad = cpuLoad;
+        this.limit = Math.max(minConsumers, Math.min(maxConsumers, parallelism));
+
+        if (meterRegistry != null)
+        {
+            Gauge.builder("jms.listener.consumers.limit", this, JmsConcurrencyController::getLimit)
+                 .description("Maximum number of consumers of the T-Engine's request queue")
+                 .register(meterRegistry);
+        }
+    }
+
+    /**
+     * Applies the initial limit to the listener containers and starts adjusting it every interval. Called before the
+     * {@link JmsListenerEndpointRegistry} starts the containers, so they never run with more consumers than the limit.
+     */
+    @Override
+    public synchronized void start()
+    {
+        if (enabled && scheduler == null)
+        {
+            apply();
+            scheduler = Executors.newSingleThreadScheduledExecutor(runnable ->
+            {
+                Thread thread = new Thread(runnable, "jms-concurrency");
+                thread.setDaemon(true);
+                return thread;
+            });
+            scheduler.scheduleWithFixedDelay(this::adjustSafely, interval, interval, TimeUnit.SECONDS);
+            logger.info("Adjusting the JMS consumers between {} and {}, starting at {}", minConsumers, maxConsumers,
+                limit);
+        }
+    }
+
+    @Override
+    public synchronized void stop()
+    {
+        if (scheduler != null)
+        {
+            scheduler.shutdownNow();
+            scheduler = null;
+        }
+    }
+
+    @Override
+    public synchronized boolean isRunning()
+    {
+        return scheduler != null;
+    }
+
+    @Override
+    public int getPhase()
+    {
+        return (endpointRegistry == null ? DEFAULT_PHASE : endpointRegistry.getPhase()) - 1;
+    }
+
+    /**
+     * Called before a transform requested via the queue is started.
+     *
+     * @return the start time to be passed to {@link #transformFinished(long, TransformRequest)}.
+     */
+    public long transformStarted()
+    {
+        peakInFlight.accumulateAndGet(inFlight.incrementAndGet(), Math::max);
+        return System.nanoTime();
+    }
+
+    /**
+     * Called once a transform requested via the queue has finished, successfully or not.
+     */
+    public void transformFinished(long startTime, TransformRequest request)
+    {
+        long nanos = System.nanoTime() - startTime;
+        inFlight.decrementAndGet();
+        latencies.computeIfAbsent(getLatencyKey(request), key -> new Latency()).add(nanos);
+    }
+
+    private static String getLatencyKey(TransformRequest request)
+    {
+        Long sourceSize = request.getSourceSize();
+        int sizeBucket = sourceSize == null || sourceSize <= 0 ? 0 : 64 - Long.numberOfLeadingZeros(sourceSize);
+        return request.getSourceMediaType() + ' ' + request.getTargetMediaType() + ' ' + sizeBucket;
+    }
+
+    public int getLimit()
+    {
+        return limit;
+    }
+
+    private void adjustSafely()
+    {
+        try
+        {
+            adjust();
+        }
+        catch (RuntimeException e)
+        {
+            logger.error("Failed to adjust the JMS consumers: " + e.getMessage(), e);
+        }
+    }
+
+    /**
+     * Works out a new limit from the transforms performed since the last call and applies it to the listener
+     * containers.
+     */
+    synchronized void adjust()
+    {
+        int peak = peakInFlight.getAndSet(inFlight.get());
+        double cpu = cpuLoad.getAsDouble();
+
+        // Average of how many times longer than normal each transform took
+        double totalSlowdown = 0;
+        long comparedCount = 0;
+        for (Latency latency : latencies.values())
+        {
+            double slowdown = latency.update();
+            if (slowdown > 0)
+            {
+                totalSlowdown += slowdown * latency.count;
+                comparedCount += latency.count;
+            }
+        }
+        double slowdown = comparedCount == 0 ? 0 : totalSlowdown / comparedCount;
+        boolean overloaded = cpu >= cpuTarget || slowdown > latencyTolerance;
+
+        int newLimit = limit;
+        if (overloaded)
+        {
+            newLimit = Math.max(minConsumers, limit - Math.max(1, limit / 4));
+        }
+        else if (peak >= limit)
+        {
+            newLimit = Math.min(maxConsumers, limit + 1);
+        }
+
+        if (newLimit != limit)
+        {
+            logger.debug("JMS consumers limit {} -> {} (cpu {}, peak {}, slowdown {})", limit, newLimit, cpu, peak,
+                slowdown);
+            limit = newLimit;
+        }
+        apply();
+    }
+
+    private void apply()
+    {
+        if (endpointRegistry != null)
+        {
+            endpointRegistry.getListenerContainers().stream()
+                .filter(DefaultMessageListenerContainer.class::isInstance)
+                .map(DefaultMessageListenerContainer.class::cast)
+                .filter(container -> container.getMaxConcurrentConsumers() != limit)
+                .forEach(container -> container.setMaxConcurrentConsumers(limit));
+        }
+    }
+
+    /**
+     * @return the CPU utilization (0 to 1) of the whole system (or container), so that the child processes used by
+     * many T-Engines are included, or a negative value if not available.
+     */
+    // getCpuLoad() replaces getSystemCpuLoad() from JDK 14, but the T-Engines still run on Java 11.
+    @SuppressWarnings("deprecation")
+    private static double getSystemCpuLoad()
+    {
+        OperatingSystemMXBean bean = ManagementFactory.getOperatingSystemMXBean();
+        return bean instanceof com.sun.management.OperatingSystemMXBean
+               ? ((com.sun.management.OperatingSystemMXBean) bean).getSystemCpuLoad()
+               : -1;
+    }
+
+    /**
+     * The latency of one type and size of transform.
+     */
+    private static class Latency
+    {
+        private final LongAdder transformCount = new LongAdder();
+        private final LongAdder transformNanos = new LongAdder();
+
+        // Only used by adjust()
+        private double baselineNanos;
+        private long count;
+
+        private void add(long nanos)
+        {
+            transformCount.increment();
+            transformNanos.add(nanos);
+        }
+
+        /**
+         * Moves the baseline towards the average latency since the last call.
+         *
+         * @return the average divided by the previous baseline, or 0 if there were no transforms or no baseline.
+         */
+        private double update()
+        {
+            count = transformCount.sumThenReset();
+            long nanos = transformNanos.sumThenReset();
+            if (count == 0)
+            {
+                return 0;
+            }
+            double averageNanos = (double) nanos / count;
+            double slowdown = baselineNanos > 0 ? averageNanos / baselineNanos : 0;
+            baselineNanos = baselineNanos == 0 || averageNanos < baselineNanos
+                            ? averageNanos
+                            : baselineNanos + (averageNanos - baselineNanos) * BASELINE_DRIFT;
+            return slowdown;
+        }
+    }
+}
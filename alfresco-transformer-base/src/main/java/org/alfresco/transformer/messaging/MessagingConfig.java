@@ -30,9 +30,11 @@ import javax.jms.ConnectionFactory;
 import javax.jms.Queue;
 
 import org.alfresco.transform.client.model.TransformRequestValidator;
+import org.alfresco.transformer.TransformController;
 import org.apache.activemq.command.ActiveMQQueue;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.ObjectProvider;
 import org.springframework.beans.factory.annotation.Value;
 import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.context.annotation.Bean;
@@ -40,11 +42,14 @@ import org.springframework.context.annotation.Configuration;
 import org.springframework.jms.annotation.JmsListenerConfigurer;
 import org.springframework.jms.config.DefaultJmsListenerContainerFactory;
 import org.springframework.jms.config.JmsListenerEndpointRegistrar;
+import org.springframework.jms.config.JmsListenerEndpointRegistry;
 import org.springframework.jms.connection.JmsTransactionManager;
 import org.springframework.lang.NonNull;
 import org.springframework.messaging.handler.annotation.support.DefaultMessageHandlerMethodFactory;
 import org.springframework.transaction.PlatformTransactionManager;
 
+import io.micrometer.core.instrument.MeterRegistry;
+
 /**
  * JMS and messaging configuration for the T-Engines. Contains the basic config in order to have the
  * T-Engine able to read from queues and send a reply back.
@@ -87,6 +92,26 @@ public class MessagingConfig implements JmsListenerConfigurer
         return factory;
     }
 
+    /**
+     * Optionally adjusts the number of consumers of the request queue within the {@code jms-listener.concurrency}
+     * range, based on the T-Engine's parallelism, transform latency and CPU utilization.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "activemq.url")
+    public JmsConcurrencyController jmsConcurrencyController(
+        @Value("${jms-listener.concurrency}") String concurrency,
+        @Value("${jms-listener.adaptive.enabled}") boolean enabled,
+        @Value("${jms-listener.adaptive.interval}") long interval,
+        @Value("${jms-listener.adaptive.cpuTarget}") double cpuTarget,
+        @Value("${jms-listener.adaptive.latencyTolerance}") double latencyTolerance,
+        final TransformController transformController,
+        final JmsListenerEndpointRegistry endpointRegistry,
+        ObjectProvider<MeterRegistry> meterRegistry)
+    {
+        return new JmsConcurrencyController(concurrency, transformController.getParallelism(), enabled, interval,
+            cpuTarget, latencyTolerance, endpointRegistry, meterRegistry.getIfAvailable());
+    }
+
     @Bean
     @ConditionalOnProperty(name = "activemq.url")
     public PlatformTransactionManager transactionManager(final ConnectionFactory connectionFactory)
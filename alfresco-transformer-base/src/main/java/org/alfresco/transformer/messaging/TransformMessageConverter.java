@@ -27,6 +27,10 @@
 
 package org.alfresco.transformer.messaging;
 
+import java.io.IOException;
+import java.util.Map;
+
+import javax.jms.BytesMessage;
 import javax.jms.JMSException;
 import javax.jms.Message;
 import javax.jms.Session;
@@ -42,13 +46,21 @@ import org.springframework.jms.support.converter.MessageType;
 import org.springframework.lang.NonNull;
 import org.springframework.stereotype.Service;
 
+import com.fasterxml.jackson.databind.DeserializationFeature;
 import com.fasterxml.jackson.databind.JavaType;
+import com.fasterxml.jackson.databind.MapperFeature;
+import com.fasterxml.jackson.databind.ObjectMapper;
 import com.fasterxml.jackson.databind.type.TypeFactory;
+import com.fasterxml.jackson.dataformat.smile.databind.SmileMapper;
 import com.google.common.collect.ImmutableMap;
 
 /**
  * TODO: Duplicated from the Router
- * Custom wrapper over MappingJackson2MessageConverter for T-Request/T-Reply objects.
+ * Custom wrapper over MappingJackson2MessageConverter for T-Request/T-Reply objects.<p/>
+ *
+ * Messages are normally JSON. A client may opt in to the more compact binary Smile encoding by setting the
+ * {@value #CONTENT_TYPE_PROPERTY} property of the message to {@value #SMILE_CONTENT_TYPE}. The reply is then sent
+ * using the same {@link Encoding} as the request.
  *
  * @author Cezar Leahu
  */
@@ -57,9 +69,58 @@ public class TransformMessageConverter implements MessageConverter
 {
     private static final Logger logger = LoggerFactory.getLogger(TransformMessageConverter.class);
 
+    public static final String TYPE_ID_PROPERTY = "_type";
+    public static final String CONTENT_TYPE_PROPERTY = "_contentType";
+    public static final String JSON_CONTENT_TYPE = "application/json";
+    public static final String SMILE_CONTENT_TYPE = "application/x-jackson-smile";
+
+    /**
+     * The encodings of the body of a message.
+     */
+    public enum Encoding
+    {
+        JSON(JSON_CONTENT_TYPE), SMILE(SMILE_CONTENT_TYPE);
+
+        private final String contentType;
+
+        Encoding(String contentType)
+        {
+            this.contentType = contentType;
+        }
+
+        public String getContentType()
+        {
+            return contentType;
+        }
+
+        /**
+         * @return the Encoding with the supplied content type, {@link #JSON} if it is {@code null}, or {@code null}
+         * if it is not supported.
+         */
+        public static Encoding fromContentType(String contentType)
+        {
+            if (contentType == null)
+            {
+                return JSON;
+            }
+            for (Encoding encoding : values())
+            {
+                if (encoding.contentType.equals(contentType))
+                {
+                    return encoding;
+                }
+            }
+            return null;
+        }
+    }
+
     private static final MappingJackson2MessageConverter converter;
+    private static final ObjectMapper smileMapper;
     private static final JavaType TRANSFORM_REQUEST_TYPE =
         TypeFactory.defaultInstance().constructType(TransformRequest.class);
+    private static final Map<String, Class<?>> TYPE_ID_MAPPINGS = ImmutableMap.of(
+        TransformRequest.class.getName(), TransformRequest.class,
+        TransformReply.class.getName(), TransformReply.class);
 
     static
     {
@@ -69,7 +130,7 @@ public class TransformMessageConverter implements MessageConverter
             @NonNull
             protected JavaType getJavaTypeForMessage(final Message message) throws JMSException
             {
-                if (message.getStringProperty("_type") == null)
+                if (message.getStringProperty(TYPE_ID_PROPERTY) == null)
                 {
                     return TRANSFORM_REQUEST_TYPE;
                 }
@@ -77,11 +138,32 @@ public class TransformMessageConverter implements MessageConverter
             }
         };
         converter.setTargetType(MessageType.BYTES);
-        converter.setTypeIdPropertyName("_type");
-        converter.setTypeIdMappings(ImmutableMap.of(
-            TransformRequest.class.getName(), TransformRequest.class,
-            TransformReply.class.getName(), TransformReply.class)
-        );
+        converter.setTypeIdPropertyName(TYPE_ID_PROPERTY);
+        converter.setTypeIdMappings(TYPE_ID_MAPPINGS);
+
+        // Configured in the same way as the ObjectMapper created by MappingJackson2MessageConverter
+        smileMapper = SmileMapper.builder()
+            .disable(MapperFeature.DEFAULT_VIEW_INCLUSION)
+            .disable(DeserializationFeature.FAIL_ON_UNKNOWN_PROPERTIES)
+            .build();
+    }
+
+    /**
+     * @return the encoding of the message, so that a reply may use the same one. {@link Encoding#JSON} is returned if
+     * the encoding is not supported, as the client will not have been able to read anything else.
+     */
+    public static Encoding getEncoding(final Message message)
+    {
+        try
+        {
+            Encoding encoding = Encoding.fromContentType(message.getStringProperty(CONTENT_TYPE_PROPERTY));
+            return encoding == null ? Encoding.JSON : encoding;
+        }
+        catch (JMSException e)
+        {
+            logger.debug("Unable to read the " + CONTENT_TYPE_PROPERTY + " of a message", e);
+            return Encoding.JSON;
+        }
     }
 
     @Override
@@ -93,10 +175,69 @@ public class TransformMessageConverter implements MessageConverter
         return converter.toMessage(object, session);
     }
 
+    @NonNull
+    public Message toMessage(
+        @NonNull final Object object,
+        @NonNull final Session session,
+        @NonNull final Encoding encoding) throws JMSException, MessageConversionException
+    {
+        if (encoding == Encoding.JSON)
+        {
+            return toMessage(object, session);
+        }
+
+        final byte[] bytes;
+        try
+        {
+            bytes = smileMapper.writeValueAsBytes(object);
+        }
+        catch (IOException e)
+        {
+            throw new MessageConversionException("Could not write " + encoding + " message", e);
+        }
+        final BytesMessage message = session.createBytesMessage();
+        message.writeBytes(bytes);
+        message.setStringProperty(TYPE_ID_PROPERTY, object.getClass().getName());
+        message.setStringProperty(CONTENT_TYPE_PROPERTY, encoding.getContentType());
+        return message;
+    }
+
     @Override
     @NonNull
     public Object fromMessage(@NonNull final Message message) throws JMSException
     {
-        return converter.fromMessage(message);
+        final String contentType = message.getStringProperty(CONTENT_TYPE_PROPERTY);
+        final Encoding encoding = Encoding.fromContentType(contentType);
+        if (encoding == null)
+        {
+            throw new MessageConversionException("Unsupported " + CONTENT_TYPE_PROPERTY + " " + contentType);
+        }
+        if (encoding == Encoding.JSON)
+        {
+            return converter.fromMessage(message);
+        }
+
+        if (!(message instanceof BytesMessage))
+        {
+            throw new MessageConversionException(encoding + " messages must be a BytesMessage");
+        }
+        final String typeId = message.getStringProperty(TYPE_ID_PROPERTY);
+        final Class<?> type = typeId == null ? TransformRequest.class : TYPE_ID_MAPPINGS.get(typeId);
+        if (type == null)
+        {
+            throw new MessageConversionException("Unknown " + TYPE_ID_PROPERTY + " " + typeId);
+        }
+
+        final BytesMessage bytesMessage = (BytesMessage) message;
+        final byte[] bytes = new byte[(int) bytesMessage.getBodyLength()];
+        bytesMessage.readBytes(bytes);
+        try
+        {
+            return smileMapper.readValue(bytes, type);
+        }
+        catch (IOException e)
+        {
+            throw new MessageConversionException("Could not read " + encoding + " message", e);
+        }
     }
 }
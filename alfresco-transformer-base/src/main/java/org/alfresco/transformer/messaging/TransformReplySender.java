@@ -27,8 +27,10 @@
 package org.alfresco.transformer.messaging;
 
 import javax.jms.Destination;
+import javax.jms.Message;
 
 import org.alfresco.transform.client.model.TransformReply;
+import org.alfresco.transformer.messaging.TransformMessageConverter.Encoding;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -51,18 +53,36 @@ public class TransformReplySender
     @Autowired
     private JmsTemplate jmsTemplate;
 
+    @Autowired
+    private TransformMessageConverter transformMessageConverter;
+
     public void send(final Destination destination, final TransformReply reply)
     {
-        send(destination, reply, reply.getRequestId());
+        send(destination, reply, Encoding.JSON);
+    }
+
+    public void send(final Destination destination, final TransformReply reply, final Encoding encoding)
+    {
+        send(destination, reply, reply.getRequestId(), encoding);
     }
 
     public void send(final Destination destination, final TransformReply reply,
         final String correlationId)
+    {
+        send(destination, reply, correlationId, Encoding.JSON);
+    }
+
+    /**
+     * @param encoding of the reply, which should be the same as the request.
+     */
+    public void send(final Destination destination, final TransformReply reply,
+        final String correlationId, final Encoding encoding)
     {
         try
         {
             //jmsTemplate.setSessionTransacted(true); // do we need this?
-            jmsTemplate.convertAndSend(destination, reply, m -> {
+            jmsTemplate.send(destination, session -> {
+                Message m = transformMessageConverter.toMessage(reply, session, encoding);
                 m.setJMSCorrelationID(correlationId);
                 return m;
             });
@@ -0,0 +1,103 @@
+/*
+ * #%L
+ * Alfresco Transform Core
+ * %%
+ * Copyright (C) 2005 - 2022 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software.
+ * -
+ * If the software was purchased under a paid Alfresco license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ * -
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * -
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * -
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.transformer.model;
+
+import java.util.Map;
+
+/**
+ * POJO that describes one of the files in a {@code /transform/batch} request. Values that are not supplied default to
+ * the request parameters of the same name.
+ */
+public class BatchItem
+{
+    private String sourceMimetype;
+    private String targetMimetype;
+    private String targetExtension;
+    private Map<String, String> transformOptions;
+
+    public BatchItem() {}
+
+    public BatchItem(String sourceMimetype, String targetMimetype, String targetExtension,
+        Map<String, String> transformOptions)
+    {
+        this.sourceMimetype = sourceMimetype;
+        this.targetMimetype = targetMimetype;
+        this.targetExtension = targetExtension;
+        this.transformOptions = transformOptions;
+    }
+
+    public String getSourceMimetype()
+    {
+        return sourceMimetype;
+    }
+
+    public void setSourceMimetype(String sourceMimetype)
+    {
+        this.sourceMimetype = sourceMimetype;
+    }
+
+    public String getTargetMimetype()
+    {
+        return targetMimetype;
+    }
+
+    public void setTargetMimetype(String targetMimetype)
+    {
+        this.targetMimetype = targetMimetype;
+    }
+
+    public String getTargetExtension()
+    {
+        return targetExtension;
+    }
+
+    public void setTargetExtension(String targetExtension)
+    {
+        this.targetExtension = targetExtension;
+    }
+
+    public Map<String, String> getTransformOptions()
+    {
+        return transformOptions;
+    }
+
+    public void setTransformOptions(Map<String, String> transformOptions)
+    {
+        this.transformOptions = transformOptions;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "BatchItem{" +
+               "sourceMimetype='" + sourceMimetype + '\'' +
+               ", targetMimetype='" + targetMimetype + '\'' +
+               ", targetExtension='" + targetExtension + '\'' +
+               ", transformOptions=" + transformOptions +
+               '}';
+    }
+}
@@ -0,0 +1,125 @@
+/*
+ * #%L
+ * Alfresco Transform Core
+ * %%
+ * Copyright (C) 2005 - 2022 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software.
+ * -
+ * If the software was purchased under a paid Alfresco license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ * -
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * -
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * -
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.transformer.model;
+
+/**
+ * POJO that reports the outcome of one of the items in a {@code /transform/batch} request. The replies are returned
+ * in the same order as the request's files, in the {@code results.json} entry of the zip response.
+ */
+public class BatchItemReply
+{
+    private int index;
+    private String sourceFilename;
+    private int status;
+    private String errorDetails;
+    private String targetEntry;
+    private long targetSize = -1;
+
+    public BatchItemReply() {}
+
+    public BatchItemReply(int index, String sourceFilename)
+    {
+        this.index = index;
+        this.sourceFilename = sourceFilename;
+    }
+
+    public int getIndex()
+    {
+        return index;
+    }
+
+    public void setIndex(int index)
+    {
+        this.index = index;
+    }
+
+    public String getSourceFilename()
+    {
+        return sourceFilename;
+    }
+
+    public void setSourceFilename(String sourceFilename)
+    {
+        this.sourceFilename = sourceFilename;
+    }
+
+    public int getStatus()
+    {
+        return status;
+    }
+
+    public void setStatus(int status)
+    {
+        this.status = status;
+    }
+
+    public String getErrorDetails()
+    {
+        return errorDetails;
+    }
+
+    public void setErrorDetails(String errorDetails)
+    {
+        this.errorDetails = errorDetails;
+    }
+
+    /**
+     * @return the name of the zip entry that contains the target, or {@code null} if the transform failed.
+     */
+    public String getTargetEntry()
+    {
+        return targetEntry;
+    }
+
+    public void setTargetEntry(String targetEntry)
+    {
+        this.targetEntry = targetEntry;
+    }
+
+    public long getTargetSize()
+    {
+        return targetSize;
+    }
+
+    public void setTargetSize(long targetSize)
+    {
+        this.targetSize = targetSize;
+    }
+
+    @Override
+    public String toString()
+    {
+        return "BatchItemReply{" +
+               "index=" + index +
+               ", sourceFilename='" + sourceFilename + '\'' +
+               ", status=" + status +
+               ", errorDetails='" + errorDetails + '\'' +
+               ", targetEntry='" + targetEntry + '\'' +
+               ", targetSize=" + targetSize +
+               '}';
+    }
+}
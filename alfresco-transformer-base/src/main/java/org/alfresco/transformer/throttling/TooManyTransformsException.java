@@ -0,0 +1,51 @@
+/*
+ * #%L
+ * Alfresco Transform Core
+ * %%
+ * Copyright (C) 2005 - 2022 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software.
+ * -
+ * If the software was purchased under a paid Alfresco license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ * -
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * -
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * -
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.transformer.throttling;
+
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
+
+import org.alfresco.transform.exceptions.TransformException;
+
+/**
+ * Thrown when a transform cannot obtain a permit from its {@link TransformPermits} pool. Includes the number of seconds
+ * the client should wait before retrying, which is returned in the {@code Retry-After} header.
+ */
+public class TooManyTransformsException extends TransformException
+{
+    private final long retryAfterSeconds;
+
+    public TooManyTransformsException(String message, long retryAfterSeconds)
+    {
+        super(TOO_MANY_REQUESTS.value(), message);
+        this.retryAfterSeconds = retryAfterSeconds;
+    }
+
+    public long getRetryAfterSeconds()
+    {
+        return retryAfterSeconds;
+    }
+}
@@ -0,0 +1,316 @@
+/*
+ * #%L
+ * Alfresco Transform Core
+ * %%
+ * Copyright (C) 2005 - 2022 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software.
+ * -
+ * If the software was purchased under a paid Alfresco license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ * -
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * -
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * -
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.transformer.throttling;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.Supplier;
+
+import org.alfresco.transform.exceptions.TransformException;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+
+/**
+ * Limits the number of transforms that may run at the same time, so that a burst of expensive transforms (such as
+ * LibreOffice conversions) cannot exhaust the CPU, memory or child processes of the T-Engine and starve the other
+ * transforms. Each pool of permits is identified by a transformer name or (in the all in one T-Engine) by the id of
+ * one of the T-Engines it contains.<p>
+ *
+ * Limits are supplied as a comma separated list of {@code name=permits} pairs, for example
+ * {@code libreoffice=2,imagemagick=4}. Transforms without a limit are not throttled.<p>
+ *
+ * When a pool is full, a bounded number of requests wait up to {@code queueTimeout} milliseconds for a permit. Other
+ * requests are rejected with a {@link TooManyTransformsException} (429) that includes an estimate of how long the
+ * client should wait before retrying, based on the recent duration of the transforms in the pool. Transforms run
+ * via {@link #waitingForPermits(Supplier)} (those taken from the JMS queue) instead wait for as long as it takes.
+ */
+public class TransformPermits
+{
+    private static final Logger logger = LoggerFactory.getLogger(TransformPermits.class);
+
+    /** Weight given to the latest duration when updating the average duration of a pool. */
+    private static final double DURATION_WEIGHT = 0.2;
+
+    private static final Permit UNLIMITED = () -> {};
+
+    private static final ThreadLocal<Boolean> waitForPermits = ThreadLocal.withInitial(() -> false);
+
+    private final Map<String, Pool> pools;
+    private final int maxQueued;
+    private final long queueTimeout;
+
+    /**
+     * @param limits comma separated list of {@code name=permits}. May be blank.
+     * @param maxQueued the maximum number of requests that may wait for a permit from each pool.
+     * @param queueTimeout milliseconds a request may wait for a permit. 0 means that requests do not wait.
+     * @param meterRegistry used to publish the occupancy of each pool. May be {@code null}.
+     */
+    public TransformPermits(String limits, int maxQueued, long queueTimeout, MeterRegistry meterRegistry)
+    {
+        this.maxQueued = maxQueued;
+        this.queueTimeout = queueTimeout;
+        this.pools = Collections.unmodifiableMap(parse(limits));
+        pools.values().forEach(pool ->
+        {
+            logger.info("Limiting {} to {} concurrent transforms", pool.name, pool.permits);
+            if (meterRegistry != null)
+            {
+                pool.register(meterRegistry);
+            }
+        });
+    }
+
+    private static Map<String, Pool> parse(String limits)
+    {
+        Map<String, Pool> pools = new HashMap<>();
+        if (limits != null && !limits.isBlank())
+        {
+            for (String limit : limits.split(","))
+            {
+                String[] nameAndPermits = limit.split("=");
+                if (nameAndPermits.length != 2)
+                {
+                    throw new IllegalArgumentException("Transform limits should be a comma separated list of " +
+                        "name=permits, but contained: " + limit);
+                }
+                String name = nameAndPermits[0].trim();
+                int permits = Integer.parseInt(nameAndPermits[1].trim());
+                if (permits < 1)
+                {
+                    throw new IllegalArgumentException("Transform limit for " + name + " must be at least 1");
+                }
+                pools.put(name, new Pool(name, permits));
+            }
+        }
+        return pools;
+    }
+
+    /**
+     * Obtains a permit from the first of the named pools that has been configured. The returned permit must be
+     * closed once the transform has finished.
+     *
+     * @param names the transformer name and optionally the id of the T-Engine that performs it. {@code null} values
+     *              are ignored.
+     * @throws TooManyTransformsException if a permit was not available within the queueTimeout.
+     */
+    public Permit acquire(String... names)
+    {
+        Pool pool = getPool(names);
+        if (pool == null)
+        {
+            return UNLIMITED;
+        }
+        if (!pool.semaphore.tryAcquire())
+        {
+            if (waitForPermits.get())
+            {
+                waitWithoutTimeout(pool);
+            }
+            else
+            {
+                waitFor(pool);
+            }
+        }
+        long start = System.currentTimeMillis();
+        return () ->
+        {
+            pool.recordDuration(System.currentTimeMillis() - start);
+            pool.semaphore.release();
+        };
+    }
+
+    private Pool getPool(String... names)
+    {
+        for (String name : names)
+        {
+            Pool pool = name == null ? null : pools.get(name);
+            if (pool != null)
+            {
+                return pool;
+            }
+        }
+        return null;
+    }
+
+    private void waitFor(Pool pool)
+    {
+        try
+        {
+            if (queueTimeout > 0 && pool.waiting.incrementAndGet() <= maxQueued &&
+                pool.semaphore.tryAcquire(queueTimeout, MILLISECONDS))
+            {
+                return;
+            }
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+        }
+        finally
+        {
+            if (queueTimeout > 0)
+            {
+                pool.waiting.decrementAndGet();
+            }
+        }
+        pool.reject();
+        throw new TooManyTransformsException("Too many concurrent " + pool.name +
+            " transforms, please try again later", pool.getRetryAfterSeconds());
+    }
+
+    private void waitWithoutTimeout(Pool pool)
+    {
+        pool.waiting.incrementAndGet();
+        try
+        {
+            pool.semaphore.acquire();
+        }
+        catch (InterruptedException e)
+        {
+            Thread.currentThread().interrupt();
+            throw new TransformException(INTERNAL_SERVER_ERROR.value(),
+                "Interrupted while waiting for a " + pool.name + " permit", e);
+        }
+        finally
+        {
+            pool.waiting.decrementAndGet();
+        }
+    }
+
+    /**
+     * Performs work on the current thread, during which {@link #acquire(String...)} waits for as long as it takes to
+     * obtain a permit, rather than rejecting the transform. Used for T-Requests taken from the JMS queue, as their
+     * clients cannot retry, and the listener concurrency already limits the number of them that may wait.
+     */
+    public static <T> T waitingForPermits(Supplier<T> work)
+    {
+        boolean previous = waitForPermits.get();
+        waitForPermits.set(true);
+        try
+        {
+            return work.get();
+        }
+        finally
+        {
+            waitForPermits.set(previous);
+        }
+    }
+
+    /**
+     * @return the number of permits in use by the named pool, or -1 if it has not been configured.
+     */
+    public int getActive(String name)
+    {
+        Pool pool = pools.get(name);
+        return pool == null ? -1 : pool.getActive();
+    }
+
+    /**
+     * A permit that must be released by calling {@link #close()} once the transform has finished.
+     */
+    public interface Permit extends AutoCloseable
+    {
+        @Override
+        void close();
+    }
+
+    private static class Pool
+    {
+        private final String name;
+        private final int permits;
+        private final Semaphore semaphore;
+        private final AtomicInteger waiting = new AtomicInteger();
+        private volatile double averageDuration;
+        private Counter rejected;
+
+        private Pool(String name, int permits)
+        {
+            this.name = name;
+            this.permits = permits;
+            this.semaphore = new Semaphore(permits, true);
+        }
+
+        private void register(MeterRegistry meterRegistry)
+        {
+            Gauge.builder("transformer.permits.active", this, Pool::getActive)
+                 .description("Transforms currently holding a permit")
+                 .tag("pool", name)
+                 .register(meterRegistry);
+            Gauge.builder("transformer.permits.waiting", waiting, AtomicInteger::get)
+                 .description("Transforms waiting for a permit")
+                 .tag("pool", name)
+                 .register(meterRegistry);
+            Gauge.builder("transformer.permits.limit", this, pool -> pool.permits)
+                 .description("Maximum number of concurrent transforms")
+                 .tag("pool", name)
+                 .register(meterRegistry);
+            rejected = Counter.builder("transformer.permits.rejected")
+                              .description("Transforms rejected because no permit was available")
+                              .tag("pool", name)
+                              .register(meterRegistry);
+        }
+
+        private int getActive()
+        {
+            return permits - semaphore.availablePermits();
+        }
+
+        private synchronized void recordDuration(long duration)
+        {
+            averageDuration = averageDuration == 0
+                ? duration
+                : averageDuration + DURATION_WEIGHT * (duration - averageDuration);
+        }
+
+        private void reject()
+        {
+            if (rejected != null)
+            {
+                rejected.increment();
+            }
+        }
+
+        /**
+         * Estimates how long it will take for the transforms that are running or waiting to complete.
+         */
+        private long getRetryAfterSeconds()
+        {
+            double seconds = averageDuration * (waiting.get() + 1) / permits / 1000;
+            return Math.max(1, (long) Math.ceil(seconds));
+        }
+    }
+}
@@ -0,0 +1,223 @@
+/*
+ * #%L
+ * Alfresco Transform Core
+ * %%
+ * Copyright (C) 2005 - 2022 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software.
+ * -
+ * If the software was purchased under a paid Alfresco license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ * -
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * -
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * -
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.transformer.util;
+
+import static java.util.concurrent.TimeUnit.MILLISECONDS;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.REQUEST_TIMEOUT;
+
+import java.util.concurrent.ScheduledFuture;
+import java.util.concurrent.ScheduledThreadPoolExecutor;
+import java.util.function.Supplier;
+
+import org.alfresco.transform.exceptions.TransformException;
+
+/**
+ * The time by which a transform request must complete. It starts when the request arrives and covers reading the
+ * source, the transform itself and writing the target. Work run via {@link #run(String, Runnable)} is interrupted
+ * when the deadline expires and a 408 Request Timeout {@link TransformException} is thrown, even if the work ignores
+ * the interrupt and completes late.
+ */
+public class Deadline
+{
+    public static final Deadline NONE = new Deadline(0);
+
+    private static final ScheduledThreadPoolExecutor watchdogs = createWatchdogs();
+
+    private final long timeout;
+    private final long expiry;
+
+    private Deadline(long timeout)
+    {
+        this.timeout = timeout;
+        this.expiry = System.currentTimeMillis() + timeout;
+    }
+
+    private static ScheduledThreadPoolExecutor createWatchdogs()
+    {
+        ScheduledThreadPoolExecutor executor = new ScheduledThreadPoolExecutor(1, runnable ->
+        {
+            Thread thread = new Thread(runnable, "transform-deadline");
+            thread.setDaemon(true);
+            return thread;
+        });
+        executor.setRemoveOnCancelPolicy(true);
+        return executor;
+    }
+
+    /**
+     * @param timeout milliseconds from now. {@code null} or a value less than or equal to zero means there is no
+     *                deadline.
+     */
+    public static Deadline after(Long timeout)
+    {
+        return timeout == null || timeout <= 0 ? NONE : new Deadline(timeout);
+    }
+
+    /**
+     * @param timeout milliseconds from now, as supplied in a request. {@code null} or a value less than or equal to
+     *                zero means there is no deadline.
+     * @throws TransformException 400 if the value is not a number.
+     */
+    public static Deadline after(String timeout)
+    {
+        try
+        {
+            return after(Util.stringToLong(timeout));
+        }
+        catch (NumberFormatException e)
+        {
+            throw new TransformException(BAD_REQUEST.value(), "Request parameter 'timeout' is of the wrong type", e);
+        }
+    }
+
+    public boolean isSet()
+    {
+        return this != NONE;
+    }
+
+    /**
+     * @return the number of milliseconds left, or {@link Long#MAX_VALUE} if there is no deadline.
+     */
+    public long getRemaining()
+    {
+        return isSet() ? Math.max(0, expiry - System.currentTimeMillis()) : Long.MAX_VALUE;
+    }
+
+    /**
+     * @param activity describes what was about to be done, for use in the exception message.
+     * @throws TransformException 408 if the deadline has passed.
+     */
+    public void check(String activity)
+    {
+        if (isSet() && System.currentTimeMillis() >= expiry)
+        {
+            throw timedOut(activity, null);
+        }
+    }
+
+    /**
+     * Runs the supplied work on the current thread, interrupting it if the deadline expires before it completes.
+     *
+     * @param activity describes the work, for use in the exception message.
+     * @throws TransformException 408 if the deadline has passed or expired while the work was running.
+     */
+    public void run(String activity, Runnable work)
+    {
+        get(activity, () ->
+        {
+            work.run();
+            return null;
+        });
+    }
+
+    /**
+     * Version of {@link #run(String, Runnable)} that returns a value.
+     */
+    public <T> T get(String activity, Supplier<T> work)
+    {
+        check(activity);
+        if (!isSet())
+        {
+            return work.get();
+        }
+
+        Watchdog watchdog = new Watchdog(Thread.currentThread());
+        ScheduledFuture<?> future = watchdogs.schedule(watchdog, getRemaining(), MILLISECONDS);
+        try
+        {
+            T result = work.get();
+            // Work that ignores the interrupt, such as many Java transformers, may still finish late
+            if (watchdog.stop())
+            {
+                throw timedOut(activity, null);
+            }
+            return result;
+        }
+        catch (RuntimeException e)
+        {
+            if (watchdog.stop())
+            {
+                throw timedOut(activity, e);
+            }
+            throw e;
+        }
+        finally
+        {
+            watchdog.stop();
+            future.cancel(false);
+        }
+    }
+
+    private TransformException timedOut(String activity, Throwable cause)
+    {
+        return new TransformException(REQUEST_TIMEOUT.value(),
+            activity + " did not complete within the " + timeout + "ms timeout", cause);
+    }
+
+    /**
+     * Interrupts the thread performing the work, unless it has already finished.
+     */
+    private static class Watchdog implements Runnable
+    {
+        private final Thread thread;
+        private boolean stopped;
+        private boolean expired;
+
+        private Watchdog(Thread thread)
+        {
+            this.thread = thread;
+        }
+
+        @Override
+        public synchronized void run()
+        {
+            if (!stopped)
+            {
+                expired = true;
+                thread.interrupt();
+            }
+        }
+
+        /**
+         * @return {@code true} if the deadline expired. The thread's interrupted status is then cleared, so that
+         * it does not affect subsequent requests handled by the same thread.
+         */
+        private synchronized boolean stop()
+        {
+            if (!stopped)
+            {
+                stopped = true;
+                if (expired)
+                {
+                    Thread.interrupted();
+                }
+            }
+            return expired;
+        }
+    }
+}
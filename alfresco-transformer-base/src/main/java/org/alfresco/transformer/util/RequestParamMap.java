@@ -47,4 +47,7 @@ public interface RequestParamMap extends org.alfresco.transform.client.util.Requ
     String TARGET_EXTENSION         = "targetExtension";
     String TARGET_MIMETYPE          = "targetMimetype";
     String TEST_DELAY               = "testDelay";
+
+    // The optional JSON part of a /transform/batch request that describes each of its files
+    String BATCH_ITEMS              = "items";
 }
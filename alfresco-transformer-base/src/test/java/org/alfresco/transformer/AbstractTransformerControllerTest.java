@@ -30,37 +30,55 @@ import static java.nio.file.StandardCopyOption.REPLACE_EXISTING;
 import static org.alfresco.transform.client.model.Mimetype.MIMETYPE_TEXT_PLAIN;
 import static org.alfresco.transform.client.util.RequestParamMap.DIRECT_ACCESS_URL;
 import static org.alfresco.transform.client.util.RequestParamMap.ENDPOINT_TRANSFORM;
+import static org.alfresco.transform.client.util.RequestParamMap.ENDPOINT_TRANSFORM_ASYNC;
+import static org.alfresco.transform.client.util.RequestParamMap.ENDPOINT_TRANSFORM_BATCH;
 import static org.alfresco.transform.client.util.RequestParamMap.ENDPOINT_TRANSFORM_CONFIG_LATEST;
 import static org.alfresco.transform.client.util.RequestParamMap.ENDPOINT_TRANSFORM_CONFIG;
 import static org.hamcrest.Matchers.containsString;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
 import static org.junit.jupiter.api.Assertions.assertEquals;
 import static org.junit.jupiter.api.Assertions.assertNotNull;
 import static org.junit.jupiter.api.Assertions.assertTrue;
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.Mockito.when;
 import static org.springframework.http.HttpHeaders.ACCEPT;
+import static org.springframework.http.HttpHeaders.CONTENT_LENGTH;
+import static org.springframework.http.HttpHeaders.CONTENT_RANGE;
 import static org.springframework.http.HttpHeaders.CONTENT_TYPE;
+import static org.springframework.http.HttpHeaders.ETAG;
+import static org.springframework.http.HttpHeaders.IF_NONE_MATCH;
+import static org.springframework.http.HttpHeaders.LAST_MODIFIED;
+import static org.springframework.http.HttpHeaders.RANGE;
 import static org.springframework.http.HttpStatus.BAD_REQUEST;
 import static org.springframework.http.HttpStatus.CREATED;
 import static org.springframework.http.HttpStatus.INTERNAL_SERVER_ERROR;
 import static org.springframework.http.HttpStatus.OK;
+import static org.springframework.http.HttpStatus.PARTIAL_CONTENT;
 import static org.springframework.http.MediaType.APPLICATION_JSON_VALUE;
+import static org.springframework.test.web.servlet.request.MockMvcRequestBuilders.asyncDispatch;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.content;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.header;
+import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.request;
 import static org.springframework.test.web.servlet.result.MockMvcResultMatchers.status;
 
+import java.io.ByteArrayInputStream;
 import java.io.File;
 import java.io.FileInputStream;
 import java.io.FileOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
 import java.net.URL;
 import java.nio.channels.FileChannel;
 import java.nio.file.Files;
+import java.util.Arrays;
 import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
 import java.util.Set;
 import java.util.UUID;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
 
 import org.alfresco.transform.client.model.InternalContext;
 import org.alfresco.transform.client.model.TransformReply;
@@ -74,9 +92,12 @@ import org.alfresco.transform.client.model.config.Transformer;
 import org.alfresco.transform.client.registry.TransformServiceRegistry;
 import org.alfresco.transform.router.TransformStack;
 import org.alfresco.transformer.clients.AlfrescoSharedFileStoreClient;
+import org.alfresco.transformer.model.BatchItem;
+import org.alfresco.transformer.model.BatchItemReply;
 import org.alfresco.transformer.model.FileRefEntity;
 import org.alfresco.transformer.model.FileRefResponse;
 import org.alfresco.transformer.probes.ProbeTestTransform;
+import org.junit.jupiter.api.AfterEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.io.TempDir;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -87,10 +108,13 @@ import org.springframework.core.io.ClassPathResource;
 import org.springframework.mock.web.MockMultipartFile;
 import org.springframework.test.util.ReflectionTestUtils;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.ResultActions;
 import org.springframework.test.web.servlet.request.MockHttpServletRequestBuilder;
+import org.springframework.test.web.servlet.request.MockMultipartHttpServletRequestBuilder;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import com.fasterxml.jackson.core.type.TypeReference;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import com.google.common.collect.ImmutableList;
 import com.google.common.collect.ImmutableMap;
@@ -119,6 +143,9 @@ public abstract class AbstractTransformerControllerTest
     @Value("${transform.core.version}")
     private String coreVersion;
 
+    // The registry's engine config before it was changed by useEngineConfig.
+    private Object originalEngineConfig;
+
     protected String sourceExtension;
     protected String targetExtension;
     protected String sourceMimetype;
@@ -238,7 +265,7 @@ public abstract class AbstractTransformerControllerTest
     private MockHttpServletRequestBuilder mockMvcRequestWithoutMockMultipartFile(String url,
                                                            String... params)
     {
-        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.multipart(ENDPOINT_TRANSFORM);
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.multipart(url);
 
         if (params.length % 2 != 0)
         {
@@ -255,7 +282,7 @@ public abstract class AbstractTransformerControllerTest
     private MockHttpServletRequestBuilder mockMvcRequestWithMockMultipartFile(String url, MockMultipartFile sourceFile,
         String... params)
     {
-        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.multipart(ENDPOINT_TRANSFORM).file(
+        MockHttpServletRequestBuilder builder = MockMvcRequestBuilders.multipart(url).file(
             sourceFile);
 
         if (params.length % 2 != 0)
@@ -321,6 +348,112 @@ public abstract class AbstractTransformerControllerTest
         assertTrue(ms <= 500,"Delay sending the result back was too big " + ms);
     }
 
+    @Test
+    public void rangeRequestTest() throws Exception
+    {
+        mockMvc.perform(
+            mockMvcRequest(ENDPOINT_TRANSFORM, sourceFile, "targetExtension", targetExtension)
+                .header(RANGE, "bytes=0-9"))
+               .andExpect(status().is(PARTIAL_CONTENT.value()))
+               .andExpect(header().string(CONTENT_LENGTH, "10"))
+               .andExpect(header().string(CONTENT_RANGE, "bytes 0-9/" + expectedTargetFileBytes.length))
+               .andExpect(content().bytes(Arrays.copyOfRange(expectedTargetFileBytes, 0, 10)));
+    }
+
+    @Test
+    public void asyncTransformTest() throws Exception
+    {
+        MvcResult mvcResult = mockMvc.perform(
+            mockMvcRequest(ENDPOINT_TRANSFORM_ASYNC, sourceFile, "targetExtension", targetExtension))
+               .andExpect(request().asyncStarted())
+               .andReturn();
+        mvcResult.getAsyncResult(10000);
+
+        mockMvc.perform(asyncDispatch(mvcResult))
+               .andExpect(status().is(OK.value()))
+               .andExpect(content().bytes(expectedTargetFileBytes))
+               .andExpect(header().string("Content-Disposition",
+                   "attachment; filename*= UTF-8''quick." + targetExtension));
+    }
+
+    private static Map<String, byte[]> readZipEntries(MvcResult mvcResult) throws IOException
+    {
+        Map<String, byte[]> entries = new HashMap<>();
+        try (ZipInputStream zip = new ZipInputStream(
+            new ByteArrayInputStream(mvcResult.getResponse().getContentAsByteArray())))
+        {
+            for (ZipEntry entry = zip.getNextEntry(); entry != null; entry = zip.getNextEntry())
+            {
+                entries.put(entry.getName(), zip.readAllBytes());
+            }
+        }
+        return entries;
+    }
+
+    @Test
+    public void batchTransformTest() throws Exception
+    {
+        MockMultipartFile noFilename = new MockMultipartFile("file", "", sourceFile.getContentType(),
+            sourceFile.getBytes());
+        MvcResult mvcResult = mockMvc.perform(
+            ((MockMultipartHttpServletRequestBuilder) mockMvcRequest(ENDPOINT_TRANSFORM_BATCH, sourceFile,
+                "targetExtension", targetExtension)).file(noFilename))
+               .andExpect(status().is(OK.value()))
+               .andExpect(header().string(CONTENT_TYPE, "application/zip"))
+               .andReturn();
+
+        Map<String, byte[]> entries = readZipEntries(mvcResult);
+        assertEquals(Set.of("0/quick." + targetExtension, "results.json"), entries.keySet());
+        assertArrayEquals(expectedTargetFileBytes, entries.get("0/quick." + targetExtension));
+
+        List<BatchItemReply> replies = objectMapper.readValue(entries.get("results.json"),
+            new TypeReference<List<BatchItemReply>>() {});
+        assertEquals(2, replies.size());
+        assertEquals(OK.value(), replies.get(0).getStatus());
+        assertEquals("0/quick." + targetExtension, replies.get(0).getTargetEntry());
+        assertEquals(BAD_REQUEST.value(), replies.get(1).getStatus());
+        assertEquals("The source filename was not supplied", replies.get(1).getErrorDetails());
+    }
+
+    @Test
+    public void batchFanOutTransformTest() throws Exception
+    {
+        AtomicInteger reads = new AtomicInteger();
+        sourceFile = new MockMultipartFile("file", sourceFile.getOriginalFilename(), sourceFile.getContentType(),
+            sourceFile.getBytes())
+        {
+            @Override
+            public InputStream getInputStream() throws IOException
+            {
+                reads.incrementAndGet();
+                return super.getInputStream();
+            }
+
+            @Override
+            public void transferTo(File dest) throws IOException
+            {
+                reads.incrementAndGet();
+                super.transferTo(dest);
+            }
+        };
+        MockMultipartFile items = new MockMultipartFile("items", "", APPLICATION_JSON_VALUE,
+            objectMapper.writeValueAsBytes(List.of(new BatchItem(), new BatchItem())));
+        MvcResult mvcResult = mockMvc.perform(
+            ((MockMultipartHttpServletRequestBuilder) mockMvcRequest(ENDPOINT_TRANSFORM_BATCH, sourceFile,
+                "targetExtension", targetExtension)).file(items))
+               .andExpect(status().is(OK.value()))
+               .andReturn();
+
+        // The upload is only read once
+        assertEquals(1, reads.get());
+
+        Map<String, byte[]> entries = readZipEntries(mvcResult);
+        assertEquals(Set.of("0/quick." + targetExtension, "1/quick." + targetExtension, "results.json"),
+            entries.keySet());
+        assertArrayEquals(expectedTargetFileBytes, entries.get("0/quick." + targetExtension));
+        assertArrayEquals(expectedTargetFileBytes, entries.get("1/quick." + targetExtension));
+    }
+
     @Test
     public void noTargetFileTest() throws Exception
     {
@@ -451,6 +584,30 @@ public abstract class AbstractTransformerControllerTest
         return "engine_config.json";
     }
 
+    /**
+     * Reloads the registry's engine config from a different file. It is restored after the test.
+     */
+    private void useEngineConfig(String engineConfigName)
+    {
+        if (originalEngineConfig == null)
+        {
+            originalEngineConfig = ReflectionTestUtils.getField(transformRegistry, "engineConfig");
+        }
+        ReflectionTestUtils.setField(transformRegistry, "engineConfig", new ClassPathResource(engineConfigName));
+        ((TransformRegistryImpl) transformRegistry).reloadIfChanged();
+    }
+
+    @AfterEach
+    public void restoreEngineConfig()
+    {
+        if (originalEngineConfig != null)
+        {
+            ReflectionTestUtils.setField(transformRegistry, "engineConfig", originalEngineConfig);
+            ((TransformRegistryImpl) transformRegistry).reloadIfChanged();
+            originalEngineConfig = null;
+        }
+    }
+
     @Test
     public void testGetTransformConfigInfo() throws Exception
     {
@@ -463,19 +620,37 @@ public abstract class AbstractTransformerControllerTest
         });
         expectedTransformConfig.getTransformOptions().put(DIRECT_ACCESS_URL, Set.of(new TransformOptionValue(false, DIRECT_ACCESS_URL)));
 
-        ReflectionTestUtils.setField(transformRegistry, "engineConfig",
-            new ClassPathResource(getEngineConfigName()));
+        useEngineConfig(getEngineConfigName());
 
         String response = mockMvc
             .perform(MockMvcRequestBuilders.get(ENDPOINT_TRANSFORM_CONFIG_LATEST))
             .andExpect(status().is(OK.value()))
             .andExpect(header().string(CONTENT_TYPE, APPLICATION_JSON_VALUE))
+            .andExpect(header().exists(LAST_MODIFIED))
             .andReturn().getResponse().getContentAsString();
 
         TransformConfig transformConfig = objectMapper.readValue(response, TransformConfig.class);
         assertEquals(expectedTransformConfig, transformConfig);
     }
 
+    @Test
+    public void testGetTransformConfigNotModified() throws Exception
+    {
+        String eTag = mockMvc
+            .perform(MockMvcRequestBuilders.get(ENDPOINT_TRANSFORM_CONFIG_LATEST))
+            .andExpect(status().is(OK.value()))
+            .andExpect(header().exists(ETAG))
+            .andReturn().getResponse().getHeader(ETAG);
+
+        mockMvc.perform(MockMvcRequestBuilders.get(ENDPOINT_TRANSFORM_CONFIG_LATEST).header(IF_NONE_MATCH, eTag))
+               .andExpect(status().isNotModified())
+               .andExpect(content().bytes(new byte[0]));
+
+        // The config without the core version is different
+        mockMvc.perform(MockMvcRequestBuilders.get(ENDPOINT_TRANSFORM_CONFIG).header(IF_NONE_MATCH, eTag))
+               .andExpect(status().is(OK.value()));
+    }
+
     @Test
     // Test for case when T-Router or Repository is a version that does not expect it
     public void testGetTransformConfigInfoExcludingCoreVersion() throws Exception
@@ -484,8 +659,7 @@ public abstract class AbstractTransformerControllerTest
             .readValue(getTestFile(getEngineConfigName(), true),
                 TransformConfig.class);
 
-        ReflectionTestUtils.setField(transformRegistry, "engineConfig",
-            new ClassPathResource(getEngineConfigName()));
+        useEngineConfig(getEngineConfigName());
 
         String response = mockMvc
             .perform(MockMvcRequestBuilders.get(ENDPOINT_TRANSFORM_CONFIG))
@@ -502,8 +676,7 @@ public abstract class AbstractTransformerControllerTest
     {
         TransformConfig expectedResult = buildCompleteTransformConfig();
 
-        ReflectionTestUtils.setField(transformRegistry, "engineConfig",
-            new ClassPathResource("engine_config_with_duplicates.json"));
+        useEngineConfig("engine_config_with_duplicates.json");
 
         String response = mockMvc
             .perform(MockMvcRequestBuilders.get(ENDPOINT_TRANSFORM_CONFIG))
@@ -529,8 +702,7 @@ public abstract class AbstractTransformerControllerTest
         TransformConfig expectedResult = new TransformConfig();
         expectedResult.setTransformers(ImmutableList.of(transformer));
 
-        ReflectionTestUtils.setField(transformRegistry, "engineConfig",
-            new ClassPathResource("engine_config_incomplete.json"));
+        useEngineConfig("engine_config_incomplete.json");
 
         String response = mockMvc
             .perform(MockMvcRequestBuilders.get(ENDPOINT_TRANSFORM_CONFIG))
@@ -552,8 +724,7 @@ public abstract class AbstractTransformerControllerTest
         TransformConfig expectedResult = new TransformConfig();
         expectedResult.setTransformers(ImmutableList.of(transformer));
 
-        ReflectionTestUtils.setField(transformRegistry, "engineConfig",
-            new ClassPathResource("engine_config_no_transform_options.json"));
+        useEngineConfig("engine_config_no_transform_options.json");
 
         String response = mockMvc
             .perform(MockMvcRequestBuilders.get(ENDPOINT_TRANSFORM_CONFIG))
@@ -27,6 +27,9 @@
 
 package org.alfresco.transformer;
 
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
 import static org.mockito.Mockito.doReturn;
 import static org.mockito.Mockito.doThrow;
 import static org.mockito.Mockito.mock;
@@ -42,8 +45,11 @@ import javax.jms.Message;
 
 import org.alfresco.transform.client.model.TransformReply;
 import org.alfresco.transform.client.model.TransformRequest;
+import org.alfresco.transformer.messaging.JmsConcurrencyController;
 import org.alfresco.transformer.messaging.TransformMessageConverter;
+import org.alfresco.transformer.messaging.TransformMessageConverter.Encoding;
 import org.alfresco.transformer.messaging.TransformReplySender;
+import org.alfresco.transformer.throttling.TransformPermits;
 import org.apache.activemq.command.ActiveMQObjectMessage;
 import org.apache.activemq.command.ActiveMQQueue;
 import org.junit.jupiter.api.BeforeEach;
@@ -63,6 +69,8 @@ public class QueueTransformServiceTest
     private TransformMessageConverter transformMessageConverter;
     @Mock
     private TransformReplySender transformReplySender;
+    @Mock
+    private JmsConcurrencyController jmsConcurrencyController;
 
     @InjectMocks
     private QueueTransformService queueTransformService;
@@ -114,7 +122,7 @@ public class QueueTransformServiceTest
         queueTransformService.receive(msg);
 
         verify(transformMessageConverter).fromMessage(msg);
-        verify(transformReplySender).send(destination, reply, msg.getCorrelationId());
+        verify(transformReplySender).send(destination, reply, msg.getCorrelationId(), Encoding.JSON);
 
         verifyNoMoreInteractions(transformController);
     }
@@ -141,7 +149,7 @@ public class QueueTransformServiceTest
         queueTransformService.receive(msg);
 
         verify(transformMessageConverter).fromMessage(msg);
-        verify(transformReplySender).send(destination, reply, msg.getCorrelationId());
+        verify(transformReplySender).send(destination, reply, msg.getCorrelationId(), Encoding.JSON);
 
         verifyNoMoreInteractions(transformController);
     }
@@ -168,7 +176,7 @@ public class QueueTransformServiceTest
         queueTransformService.receive(msg);
 
         verify(transformMessageConverter).fromMessage(msg);
-        verify(transformReplySender).send(destination, reply, msg.getCorrelationId());
+        verify(transformReplySender).send(destination, reply, msg.getCorrelationId(), Encoding.JSON);
 
         verifyNoMoreInteractions(transformController);
     }
@@ -194,7 +202,78 @@ public class QueueTransformServiceTest
 
         verify(transformMessageConverter).fromMessage(msg);
         verify(transformController).transform(request, null);
-        verify(transformReplySender).send(destination, reply);
+        verify(transformReplySender).send(destination, reply, Encoding.JSON);
+    }
+
+    @Test
+    public void testThrottledTransformRequestWaitsAndThenReplyWithSuccess() throws Exception
+    {
+        ActiveMQObjectMessage msg = new ActiveMQObjectMessage();
+        ActiveMQQueue destination = new ActiveMQQueue();
+        msg.setJMSReplyTo(destination);
+
+        TransformRequest request = new TransformRequest();
+        TransformReply reply = TransformReply
+            .builder()
+            .withStatus(CREATED.value())
+            .build();
+
+        // No requests may wait for a permit, so other requests would be rejected with a 429
+        TransformPermits transformPermits = new TransformPermits("libreoffice=1", 0, 0, null);
+        doReturn(request).when(transformMessageConverter).fromMessage(msg);
+        doAnswer(invocation ->
+        {
+            try (TransformPermits.Permit permit = transformPermits.acquire("libreoffice"))
+            {
+                return new ResponseEntity<>(reply, HttpStatus.valueOf(reply.getStatus()));
+            }
+        }).when(transformController).transform(request, null);
+
+        TransformPermits.Permit permit = transformPermits.acquire("libreoffice");
+        Thread thread = new Thread(() ->
+        {
+            try
+            {
+                Thread.sleep(200);
+            }
+            catch (InterruptedException ignore)
+            {
+            }
+            permit.close();
+        });
+        long start = System.currentTimeMillis();
+        thread.start();
+
+        queueTransformService.receive(msg);
+
+        assertTrue(System.currentTimeMillis() - start >= 200, "The request should have waited for a permit");
+        verify(transformReplySender).send(destination, reply, Encoding.JSON);
+        thread.join();
+        assertEquals(0, transformPermits.getActive("libreoffice"));
+    }
+
+    @Test
+    public void testWhenReceiveSmileTransformRequestThenReplyWithSmile() throws JMSException
+    {
+        ActiveMQObjectMessage msg = new ActiveMQObjectMessage();
+        ActiveMQQueue destination = new ActiveMQQueue();
+        msg.setJMSReplyTo(destination);
+        msg.setStringProperty(TransformMessageConverter.CONTENT_TYPE_PROPERTY,
+            TransformMessageConverter.SMILE_CONTENT_TYPE);
+
+        TransformRequest request = new TransformRequest();
+        TransformReply reply = TransformReply
+            .builder()
+            .withStatus(CREATED.value())
+            .build();
+
+        doReturn(request).when(transformMessageConverter).fromMessage(msg);
+        doReturn(new ResponseEntity<>(reply, HttpStatus.valueOf(reply.getStatus())))
+            .when(transformController).transform(request, null);
+
+        queueTransformService.receive(msg);
+
+        verify(transformReplySender).send(destination, reply, Encoding.SMILE);
     }
 
     @Test
@@ -235,6 +314,6 @@ public class QueueTransformServiceTest
 
         verify(transformMessageConverter).fromMessage(msg);
         verify(transformController).transform(request, null);
-        verify(transformReplySender).send(destination, reply);
+        verify(transformReplySender).send(destination, reply, Encoding.JSON);
     }
 }
@@ -0,0 +1,114 @@
+/*
+ * #%L
+ * Alfresco Transform Core
+ * %%
+ * Copyright (C) 2005 - 2022 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software.
+ * -
+ * If the software was purchased under a paid Alfresco license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ * -
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * -
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * -
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.transformer;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Instant;
+
+import org.alfresco.transform.client.model.config.TransformConfig;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.core.io.DefaultResourceLoader;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class TransformRegistryImplTest
+{
+    private static final String PDF = "application/pdf";
+    private static final String PNG = "image/png";
+    private static final String TXT = "text/plain";
+
+    @TempDir
+    Path tempDir;
+
+    private Path engineConfigFile;
+    private TransformRegistryImpl transformRegistry;
+
+    @BeforeEach
+    public void setUp() throws IOException
+    {
+        engineConfigFile = tempDir.resolve("engine_config.json");
+        writeEngineConfig(PNG, 1000);
+
+        transformRegistry = new TransformRegistryImpl();
+        ReflectionTestUtils.setField(transformRegistry, "resourceLoader", new DefaultResourceLoader());
+        ReflectionTestUtils.setField(transformRegistry, "locationFromProperty", engineConfigFile.toUri().toString());
+        ReflectionTestUtils.setField(transformRegistry, "coreVersion", "2.5.0");
+        transformRegistry.afterPropertiesSet();
+    }
+
+    private void writeEngineConfig(String targetMimetype, long maxSourceSizeBytes) throws IOException
+    {
+        Files.writeString(engineConfigFile, "{\"transformers\": [{\"transformerName\": \"engineX\", " +
+            "\"supportedSourceAndTargetList\": [{\"sourceMediaType\": \"" + PDF + "\", " +
+            "\"targetMediaType\": \"" + targetMimetype + "\", \"maxSourceSizeBytes\": " + maxSourceSizeBytes + "}]}]}");
+    }
+
+    @Test
+    public void testReloadWhenChanged() throws IOException
+    {
+        Instant firstLoadTime = transformRegistry.getConfigLoadTime();
+        TransformConfig firstTransformConfig = transformRegistry.getTransformConfig();
+        assertEquals(1, transformRegistry.getConfigVersion());
+        assertEquals("engineX", transformRegistry.findTransformerName(PDF, 500, PNG, null, null));
+        assertEquals(1000, transformRegistry.findMaxSize(PDF, PNG, null, null));
+
+        // Unchanged
+        assertFalse(transformRegistry.reloadIfChanged());
+        assertEquals(1, transformRegistry.getConfigVersion());
+        assertSame(firstTransformConfig, transformRegistry.getTransformConfig());
+
+        writeEngineConfig(TXT, 2000);
+        assertTrue(transformRegistry.reloadIfChanged());
+        assertEquals(2, transformRegistry.getConfigVersion());
+        assertFalse(transformRegistry.getConfigLoadTime().isBefore(firstLoadTime));
+        assertEquals(TXT, transformRegistry.getTransformConfig().getTransformers().get(0)
+            .getSupportedSourceAndTargetList().iterator().next().getTargetMediaType());
+        assertNull(transformRegistry.findTransformerName(PDF, 500, PNG, null, null));
+        assertEquals(2000, transformRegistry.findMaxSize(PDF, TXT, null, null));
+    }
+
+    @Test
+    public void testInvalidConfigIsNotLoaded() throws IOException
+    {
+        TransformConfig firstTransformConfig = transformRegistry.getTransformConfig();
+
+        Files.writeString(engineConfigFile, "{\"transformers\": [");
+        assertFalse(transformRegistry.reloadIfChanged());
+        assertEquals(1, transformRegistry.getConfigVersion());
+        assertSame(firstTransformConfig, transformRegistry.getTransformConfig());
+        assertEquals("engineX", transformRegistry.findTransformerName(PDF, 500, PNG, null, null));
+    }
+}
@@ -0,0 +1,212 @@
+/*
+ * #%L
+ * Alfresco Transform Core
+ * %%
+ * Copyright (C) 2005 - 2022 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software.
+ * -
+ * If the software was purchased under a paid Alfresco license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ * -
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * -
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * -
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.transformer.cache;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.REQUEST_TIMEOUT;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.function.Consumer;
+
+import org.alfresco.transform.exceptions.TransformException;
+import org.alfresco.transformer.util.Deadline;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class TransformCoalescerTest
+{
+    @TempDir
+    Path tempDir;
+
+    private final ExecutorService executor = Executors.newCachedThreadPool();
+
+    @AfterEach
+    public void tearDown()
+    {
+        executor.shutdownNow();
+    }
+
+    private File target(String name)
+    {
+        return tempDir.resolve(name).toFile();
+    }
+
+    private static void write(File file, String content)
+    {
+        try
+        {
+            Files.writeString(file.toPath(), content, UTF_8);
+        }
+        catch (IOException e)
+        {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    /**
+     * Starts the leader with a transform that blocks until released, waiting until it is running.
+     */
+    private Future<?> startLeader(TransformCoalescer coalescer, File target, CountDownLatch release,
+                                  Consumer<File> transform) throws InterruptedException
+    {
+        CountDownLatch started = new CountDownLatch(1);
+        Future<?> future = executor.submit(() -> coalescer.transform("key", target, Deadline.NONE, file ->
+        {
+            started.countDown();
+            try
+            {
+                release.await();
+            }
+            catch (InterruptedException e)
+            {
+                throw new IllegalStateException(e);
+            }
+            transform.accept(file);
+        }));
+        assertTrue(started.await(10, TimeUnit.SECONDS));
+        return future;
+    }
+
+    private static void awaitFollowers(SimpleMeterRegistry meterRegistry, int count)
+        throws InterruptedException
+    {
+        long end = System.currentTimeMillis() + 10000;
+        while (meterRegistry.get("transformer.coalesced").counter().count() < count &&
+               System.currentTimeMillis() < end)
+        {
+            Thread.sleep(10);
+        }
+    }
+
+    @Test
+    public void testDisabled()
+    {
+        TransformCoalescer coalescer = new TransformCoalescer(false, null);
+        File target = target("target.txt");
+
+        coalescer.transform("key", target, Deadline.NONE, file -> write(file, "Result"));
+
+        assertFalse(coalescer.isEnabled());
+        assertTrue(target.exists());
+    }
+
+    @Test
+    public void testIdenticalTransformsAreOnlyPerformedOnce() throws Exception
+    {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TransformCoalescer coalescer = new TransformCoalescer(true, meterRegistry);
+        AtomicInteger count = new AtomicInteger();
+        AtomicReference<File> sharedFile = new AtomicReference<>();
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<?> leader = startLeader(coalescer, target("leader.txt"), release, file ->
+        {
+            count.incrementAndGet();
+            sharedFile.set(file);
+            write(file, "Result");
+        });
+        Future<?> follower1 = executor.submit(() -> coalescer.transform("key", target("follower1.txt"),
+            Deadline.NONE, file -> count.incrementAndGet()));
+        Future<?> follower2 = executor.submit(() -> coalescer.transform("key", target("follower2.txt"),
+            Deadline.NONE, file -> count.incrementAndGet()));
+        awaitFollowers(meterRegistry, 2);
+        release.countDown();
+        leader.get(10, TimeUnit.SECONDS);
+        follower1.get(10, TimeUnit.SECONDS);
+        follower2.get(10, TimeUnit.SECONDS);
+
+        assertEquals(1, count.get());
+        assertEquals(2, meterRegistry.get("transformer.coalesced").counter().count());
+        assertEquals("Result", Files.readString(target("leader.txt").toPath(), UTF_8));
+        assertEquals("Result", Files.readString(target("follower1.txt").toPath(), UTF_8));
+        assertEquals("Result", Files.readString(target("follower2.txt").toPath(), UTF_8));
+        assertFalse(sharedFile.get().exists());
+        assertEquals(0, coalescer.getInFlight());
+    }
+
+    @Test
+    public void testFailureIsShared() throws Exception
+    {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TransformCoalescer coalescer = new TransformCoalescer(true, meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<?> leader = startLeader(coalescer, target("leader.txt"), release, file ->
+        {
+            throw new TransformException(BAD_REQUEST.value(), "Bad source");
+        });
+        Future<?> follower = executor.submit(() -> coalescer.transform("key", target("follower.txt"),
+            Deadline.NONE, file -> write(file, "Result")));
+        awaitFollowers(meterRegistry, 1);
+        release.countDown();
+
+        assertThrows(Exception.class, () -> leader.get(10, TimeUnit.SECONDS));
+        Exception e = assertThrows(Exception.class, () -> follower.get(10, TimeUnit.SECONDS));
+        assertEquals(BAD_REQUEST.value(), ((TransformException) e.getCause()).getStatusCode());
+        assertFalse(target("follower.txt").exists());
+    }
+
+    @Test
+    public void testFollowerRetriesIfLeaderTimesOut() throws Exception
+    {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TransformCoalescer coalescer = new TransformCoalescer(true, meterRegistry);
+        CountDownLatch release = new CountDownLatch(1);
+
+        Future<?> leader = startLeader(coalescer, target("leader.txt"), release, file ->
+        {
+            throw new TransformException(REQUEST_TIMEOUT.value(), "Too slow");
+        });
+        Future<?> follower = executor.submit(() -> coalescer.transform("key", target("follower.txt"),
+            Deadline.NONE, file -> write(file, "Result")));
+        awaitFollowers(meterRegistry, 1);
+        release.countDown();
+
+        assertThrows(Exception.class, () -> leader.get(10, TimeUnit.SECONDS));
+        follower.get(10, TimeUnit.SECONDS);
+        assertEquals("Result", Files.readString(target("follower.txt").toPath(), UTF_8));
+    }
+}
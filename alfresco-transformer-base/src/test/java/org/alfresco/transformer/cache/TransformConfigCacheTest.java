@@ -0,0 +1,117 @@
+/*
+ * #%L
+ * Alfresco Transform Core
+ * %%
+ * Copyright (C) 2005 - 2022 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software.
+ * -
+ * If the software was purchased under a paid Alfresco license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ * -
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * -
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * -
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.transformer.cache;
+
+import static org.alfresco.transform.client.util.RequestParamMap.CONFIG_VERSION_LATEST;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertNotNull;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+
+import java.io.IOException;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import org.alfresco.transform.client.model.config.TransformConfig;
+import org.alfresco.transform.client.model.config.Transformer;
+import org.alfresco.transformer.cache.TransformConfigCache.SerializedTransformConfig;
+import org.junit.jupiter.api.Test;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+
+public class TransformConfigCacheTest
+{
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private final TransformConfigCache transformConfigCache = new TransformConfigCache(objectMapper);
+    private final AtomicInteger serializeCount = new AtomicInteger();
+
+    private TransformConfig buildTransformConfig(String transformerName)
+    {
+        serializeCount.incrementAndGet();
+        Transformer transformer = Transformer.builder()
+            .withTransformerName(transformerName)
+            .withCoreVersion("2.5.0")
+            .build();
+        return TransformConfig.builder().withTransformers(List.of(transformer)).build();
+    }
+
+    @Test
+    public void testSerializedOncePerSource() throws IOException
+    {
+        Object source1 = new Object();
+        SerializedTransformConfig config1 = transformConfigCache.get(source1, CONFIG_VERSION_LATEST,
+            () -> buildTransformConfig("transformer1"));
+        assertSame(config1, transformConfigCache.get(source1, CONFIG_VERSION_LATEST,
+            () -> buildTransformConfig("transformer1")));
+        assertEquals(1, serializeCount.get());
+        assertEquals("transformer1", objectMapper.readValue(config1.getBody(), TransformConfig.class)
+            .getTransformers().get(0).getTransformerName());
+
+        // A new source is serialized again, and has a new ETag if the content changed
+        Object source2 = new Object();
+        SerializedTransformConfig config2 = transformConfigCache.get(source2, CONFIG_VERSION_LATEST,
+            () -> buildTransformConfig("transformer2"));
+        assertEquals(2, serializeCount.get());
+        assertNotEquals(config1.getETag(), config2.getETag());
+        assertEquals(config2.getETag(), transformConfigCache.get(new Object(), CONFIG_VERSION_LATEST,
+            () -> buildTransformConfig("transformer2")).getETag());
+    }
+
+    @Test
+    public void testCoreVersion() throws IOException
+    {
+        Object source = new Object();
+        SerializedTransformConfig latest = transformConfigCache.get(source, CONFIG_VERSION_LATEST,
+            () -> buildTransformConfig("transformer1"));
+        SerializedTransformConfig original = transformConfigCache.get(source, 1,
+            () -> buildTransformConfig("transformer1"));
+
+        assertNotEquals(latest.getETag(), original.getETag());
+        assertNotNull(objectMapper.readValue(latest.getBody(), TransformConfig.class)
+            .getTransformers().get(0).getCoreVersion());
+        assertNull(objectMapper.readValue(original.getBody(), TransformConfig.class)
+            .getTransformers().get(0).getCoreVersion());
+        assertSame(latest, transformConfigCache.get(source, CONFIG_VERSION_LATEST,
+            () -> buildTransformConfig("transformer1")));
+    }
+
+    @Test
+    public void testCachedJsonWrittenForCachedConfig() throws IOException
+    {
+        SerializedTransformConfig cached = transformConfigCache.get(new Object(), CONFIG_VERSION_LATEST,
+            () -> buildTransformConfig("transformer1"));
+
+        assertSame(cached.getBody(), transformConfigCache.serialize(cached.getTransformConfig()));
+        assertEquals("transformer1", cached.getTransformConfig().getTransformers().get(0).getTransformerName());
+
+        // Any other config is serialized
+        TransformConfig other = buildTransformConfig("transformer2");
+        assertEquals("transformer2", objectMapper.readValue(transformConfigCache.serialize(other),
+            TransformConfig.class).getTransformers().get(0).getTransformerName());
+    }
+}
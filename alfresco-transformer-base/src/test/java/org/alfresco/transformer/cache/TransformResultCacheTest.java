@@ -0,0 +1,166 @@
+/*
+ * #%L
+ * Alfresco Transform Core
+ * %%
+ * Copyright (C) 2005 - 2022 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software.
+ * -
+ * If the software was purchased under a paid Alfresco license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ * -
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * -
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * -
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.transformer.cache;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotEquals;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Map;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class TransformResultCacheTest
+{
+    @TempDir
+    Path tempDir;
+
+    private File file(String name, String content) throws IOException
+    {
+        File file = tempDir.resolve(name).toFile();
+        Files.writeString(file.toPath(), content, UTF_8);
+        return file;
+    }
+
+    @Test
+    public void testKey() throws IOException
+    {
+        File source = file("source.txt", "Hello");
+        File other = file("other.txt", "Hello!");
+
+        String key = TransformKey.create(source, "html", "text/plain", "application/pdf",
+            Map.of("a", "1", "b", "2"));
+
+        assertEquals(64, key.length());
+        assertEquals(key, TransformKey.create(source, "html", "text/plain", "application/pdf",
+            Map.of("b", "2", "a", "1", "timeout", "2000")));
+        assertNotEquals(key, TransformKey.create(other, "html", "text/plain", "application/pdf",
+            Map.of("a", "1", "b", "2")));
+        assertNotEquals(key, TransformKey.create(source, "html", "text/plain", "application/pdf",
+            Map.of("a", "1", "b", "3")));
+        assertNotEquals(key, TransformKey.create(source, "html", "text/plain", "image/png",
+            Map.of("a", "1", "b", "2")));
+    }
+
+    @Test
+    public void testDisabled()
+    {
+        assertFalse(new TransformResultCache("", 1000, null).isEnabled());
+    }
+
+    @Test
+    public void testHitAndMiss() throws IOException
+    {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TransformResultCache cache = new TransformResultCache(tempDir.resolve("cache").toString(), 1000,
+            meterRegistry);
+        File target = file("target.txt", "");
+
+        assertTrue(cache.isEnabled());
+        assertFalse(cache.get("abc", target));
+
+        cache.put("abc", file("result.txt", "Result"));
+        assertTrue(cache.get("abc", target));
+        assertEquals("Result", Files.readString(target.toPath(), UTF_8));
+
+        assertEquals(1, meterRegistry.get("transformer.cache.requests").tag("result", "hit").counter().count());
+        assertEquals(1, meterRegistry.get("transformer.cache.requests").tag("result", "miss").counter().count());
+    }
+
+    @Test
+    public void testLeastRecentlyUsedAreEvicted() throws IOException
+    {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TransformResultCache cache = new TransformResultCache(tempDir.resolve("cache").toString(), 10,
+            meterRegistry);
+        File target = file("target.txt", "");
+
+        cache.put("a", file("a.txt", "aaaa"));
+        cache.put("b", file("b.txt", "bbbb"));
+        assertTrue(cache.get("a", target));
+        cache.put("c", file("c.txt", "cccc"));
+
+        assertEquals(8, cache.getSize());
+        assertTrue(cache.get("a", target));
+        assertFalse(cache.get("b", target));
+        assertTrue(cache.get("c", target));
+        assertEquals(1, meterRegistry.get("transformer.cache.evictions").counter().count());
+    }
+
+    @Test
+    public void testReloadedAfterRestart() throws IOException
+    {
+        String directory = tempDir.resolve("cache").toString();
+        new TransformResultCache(directory, 1000, null).put("abc", file("result.txt", "Result"));
+
+        TransformResultCache cache = new TransformResultCache(directory, 1000, null);
+
+        assertEquals(6, cache.getSize());
+        assertTrue(cache.get("abc", file("target.txt", "")));
+    }
+
+    @Test
+    public void testChangesToTargetDoNotAlterCachedResult() throws IOException
+    {
+        TransformResultCache cache = new TransformResultCache(tempDir.resolve("cache").toString(), 1000, null);
+        File result = file("result.txt", "Result");
+        File target = file("target.txt", "");
+
+        cache.put("abc", result);
+        Files.writeString(result.toPath(), "Changed", UTF_8);
+        assertTrue(cache.get("abc", target));
+        Files.writeString(target.toPath(), "Changed", UTF_8);
+
+        File other = file("other.txt", "");
+        assertTrue(cache.get("abc", other));
+        assertEquals("Result", Files.readString(other.toPath(), UTF_8));
+    }
+
+    @Test
+    public void testMissingResultIsAMiss() throws IOException
+    {
+        Path directory = tempDir.resolve("cache");
+        TransformResultCache cache = new TransformResultCache(directory.toString(), 1000, null);
+        File target = file("target.txt", "Old");
+
+        cache.put("abc", file("result.txt", "Result"));
+        Files.delete(directory.resolve("abc"));
+
+        assertFalse(cache.get("abc", target));
+        assertTrue(target.exists());
+        assertEquals(0, cache.getSize());
+    }
+}
@@ -0,0 +1,155 @@
+/*
+ * #%L
+ * Alfresco Transform Core
+ * %%
+ * Copyright (C) 2005 - 2022 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software.
+ * -
+ * If the software was purchased under a paid Alfresco license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ * -
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * -
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * -
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.transformer.clients;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import org.alfresco.transform.exceptions.TransformException;
+import org.alfresco.transformer.config.WebApplicationConfig;
+import org.alfresco.transformer.model.FileRefResponse;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.test.util.ReflectionTestUtils;
+
+public class AlfrescoSharedFileStoreClientTest
+{
+    private final AtomicReference<String> contentType = new AtomicReference<>();
+    private final AtomicReference<String> transferEncoding = new AtomicReference<>();
+    private final AtomicReference<String> body = new AtomicReference<>();
+    private final CountDownLatch partialRequestClosed = new CountDownLatch(1);
+    private HttpServer server;
+    private String url;
+    private AlfrescoSharedFileStoreClient client;
+
+    @BeforeEach
+    public void setUp() throws IOException
+    {
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/alfresco/api/-default-/private/sfs/versions/1/file", this::store);
+        server.createContext("/partial", exchange ->
+        {
+            try
+            {
+                exchange.getRequestBody().readAllBytes();
+            }
+            catch (IOException e)
+            {
+                partialRequestClosed.countDown();
+            }
+            exchange.close();
+        });
+        server.createContext("/full", exchange ->
+        {
+            exchange.getRequestBody().readAllBytes();
+            exchange.sendResponseHeaders(413, -1);
+            exchange.close();
+        });
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort();
+
+        client = new AlfrescoSharedFileStoreClient();
+        ReflectionTestUtils.setField(client, "restTemplate", new WebApplicationConfig().restTemplate());
+    }
+
+    @AfterEach
+    public void tearDown()
+    {
+        server.stop(0);
+    }
+
+    private void store(HttpExchange exchange) throws IOException
+    {
+        contentType.set(exchange.getRequestHeaders().getFirst("Content-Type"));
+        transferEncoding.set(exchange.getRequestHeaders().getFirst("Transfer-Encoding"));
+        body.set(new String(exchange.getRequestBody().readAllBytes(), UTF_8));
+        byte[] response = "{\"entry\":{\"fileRef\":\"abc123\"}}".getBytes(UTF_8);
+        exchange.getResponseHeaders().set("Content-Type", "application/json");
+        exchange.sendResponseHeaders(201, response.length);
+        exchange.getResponseBody().write(response);
+        exchange.close();
+    }
+
+    @Test
+    public void testSaveStream()
+    {
+        ReflectionTestUtils.setField(client, "fileStoreUrl",
+            url + "/alfresco/api/-default-/private/sfs/versions/1/file");
+
+        FileRefResponse response = client.saveStream("quick.txt", "text/plain",
+            out -> out.write("The quick brown fox".getBytes(UTF_8)));
+
+        assertEquals("abc123", response.getEntry().getFileRef());
+        assertEquals("chunked", transferEncoding.get());
+        assertTrue(contentType.get().startsWith("multipart/form-data;boundary="), contentType.get());
+        String boundary = contentType.get().substring(contentType.get().indexOf('=') + 1);
+        assertEquals("--" + boundary + "\r\n" +
+            "Content-Disposition: form-data; name=\"file\"; filename=\"quick.txt\"\r\n" +
+            "Content-Type: text/plain\r\n" +
+            "\r\n" +
+            "The quick brown fox\r\n" +
+            "--" + boundary + "--\r\n", body.get());
+    }
+
+    @Test
+    public void testSaveStreamRejected()
+    {
+        ReflectionTestUtils.setField(client, "fileStoreUrl", url + "/full");
+
+        TransformException e = assertThrows(TransformException.class, () -> client.saveStream("quick.txt",
+            "text/plain", out -> out.write("The quick brown fox".getBytes(UTF_8))));
+        assertEquals(413, e.getStatusCode());
+    }
+
+    @Test
+    public void testSaveStreamFailureClosesConnection() throws Exception
+    {
+        ReflectionTestUtils.setField(client, "fileStoreUrl", url + "/partial");
+
+        TransformException e = assertThrows(TransformException.class, () -> client.saveStream("quick.txt",
+            "text/plain", out ->
+            {
+                out.write("The quick".getBytes(UTF_8));
+                throw new TransformException(408, "Transform timed out");
+            }));
+
+        assertEquals(408, e.getStatusCode());
+        assertTrue(partialRequestClosed.await(10, TimeUnit.SECONDS),
+            "The partly written request should have been closed");
+    }
+}
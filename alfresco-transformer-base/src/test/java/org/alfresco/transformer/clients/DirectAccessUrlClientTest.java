@@ -0,0 +1,205 @@
+/*
+ * #%L
+ * Alfresco Transform Core
+ * %%
+ * Copyright (C) 2005 - 2022 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software.
+ * -
+ * If the software was purchased under a paid Alfresco license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ * -
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * -
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * -
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.transformer.clients;
+
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.REQUEST_TIMEOUT;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetSocketAddress;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.Random;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpServer;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.alfresco.transform.exceptions.TransformException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DirectAccessUrlClientTest
+{
+    private static final Pattern RANGE = Pattern.compile("bytes=(\\d+)-(\\d+)");
+
+    @TempDir
+    Path tempDir;
+
+    private final byte[] content = new byte[10_000];
+    private final AtomicInteger requests = new AtomicInteger();
+    private HttpServer server;
+    private String url;
+
+    @BeforeEach
+    public void setUp() throws IOException
+    {
+        new Random(42).nextBytes(content);
+        server = HttpServer.create(new InetSocketAddress("localhost", 0), 0);
+        server.createContext("/ranges", exchange -> send(exchange, true));
+        server.createContext("/noRanges", exchange -> send(exchange, false));
+        server.createContext("/stalls", exchange ->
+        {
+            exchange.sendResponseHeaders(200, content.length);
+            exchange.getResponseBody().write(content, 0, 100);
+            exchange.getResponseBody().flush();
+            try
+            {
+                Thread.sleep(5000);
+            }
+            catch (InterruptedException ignore)
+            {
+            }
+            exchange.close();
+        });
+        server.createContext("/missing", exchange ->
+        {
+            exchange.sendResponseHeaders(404, -1);
+            exchange.close();
+        });
+        server.setExecutor(Executors.newCachedThreadPool());
+        server.start();
+        url = "http://localhost:" + server.getAddress().getPort();
+    }
+
+    @AfterEach
+    public void tearDown()
+    {
+        server.stop(0);
+    }
+
+    private void send(HttpExchange exchange, boolean supportsRanges) throws IOException
+    {
+        requests.incrementAndGet();
+        int start = 0;
+        int end = content.length - 1;
+        String range = exchange.getRequestHeaders().getFirst("Range");
+        Matcher matcher = range == null ? null : RANGE.matcher(range);
+        boolean partial = supportsRanges && matcher != null && matcher.matches();
+        if (partial)
+        {
+            start = Integer.parseInt(matcher.group(1));
+            end = Math.min(end, Integer.parseInt(matcher.group(2)));
+            exchange.getResponseHeaders().add("Content-Range",
+                "bytes " + start + "-" + end + "/" + content.length);
+        }
+        exchange.sendResponseHeaders(partial ? 206 : 200, end - start + 1);
+        try (OutputStream outputStream = exchange.getResponseBody())
+        {
+            outputStream.write(content, start, end - start + 1);
+        }
+    }
+
+    private File download(DirectAccessUrlClient client, String directUrl) throws IOException
+    {
+        File file = tempDir.resolve("source.tmp").toFile();
+        client.download(directUrl, file);
+        return file;
+    }
+
+    @Test
+    public void testSingleRequest() throws IOException
+    {
+        DirectAccessUrlClient client = new DirectAccessUrlClient(1000, 5000, 5000, 0, 4, null);
+
+        File file = download(client, url + "/ranges");
+
+        assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void testParallelSegments() throws IOException
+    {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        DirectAccessUrlClient client = new DirectAccessUrlClient(1000, 5000, 5000, 3000, 4, meterRegistry);
+
+        File file = download(client, url + "/ranges");
+
+        assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+        assertEquals(4, requests.get());
+        assertEquals(1, meterRegistry.get("transformer.directAccessUrl.download").timer().count());
+        assertEquals(1, meterRegistry.get("transformer.directAccessUrl.throughput").summary().count());
+    }
+
+    @Test
+    public void testServerWithoutRangeSupport() throws IOException
+    {
+        DirectAccessUrlClient client = new DirectAccessUrlClient(1000, 5000, 5000, 3000, 4, null);
+
+        File file = download(client, url + "/noRanges");
+
+        assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+        assertEquals(1, requests.get());
+    }
+
+    @Test
+    public void testNotFound()
+    {
+        DirectAccessUrlClient client = new DirectAccessUrlClient(1000, 5000, 5000, 3000, 4, null);
+
+        TransformException e = assertThrows(TransformException.class, () -> download(client, url + "/missing"));
+
+        assertEquals(BAD_REQUEST.value(), e.getStatusCode());
+        assertEquals("Direct Access Url not found.", e.getMessage());
+    }
+
+    @Test
+    public void testFileUrl() throws IOException
+    {
+        DirectAccessUrlClient client = new DirectAccessUrlClient(1000, 5000, 5000, 0, 4, null);
+        File source = tempDir.resolve("original.bin").toFile();
+        Files.write(source.toPath(), content);
+
+        File file = download(client, "file://" + source.toPath());
+
+        assertArrayEquals(content, Files.readAllBytes(file.toPath()));
+    }
+
+    @Test
+    public void testStalledDownloadTimesOut()
+    {
+        DirectAccessUrlClient client = new DirectAccessUrlClient(1000, 5000, 200, 0, 4, null);
+
+        long start = System.currentTimeMillis();
+        TransformException e = assertThrows(TransformException.class, () -> download(client, url + "/stalls"));
+
+        assertEquals(REQUEST_TIMEOUT.value(), e.getStatusCode());
+        assertTrue(System.currentTimeMillis() - start < 4000, "The download should not wait for the server");
+    }
+}
@@ -0,0 +1,167 @@
+/*
+ * #%L
+ * Alfresco Transform Core
+ * %%
+ * Copyright (C) 2005 - 2022 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software.
+ * -
+ * If the software was purchased under a paid Alfresco license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ * -
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * -
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * -
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.transformer.executors;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.alfresco.transformer.util.MimetypeMap.MIMETYPE_METADATA_EXTRACT;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.File;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.nio.file.Files;
+import java.util.HashMap;
+import java.util.Map;
+
+import org.alfresco.transform.exceptions.TransformException;
+import org.junit.jupiter.api.Test;
+
+public class TransformerTest
+{
+    private static final String SOURCE = "Some source content";
+
+    /**
+     * Only implements the file based methods, so the stream based methods use temporary files.
+     */
+    private static class FileTransformer implements Transformer
+    {
+        private File sourceFile;
+
+        @Override
+        public String getTransformerId()
+        {
+            return "file";
+        }
+
+        @Override
+        public void transform(String transformName, String sourceMimetype, String targetMimetype,
+                              Map<String, String> transformOptions, File sourceFile, File targetFile)
+            throws Exception
+        {
+            this.sourceFile = sourceFile;
+            String content = Files.readString(sourceFile.toPath());
+            Files.writeString(targetFile.toPath(), content.toUpperCase());
+        }
+    }
+
+    private static class StreamingTransformer implements Transformer
+    {
+        @Override
+        public String getTransformerId()
+        {
+            return "streaming";
+        }
+
+        @Override
+        public boolean isStreamingSupported(String transformName, String sourceMimetype, String targetMimetype)
+        {
+            return true;
+        }
+
+        @Override
+        public void transform(String transformName, String sourceMimetype, String targetMimetype,
+                              Map<String, String> transformOptions, File sourceFile, File targetFile)
+        {
+            throw new IllegalStateException("The file based method should not be called");
+        }
+
+        @Override
+        public void transform(String transformName, String sourceMimetype, String targetMimetype,
+                              Map<String, String> transformOptions, InputStream sourceStream,
+                              OutputStream targetStream) throws Exception
+        {
+            if (transformOptions.containsKey("invalid"))
+            {
+                throw new IllegalArgumentException("Invalid option");
+            }
+            targetStream.write(new String(sourceStream.readAllBytes(), UTF_8).toLowerCase().getBytes(UTF_8));
+        }
+
+        @Override
+        public void extractMetadata(String transformName, String sourceMimetype, String targetMimetype,
+                                    Map<String, String> transformOptions, File sourceFile, File targetFile)
+            throws Exception
+        {
+            Files.writeString(targetFile.toPath(), "{\"length\":" + sourceFile.length() + "}");
+        }
+    }
+
+    @Test
+    public void testFileTransformerUsingStreams() throws Exception
+    {
+        FileTransformer transformer = new FileTransformer();
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+
+        transformer.transformExtractOrEmbed("upper", "text/plain", "text/plain", new HashMap<>(),
+            new ByteArrayInputStream(SOURCE.getBytes(UTF_8)), target);
+
+        assertEquals(SOURCE.toUpperCase(), target.toString(UTF_8));
+        assertTrue(transformer.sourceFile.getName().endsWith(".txt"));
+        assertFalse(transformer.sourceFile.exists(), "The temporary source file should have been removed");
+    }
+
+    @Test
+    public void testStreamingTransformer()
+    {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+
+        new StreamingTransformer().transformExtractOrEmbed("lower", "text/plain", "text/plain", new HashMap<>(),
+            new ByteArrayInputStream(SOURCE.getBytes(UTF_8)), target);
+
+        assertEquals(SOURCE.toLowerCase(), target.toString(UTF_8));
+    }
+
+    @Test
+    public void testStreamingTransformerFailure()
+    {
+        Map<String, String> transformOptions = new HashMap<>();
+        transformOptions.put("invalid", "true");
+
+        TransformException e = assertThrows(TransformException.class, () ->
+            new StreamingTransformer().transformExtractOrEmbed("lower", "text/plain", "text/plain",
+                transformOptions, new ByteArrayInputStream(SOURCE.getBytes(UTF_8)), new ByteArrayOutputStream()));
+        assertEquals(BAD_REQUEST.value(), e.getStatusCode());
+        assertEquals("Invalid option", e.getMessage());
+    }
+
+    @Test
+    public void testStreamingTransformerExtractsMetadataUsingFiles()
+    {
+        ByteArrayOutputStream target = new ByteArrayOutputStream();
+
+        new StreamingTransformer().transformExtractOrEmbed("lower", "text/plain", MIMETYPE_METADATA_EXTRACT,
+            new HashMap<>(), new ByteArrayInputStream(SOURCE.getBytes(UTF_8)), target);
+
+        assertEquals("{\"length\":" + SOURCE.length() + "}", target.toString(UTF_8));
+    }
+}
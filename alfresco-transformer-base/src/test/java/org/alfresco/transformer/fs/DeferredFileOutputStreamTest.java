@@ -0,0 +1,83 @@
+/*
+ * #%L
+ * Alfresco Transform Core
+ * %%
+ * Copyright (C) 2005 - 2022 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software.
+ * -
+ * If the software was purchased under a paid Alfresco license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ * -
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * -
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * -
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.transformer.fs;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.junit.jupiter.api.Assertions.assertArrayEquals;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class DeferredFileOutputStreamTest
+{
+    @TempDir
+    Path tempDir;
+
+    @Test
+    public void testContentHeldInMemory() throws Exception
+    {
+        File file = tempDir.resolve("target.txt").toFile();
+        DeferredFileOutputStream stream = new DeferredFileOutputStream(10, file);
+        try (stream)
+        {
+            stream.write("0123456".getBytes(UTF_8));
+            stream.write('7');
+            stream.write("89".getBytes(UTF_8));
+        }
+
+        assertTrue(stream.isInMemory());
+        assertEquals(10, stream.getSize());
+        assertArrayEquals("0123456789".getBytes(UTF_8), stream.toByteArray());
+        assertFalse(file.exists());
+    }
+
+    @Test
+    public void testContentWrittenToFile() throws Exception
+    {
+        File file = tempDir.resolve("target.txt").toFile();
+        DeferredFileOutputStream stream = new DeferredFileOutputStream(10, file);
+        try (stream)
+        {
+            stream.write("0123456789".getBytes(UTF_8));
+            stream.write('A');
+            stream.write("BC".getBytes(UTF_8));
+        }
+
+        assertFalse(stream.isInMemory());
+        assertEquals(13, stream.getSize());
+        assertEquals("0123456789ABC", Files.readString(file.toPath()));
+        assertThrows(IllegalStateException.class, stream::toByteArray);
+    }
+}
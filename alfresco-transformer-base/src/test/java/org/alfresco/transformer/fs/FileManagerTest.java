@@ -0,0 +1,134 @@
+/*
+ * #%L
+ * Alfresco Transform Core
+ * %%
+ * Copyright (C) 2005 - 2022 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software.
+ * -
+ * If the software was purchased under a paid Alfresco license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ * -
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * -
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * -
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.transformer.fs;
+
+import static java.nio.charset.StandardCharsets.UTF_8;
+import static org.alfresco.transformer.fs.FileManager.SOURCE_FILE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.http.HttpStatus.INSUFFICIENT_STORAGE;
+
+import java.io.ByteArrayInputStream;
+import java.io.File;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+
+import org.alfresco.transform.exceptions.TransformException;
+import org.alfresco.transformer.fs.FileManager.TempFileProvider;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockMultipartFile;
+
+public class FileManagerTest
+{
+    private static final byte[] CONTENT = "Some content".getBytes(UTF_8);
+
+    @TempDir
+    Path tempDir;
+
+    private ScratchSpace scratchSpace;
+    private final MockHttpServletRequest request = new MockHttpServletRequest();
+
+    @BeforeEach
+    public void setUp()
+    {
+        scratchSpace = new ScratchSpace(tempDir.toString(), null, 0, 0, 0, 0, 0, null);
+        TempFileProvider.setScratchSpace(scratchSpace);
+    }
+
+    @AfterEach
+    public void tearDown()
+    {
+        TempFileProvider.setScratchSpace(null);
+        scratchSpace.close();
+    }
+
+    /**
+     * A multipart file that the servlet container is unable to move into place.
+     */
+    private static class UnmovableMultipartFile extends MockMultipartFile
+    {
+        private final boolean readable;
+
+        UnmovableMultipartFile(boolean readable)
+        {
+            super("file", "quick.txt", "text/plain", CONTENT);
+            this.readable = readable;
+        }
+
+        @Override
+        public void transferTo(File dest) throws IOException
+        {
+            throw new IOException("Cannot move across file systems");
+        }
+
+        @Override
+        public InputStream getInputStream() throws IOException
+        {
+            if (!readable)
+            {
+                throw new IOException("Part has been removed");
+            }
+            return new ByteArrayInputStream(CONTENT);
+        }
+    }
+
+    @Test
+    public void testCreateSourceFileTransfersMultipartContent() throws Exception
+    {
+        MockMultipartFile multipartFile = new MockMultipartFile("file", "quick.txt", "text/plain", CONTENT);
+
+        File file = FileManager.createSourceFile(request, multipartFile);
+
+        assertEquals(file, request.getAttribute(SOURCE_FILE));
+        assertEquals(tempDir.toFile(), file.getParentFile());
+        assertEquals("Some content", Files.readString(file.toPath()));
+    }
+
+    @Test
+    public void testCreateSourceFileCopiesWhenPartCannotBeMoved() throws Exception
+    {
+        File file = FileManager.createSourceFile(request, new UnmovableMultipartFile(true));
+
+        assertEquals("Some content", Files.readString(file.toPath()));
+    }
+
+    @Test
+    public void testCreateSourceFileFailsWhenPartCannotBeRead()
+    {
+        TransformException e = assertThrows(TransformException.class,
+            () -> FileManager.createSourceFile(request, new UnmovableMultipartFile(false)));
+
+        assertEquals(INSUFFICIENT_STORAGE.value(), e.getStatusCode());
+        assertEquals(1, e.getCause().getSuppressed().length);
+    }
+}
@@ -0,0 +1,219 @@
+/*
+ * #%L
+ * Alfresco Transform Core
+ * %%
+ * Copyright (C) 2005 - 2022 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software.
+ * -
+ * If the software was purchased under a paid Alfresco license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ * -
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * -
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * -
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.transformer.fs;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertNotSame;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertSame;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.http.HttpStatus.INSUFFICIENT_STORAGE;
+
+import java.io.File;
+import java.nio.file.Path;
+
+import org.alfresco.transform.exceptions.TransformException;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+public class ScratchSpaceTest
+{
+    @TempDir
+    Path tempDir;
+
+    private ScratchSpace scratchSpace;
+
+    @AfterEach
+    public void tearDown()
+    {
+        ScratchSpace.suspend();
+        if (scratchSpace != null)
+        {
+            scratchSpace.close();
+        }
+    }
+
+    private ScratchSpace create(long quota, long maxAge)
+    {
+        scratchSpace = new ScratchSpace(tempDir.resolve("disk").toString(), tempDir.resolve("memory").toString(),
+            100, 150, quota, 0, maxAge, null);
+        return scratchSpace;
+    }
+
+    @Test
+    public void testFilesOutsideARequest()
+    {
+        File file = create(0, 0).createTempFile("source_", ".txt", -1);
+
+        assertEquals(tempDir.resolve("disk").toFile(), file.getParentFile());
+    }
+
+    @Test
+    public void testRequestDirectoryIsRemoved()
+    {
+        create(0, 0);
+        ScratchSpace.Request request = scratchSpace.startRequest();
+        File large = scratchSpace.createTempFile("source_", ".txt", 1000);
+        File unknown = scratchSpace.createTempFile("target_", ".txt", -1);
+        File small = scratchSpace.createTempFile("source_", ".txt", 50);
+
+        assertSame(request, ScratchSpace.current());
+        assertEquals(large.getParentFile(), unknown.getParentFile());
+        assertTrue(large.getParentFile().getName().startsWith("request_"));
+        assertEquals(tempDir.resolve("memory").toFile(), small.getParentFile().getParentFile());
+        assertEquals(1050, scratchSpace.getReserved());
+
+        request.close();
+
+        assertFalse(large.getParentFile().exists());
+        assertFalse(small.getParentFile().exists());
+        assertNull(ScratchSpace.current());
+        assertEquals(0, scratchSpace.getReserved());
+    }
+
+    @Test
+    public void testMemoryDirectoryMaxSize()
+    {
+        create(0, 0).startRequest();
+
+        File first = scratchSpace.createTempFile("source_", ".txt", 100);
+        File second = scratchSpace.createTempFile("source_", ".txt", 100);
+
+        assertEquals(tempDir.resolve("memory").toFile(), first.getParentFile().getParentFile());
+        assertEquals(tempDir.resolve("disk").toFile(), second.getParentFile().getParentFile());
+    }
+
+    @Test
+    public void testQuota()
+    {
+        create(2000, 0);
+        ScratchSpace.Request request = scratchSpace.startRequest();
+        scratchSpace.createTempFile("source_", ".txt", 1500);
+
+        TransformException e = assertThrows(TransformException.class,
+            () -> scratchSpace.createTempFile("source_", ".txt", 1000));
+        assertEquals(INSUFFICIENT_STORAGE.value(), e.getStatusCode());
+        assertThrows(TransformException.class, () -> scratchSpace.createTempFile("source_", ".txt", 3000));
+
+        request.close();
+        scratchSpace.startRequest();
+        scratchSpace.createTempFile("source_", ".txt", 1000);
+    }
+
+    @Test
+    public void testSuspendAndResume()
+    {
+        create(0, 0);
+        ScratchSpace.Request request = scratchSpace.startRequest();
+
+        assertSame(request, ScratchSpace.suspend());
+        assertNull(ScratchSpace.current());
+        ScratchSpace.resume(request);
+        assertSame(request, ScratchSpace.current());
+    }
+
+    @Test
+    public void testReservationOnClosedRequestIsReleased()
+    {
+        create(2000, 0);
+        ScratchSpace.Request request = scratchSpace.startRequest();
+        ScratchSpace.suspend();
+        request.close();
+
+        // Still attached to another Thread, such as one performing a transform that has timed out
+        ScratchSpace.resume(request);
+        File large = scratchSpace.createTempFile("source_", ".txt", 1500);
+        File small = scratchSpace.createTempFile("source_", ".txt", 50);
+
+        assertEquals(0, scratchSpace.getReserved());
+        assertEquals(tempDir.resolve("disk").toFile(), large.getParentFile());
+        assertEquals(tempDir.resolve("disk").toFile(), small.getParentFile());
+        scratchSpace.createTempFile("source_", ".txt", 1500);
+    }
+
+    @Test
+    public void testCloseStopsScratchSpaceBeingUsedForTempFiles()
+    {
+        create(0, 0);
+        FileManager.TempFileProvider.setScratchSpace(scratchSpace);
+        assertSame(scratchSpace, FileManager.TempFileProvider.getScratchSpace());
+
+        scratchSpace.close();
+
+        assertNotSame(scratchSpace, FileManager.TempFileProvider.getScratchSpace());
+        FileManager.TempFileProvider.setScratchSpace(null);
+    }
+
+    @Test
+    public void testSweeperRemovesOrphans()
+    {
+        create(0, 1);
+        File orphan = tempDir.resolve("disk").resolve("request_orphan").toFile();
+        assertTrue(orphan.mkdir());
+        assertTrue(orphan.setLastModified(System.currentTimeMillis() - 2 * 60 * 1000));
+        File other = tempDir.resolve("disk").resolve("other").toFile();
+        assertTrue(other.mkdir());
+        assertTrue(other.setLastModified(System.currentTimeMillis() - 2 * 60 * 1000));
+        ScratchSpace.Request request = scratchSpace.startRequest();
+        File inUse = scratchSpace.createTempFile("source_", ".txt", -1).getParentFile();
+        assertTrue(inUse.setLastModified(System.currentTimeMillis() - 2 * 60 * 1000));
+
+        scratchSpace.sweep();
+
+        assertFalse(orphan.exists());
+        assertTrue(other.exists());
+        assertTrue(inUse.exists());
+        request.close();
+    }
+
+    @Test
+    public void testFileCreatedAfterCloseIsSwept()
+    {
+        create(0, 1);
+        ScratchSpace.Request request = scratchSpace.startRequest();
+        ScratchSpace.suspend();
+        request.close();
+
+        // Still attached to another Thread, such as one performing a transform that has timed out
+        ScratchSpace.resume(request);
+        File late = scratchSpace.createTempFile("target_", ".txt", -1);
+        ScratchSpace.suspend();
+        File outside = scratchSpace.createTempFile("target_", ".txt", -1);
+        File recent = scratchSpace.createTempFile("target_", ".txt", -1);
+        assertTrue(late.setLastModified(System.currentTimeMillis() - 2 * 60 * 1000));
+        assertTrue(outside.setLastModified(System.currentTimeMillis() - 2 * 60 * 1000));
+
+        scratchSpace.sweep();
+
+        assertFalse(late.exists());
+        assertFalse(outside.exists());
+        assertTrue(recent.exists());
+    }
+}
@@ -0,0 +1,196 @@
+/*
+ * #%L
+ * Alfresco Transform Core
+ * %%
+ * Copyright (C) 2005 - 2022 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software.
+ * -
+ * If the software was purchased under a paid Alfresco license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ * -
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * -
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * -
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.transformer.messaging;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+import java.util.List;
+
+import org.alfresco.transform.client.model.TransformRequest;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.jms.config.JmsListenerEndpointRegistry;
+import org.springframework.jms.listener.DefaultMessageListenerContainer;
+
+public class JmsConcurrencyControllerTest
+{
+    private static final TransformRequest SMALL_DOC = request("application/msword", 10_000);
+    private static final TransformRequest LARGE_DOC = request("application/msword", 10_000_000);
+    private static final TransformRequest SMALL_PNG = request("image/png", 10_000);
+
+    private final DefaultMessageListenerContainer container = new DefaultMessageListenerContainer();
+    private final JmsListenerEndpointRegistry endpointRegistry = mock(JmsListenerEndpointRegistry.class);
+    private double cpu;
+
+    @BeforeEach
+    public void before()
+    {
+        container.setConcurrency("2-10");
+        when(endpointRegistry.getListenerContainers()).thenReturn(List.of(container));
+        when(endpointRegistry.getPhase()).thenReturn(Integer.MAX_VALUE);
+    }
+
+    private static TransformRequest request(String sourceMediaType, long sourceSize)
+    {
+        return TransformRequest.builder()
+            .withSourceMediaType(sourceMediaType)
+            .withSourceSize(sourceSize)
+            .withTargetMediaType("application/pdf")
+            .build();
+    }
+
+    private JmsConcurrencyController controller(int parallelism)
+    {
+        return new JmsConcurrencyController("2-10", parallelism, true, 60, 0.8, 2.0, endpointRegistry, null,
+            () -> cpu);
+    }
+
+    private void transforms(JmsConcurrencyController controller, int concurrent, long nanos,
+        TransformRequest request)
+    {
+        long[] startTimes = new long[concurrent];
+        for (int i = 0; i < concurrent; i++)
+        {
+            startTimes[i] = controller.transformStarted() - nanos;
+        }
+        for (long startTime : startTimes)
+        {
+            controller.transformFinished(startTime, request);
+        }
+    }
+
+    @Test
+    public void testStartsAtParallelismWithinRange()
+    {
+        assertEquals(4, controller(4).getLimit());
+        assertEquals(2, controller(1).getLimit());
+        assertEquals(10, controller(64).getLimit());
+    }
+
+    @Test
+    public void testLimitAppliedBeforeContainersStart()
+    {
+        JmsConcurrencyController controller = controller(4);
+        assertEquals(Integer.MAX_VALUE - 1, controller.getPhase());
+        assertEquals(10, container.getMaxConcurrentConsumers());
+
+        controller.start();
+        try
+        {
+            assertTrue(controller.isRunning());
+            assertEquals(4, container.getMaxConcurrentConsumers());
+        }
+        finally
+        {
+            controller.stop();
+        }
+        assertFalse(controller.isRunning());
+    }
+
+    @Test
+    public void testNotAppliedWhenDisabled()
+    {
+        JmsConcurrencyController controller = new JmsConcurrencyController("2-10", 4, false, 60, 0.8, 2.0,
+            endpointRegistry, null, () -> cpu);
+        controller.start();
+
+        assertFalse(controller.isRunning());
+        assertEquals(10, container.getMaxConcurrentConsumers());
+    }
+
+    @Test
+    public void testGrowsWhenAllConsumersBusy()
+    {
+        JmsConcurrencyController controller = controller(4);
+        transforms(controller, 4, 1_000_000, SMALL_DOC);
+        controller.adjust();
+        assertEquals(5, controller.getLimit());
+        assertEquals(5, container.getMaxConcurrentConsumers());
+
+        // Not all consumers were busy
+        transforms(controller, 2, 1_000_000, SMALL_DOC);
+        controller.adjust();
+        assertEquals(5, controller.getLimit());
+    }
+
+    @Test
+    public void testShrinksWhenCpuSaturated()
+    {
+        JmsConcurrencyController controller = controller(8);
+        cpu = 0.9;
+        transforms(controller, 8, 1_000_000, SMALL_DOC);
+        controller.adjust();
+        assertEquals(6, controller.getLimit());
+        assertEquals(6, container.getMaxConcurrentConsumers());
+
+        for (int i = 0; i < 10; i++)
+        {
+            controller.adjust();
+        }
+        assertEquals(2, controller.getLimit());
+    }
+
+    @Test
+    public void testShrinksWhenLatencyGrows()
+    {
+        JmsConcurrencyController controller = controller(8);
+        transforms(controller, 1, 1_000_000, SMALL_DOC);
+        controller.adjust();
+        assertEquals(8, controller.getLimit());
+
+        transforms(controller, 8, 5_000_000, SMALL_DOC);
+        controller.adjust();
+        assertEquals(6, controller.getLimit());
+    }
+
+    @Test
+    public void testChangeInTransformMixIsNotOverload()
+    {
+        JmsConcurrencyController controller = controller(8);
+        transforms(controller, 1, 1_000_000, SMALL_DOC);
+        transforms(controller, 1, 1_000_000, SMALL_PNG);
+        controller.adjust();
+
+        // Larger documents and other types of transform take longer, but are compared with their own baselines
+        for (int i = 0; i < 5; i++)
+        {
+            transforms(controller, 4, 500_000_000, LARGE_DOC);
+            transforms(controller, 4, 50_000_000, request("application/vnd.ms-excel", 10_000));
+            controller.adjust();
+        }
+        assertEquals(8, controller.getLimit());
+
+        transforms(controller, 4, 5_000_000_000L, LARGE_DOC);
+        transforms(controller, 4, 1_000_000, SMALL_PNG);
+        controller.adjust();
+        assertEquals(6, controller.getLimit());
+    }
+}
@@ -0,0 +1,159 @@
+/*
+ * #%L
+ * Alfresco Transform Core
+ * %%
+ * Copyright (C) 2005 - 2022 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software.
+ * -
+ * If the software was purchased under a paid Alfresco license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ * -
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * -
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * -
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.transformer.messaging;
+
+import static org.alfresco.transformer.messaging.TransformMessageConverter.CONTENT_TYPE_PROPERTY;
+import static org.alfresco.transformer.messaging.TransformMessageConverter.SMILE_CONTENT_TYPE;
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertNull;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+
+import java.util.Map;
+
+import javax.jms.JMSException;
+import javax.jms.Message;
+import javax.jms.Session;
+
+import org.alfresco.transform.client.model.InternalContext;
+import org.alfresco.transform.client.model.TransformReply;
+import org.alfresco.transform.client.model.TransformRequest;
+import org.alfresco.transform.router.TransformStack;
+import org.alfresco.transformer.messaging.TransformMessageConverter.Encoding;
+import org.apache.activemq.command.ActiveMQBytesMessage;
+import org.apache.activemq.command.ActiveMQObjectMessage;
+import org.junit.jupiter.api.Test;
+import org.springframework.jms.support.converter.MessageConversionException;
+
+public class TransformMessageConverterTest
+{
+    private final TransformMessageConverter converter = new TransformMessageConverter();
+    private final Session session = mock(Session.class);
+
+    public TransformMessageConverterTest() throws JMSException
+    {
+        doAnswer(invocation -> new ActiveMQBytesMessage()).when(session).createBytesMessage();
+    }
+
+    private TransformRequest buildRequest()
+    {
+        InternalContext internalContext = InternalContext.initialise(null);
+        internalContext.getMultiStep().setInitialRequestId("abc");
+        TransformStack.setInitialTransformRequestOptions(internalContext, Map.of("resizeWidth", "100"));
+        TransformStack.setInitialSourceReference(internalContext, "source-ref");
+        TransformStack.addTransformLevel(internalContext, TransformStack.levelBuilder(TransformStack.PIPELINE_FLAG)
+            .withStep("transformer", "application/pdf", "image/png"));
+        TransformStack.setReference(internalContext, 3);
+
+        return TransformRequest.builder()
+            .withRequestId("abc")
+            .withSourceReference("source-ref")
+            .withSourceMediaType("application/pdf")
+            .withSourceSize(1234L)
+            .withTargetMediaType("image/png")
+            .withTargetExtension("png")
+            .withClientData("client data")
+            .withTransformRequestOptions(Map.of("resizeWidth", "100"))
+            .withInternalContext(internalContext)
+            .withSchema(1)
+            .build();
+    }
+
+    private Object roundTrip(Object object, Encoding encoding) throws JMSException
+    {
+        ActiveMQBytesMessage message = (ActiveMQBytesMessage) converter.toMessage(object, session, encoding);
+        message.reset();
+        return converter.fromMessage(message);
+    }
+
+    @Test
+    public void testJson() throws JMSException
+    {
+        TransformRequest request = buildRequest();
+        Message message = converter.toMessage(request, session, Encoding.JSON);
+
+        assertNull(message.getStringProperty(CONTENT_TYPE_PROPERTY));
+        assertEquals(Encoding.JSON, TransformMessageConverter.getEncoding(message));
+        assertEquals(request, roundTrip(request, Encoding.JSON));
+    }
+
+    @Test
+    public void testSmile() throws JMSException
+    {
+        TransformRequest request = buildRequest();
+        ActiveMQBytesMessage smile = (ActiveMQBytesMessage) converter.toMessage(request, session, Encoding.SMILE);
+        ActiveMQBytesMessage json = (ActiveMQBytesMessage) converter.toMessage(request, session, Encoding.JSON);
+
+        assertEquals(SMILE_CONTENT_TYPE, smile.getStringProperty(CONTENT_TYPE_PROPERTY));
+        assertEquals(Encoding.SMILE, TransformMessageConverter.getEncoding(smile));
+        smile.reset();
+        json.reset();
+        assertTrue(smile.getBodyLength() < json.getBodyLength());
+
+        TransformRequest copy = (TransformRequest) roundTrip(request, Encoding.SMILE);
+        assertEquals(request, copy);
+        assertEquals("3", TransformStack.getReference(copy.getInternalContext()));
+        assertEquals(request.getInternalContext().getMultiStep().getTransformsToBeDone(),
+            copy.getInternalContext().getMultiStep().getTransformsToBeDone());
+    }
+
+    @Test
+    public void testSmileReply() throws JMSException
+    {
+        TransformReply reply = TransformReply.builder()
+            .withRequestId("abc")
+            .withStatus(201)
+            .withTargetReference("target-ref")
+            .withClientData("client data")
+            .build();
+
+        TransformReply copy = (TransformReply) roundTrip(reply, Encoding.SMILE);
+        assertEquals(reply, copy);
+    }
+
+    @Test
+    public void testUnsupportedContentType() throws JMSException
+    {
+        ActiveMQBytesMessage message = new ActiveMQBytesMessage();
+        message.setStringProperty(CONTENT_TYPE_PROPERTY, "application/cbor");
+
+        assertThrows(MessageConversionException.class, () -> converter.fromMessage(message));
+        // Unable to reply with an unsupported encoding
+        assertEquals(Encoding.JSON, TransformMessageConverter.getEncoding(message));
+    }
+
+    @Test
+    public void testSmileMustBeBytes() throws JMSException
+    {
+        ActiveMQObjectMessage message = new ActiveMQObjectMessage();
+        message.setStringProperty(CONTENT_TYPE_PROPERTY, SMILE_CONTENT_TYPE);
+
+        assertThrows(MessageConversionException.class, () -> converter.fromMessage(message));
+    }
+}
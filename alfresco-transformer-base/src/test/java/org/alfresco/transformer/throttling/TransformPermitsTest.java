@@ -0,0 +1,147 @@
+/*
+ * #%L
+ * Alfresco Transform Core
+ * %%
+ * Copyright (C) 2005 - 2022 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software.
+ * -
+ * If the software was purchased under a paid Alfresco license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ * -
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * -
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * -
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.transformer.throttling;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.springframework.http.HttpStatus.TOO_MANY_REQUESTS;
+
+import org.junit.jupiter.api.Test;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+
+public class TransformPermitsTest
+{
+    @Test
+    public void testUnlimitedTransformsAreNotThrottled()
+    {
+        TransformPermits transformPermits = new TransformPermits("", 0, 0, null);
+
+        transformPermits.acquire("libreoffice");
+        transformPermits.acquire("libreoffice");
+
+        assertEquals(-1, transformPermits.getActive("libreoffice"));
+    }
+
+    @Test
+    public void testPermitsAreReleased()
+    {
+        TransformPermits transformPermits = new TransformPermits("libreoffice=1", 0, 0, null);
+
+        try (TransformPermits.Permit permit = transformPermits.acquire("libreoffice"))
+        {
+            assertEquals(1, transformPermits.getActive("libreoffice"));
+        }
+        assertEquals(0, transformPermits.getActive("libreoffice"));
+    }
+
+    @Test
+    public void testRejectedWhenNoPermitsAvailable()
+    {
+        SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+        TransformPermits transformPermits = new TransformPermits("imagemagick=2", 0, 0, meterRegistry);
+
+        transformPermits.acquire("imagemagick");
+        transformPermits.acquire("imagemagick");
+        TooManyTransformsException e = assertThrows(TooManyTransformsException.class,
+            () -> transformPermits.acquire("imagemagick"));
+
+        assertEquals(TOO_MANY_REQUESTS.value(), e.getStatusCode());
+        assertEquals(1, e.getRetryAfterSeconds());
+        assertEquals(2, meterRegistry.get("transformer.permits.active").gauge().value());
+        assertEquals(1, meterRegistry.get("transformer.permits.rejected").counter().count());
+    }
+
+    @Test
+    public void testFirstConfiguredNameIsUsed()
+    {
+        TransformPermits transformPermits = new TransformPermits("tika=1", 0, 0, null);
+
+        transformPermits.acquire("PdfBox", "tika");
+
+        assertEquals(1, transformPermits.getActive("tika"));
+        assertThrows(TooManyTransformsException.class, () -> transformPermits.acquire(null, "tika"));
+    }
+
+    @Test
+    public void testWaitsForPermit() throws Exception
+    {
+        TransformPermits transformPermits = new TransformPermits("misc=1", 1, 10000, null);
+
+        TransformPermits.Permit permit = transformPermits.acquire("misc");
+        Thread thread = new Thread(() ->
+        {
+            try
+            {
+                Thread.sleep(100);
+            }
+            catch (InterruptedException ignore)
+            {
+            }
+            permit.close();
+        });
+        thread.start();
+
+        transformPermits.acquire("misc").close();
+        thread.join();
+        assertEquals(0, transformPermits.getActive("misc"));
+    }
+
+    @Test
+    public void testOnlyWaitsWithoutTimeoutWhileWaitingForPermits()
+    {
+        TransformPermits transformPermits = new TransformPermits("misc=1", 0, 0, null);
+
+        TransformPermits.Permit permit = transformPermits.acquire("misc");
+        TransformPermits.waitingForPermits(() ->
+        {
+            new Thread(() ->
+            {
+                try
+                {
+                    Thread.sleep(100);
+                }
+                catch (InterruptedException ignore)
+                {
+                }
+                permit.close();
+            }).start();
+            transformPermits.acquire("misc");
+            return null;
+        });
+
+        assertEquals(1, transformPermits.getActive("misc"));
+        assertThrows(TooManyTransformsException.class, () -> transformPermits.acquire("misc"));
+    }
+
+    @Test
+    public void testInvalidLimits()
+    {
+        assertThrows(IllegalArgumentException.class, () -> new TransformPermits("libreoffice", 0, 0, null));
+        assertThrows(IllegalArgumentException.class, () -> new TransformPermits("libreoffice=0", 0, 0, null));
+    }
+}
@@ -0,0 +1,119 @@
+/*
+ * #%L
+ * Alfresco Transform Core
+ * %%
+ * Copyright (C) 2005 - 2022 Alfresco Software Limited
+ * %%
+ * This file is part of the Alfresco software.
+ * -
+ * If the software was purchased under a paid Alfresco license, the terms of
+ * the paid license agreement will prevail.  Otherwise, the software is
+ * provided under the following open source license terms:
+ * -
+ * Alfresco is free software: you can redistribute it and/or modify
+ * it under the terms of the GNU Lesser General Public License as published by
+ * the Free Software Foundation, either version 3 of the License, or
+ * (at your option) any later version.
+ * -
+ * Alfresco is distributed in the hope that it will be useful,
+ * but WITHOUT ANY WARRANTY; without even the implied warranty of
+ * MERCHANTABILITY or FITNESS FOR A PARTICULAR PURPOSE.  See the
+ * GNU Lesser General Public License for more details.
+ * -
+ * You should have received a copy of the GNU Lesser General Public License
+ * along with Alfresco. If not, see <http://www.gnu.org/licenses/>.
+ * #L%
+ */
+package org.alfresco.transformer.util;
+
+import static org.junit.jupiter.api.Assertions.assertEquals;
+import static org.junit.jupiter.api.Assertions.assertFalse;
+import static org.junit.jupiter.api.Assertions.assertThrows;
+import static org.junit.jupiter.api.Assertions.assertTrue;
+import static org.springframework.http.HttpStatus.BAD_REQUEST;
+import static org.springframework.http.HttpStatus.REQUEST_TIMEOUT;
+
+import org.alfresco.transform.exceptions.TransformException;
+import org.junit.jupiter.api.Test;
+
+public class DeadlineTest
+{
+    @Test
+    public void testNoDeadline()
+    {
+        assertFalse(Deadline.after((Long) null).isSet());
+        assertFalse(Deadline.after(0L).isSet());
+        assertFalse(Deadline.after((String) null).isSet());
+        assertEquals(Long.MAX_VALUE, Deadline.NONE.getRemaining());
+        assertEquals("done", Deadline.NONE.get("Work", () -> "done"));
+    }
+
+    @Test
+    public void testInvalidTimeout()
+    {
+        TransformException e = assertThrows(TransformException.class, () -> Deadline.after("abc"));
+        assertEquals(BAD_REQUEST.value(), e.getStatusCode());
+    }
+
+    @Test
+    public void testWorkCompletesInTime()
+    {
+        Deadline deadline = Deadline.after(10000L);
+
+        assertTrue(deadline.isSet());
+        assertEquals("done", deadline.get("Work", () -> "done"));
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    public void testWorkIsInterrupted()
+    {
+        Deadline deadline = Deadline.after(100L);
+
+        TransformException e = assertThrows(TransformException.class, () -> deadline.run("Work", () ->
+        {
+            try
+            {
+                Thread.sleep(10000);
+            }
+            catch (InterruptedException interrupted)
+            {
+                throw new IllegalStateException("interrupted", interrupted);
+            }
+        }));
+
+        assertEquals(REQUEST_TIMEOUT.value(), e.getStatusCode());
+        assertEquals("Work did not complete within the 100ms timeout", e.getMessage());
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    public void testWorkIgnoringInterruptStillTimesOut()
+    {
+        Deadline deadline = Deadline.after(100L);
+
+        TransformException e = assertThrows(TransformException.class, () -> deadline.get("Work", () ->
+        {
+            long end = System.currentTimeMillis() + 300;
+            while (System.currentTimeMillis() < end)
+            {
+                Thread.onSpinWait();
+            }
+            return "late";
+        }));
+
+        assertEquals(REQUEST_TIMEOUT.value(), e.getStatusCode());
+        assertFalse(Thread.currentThread().isInterrupted());
+    }
+
+    @Test
+    public void testExpiredDeadline() throws Exception
+    {
+        Deadline deadline = Deadline.after(1L);
+        Thread.sleep(10);
+
+        TransformException e = assertThrows(TransformException.class, () -> deadline.check("Work"));
+        assertEquals(REQUEST_TIMEOUT.value(), e.getStatusCode());
+        assertEquals(0, deadline.getRemaining());
+    }
+}